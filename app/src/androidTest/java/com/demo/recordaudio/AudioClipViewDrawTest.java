@@ -0,0 +1,90 @@
+package com.demo.recordaudio;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.os.Debug;
+import android.view.LayoutInflater;
+import android.view.View;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * AudioClipView.onDraw在波形数据不变时不能分配对象
+ */
+@RunWith(AndroidJUnit4.class)
+public class AudioClipViewDrawTest {
+
+    private static final int WIDTH = 1080;
+    private static final int HEIGHT = 180;
+
+    @Test
+    public void onDraw_allocatesNothingPerFrame() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        View root = LayoutInflater.from(context).inflate(R.layout.activity_clip, null);
+        AudioClipView view = root.findViewById(R.id.clip_view);
+        PeakPyramid peaks = new PeakPyramid();
+        for (int i = 0; i < 100000; i++) {
+            peaks.append(-(i % 30000), i % 30000);
+        }
+        view.setPeakSource(peaks);
+        view.measure(View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.EXACTLY));
+        view.layout(0, 0, WIDTH, HEIGHT);
+        Canvas canvas = new Canvas(Bitmap.createBitmap(WIDTH, HEIGHT, Bitmap.Config.ARGB_8888));
+        // 第一帧计算波形坐标
+        view.draw(canvas);
+
+        Debug.resetThreadAllocCount();
+        Debug.startAllocCounting();
+        for (int i = 0; i < 100; i++) {
+            view.draw(canvas);
+        }
+        Debug.stopAllocCounting();
+        assertEquals(0, Debug.getThreadAllocCount());
+    }
+
+    @Test
+    public void visibleRange_queriesOnlyVisibleBins() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        View root = LayoutInflater.from(context).inflate(R.layout.activity_clip, null);
+        AudioClipView view = root.findViewById(R.id.clip_view);
+        // 90分钟，每10ms一个bin
+        final long bins = 90 * 60 * 100;
+        final long[] range = new long[]{-1, -1};
+        view.setPeakSource(new PeakSource() {
+            @Override
+            public long getBinCount() {
+                return bins;
+            }
+
+            @Override
+            public int query(long startBin, long endBin, int columns, short[] outMin, short[] outMax) {
+                range[0] = startBin;
+                range[1] = endBin;
+                for (int i = 0; i < columns; i++) {
+                    outMin[i] = -1000;
+                    outMax[i] = 1000;
+                }
+                return columns;
+            }
+        });
+        view.setDuration(90 * 60 * 1000L);
+        view.measure(View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.EXACTLY));
+        view.layout(0, 0, WIDTH, HEIGHT);
+        view.setVisibleRange(45 * 60 * 1000L, 45 * 60 * 1000L + 30000);
+        view.draw(new Canvas(Bitmap.createBitmap(WIDTH, HEIGHT, Bitmap.Config.ARGB_8888)));
+
+        assertEquals(45 * 60 * 100, range[0]);
+        assertTrue("end=" + range[1], range[1] <= 45 * 60 * 100 + 3000);
+        assertTrue("end=" + range[1], range[1] > 45 * 60 * 100 + 2900);
+    }
+}
@@ -0,0 +1,139 @@
+package com.demo.recordaudio;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.os.Debug;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * AudioRecordView画刻度和时间标签时不能分配对象，增量绘制的结果和整屏重画一致
+ */
+@RunWith(AndroidJUnit4.class)
+public class AudioRecordViewDrawTest {
+
+    private static final String TAG = "AudioRecordViewDrawTest";
+    private static final int WIDTH = 1080;
+    private static final int HEIGHT = 600;
+    private static final int FRAMES = 300;
+
+    @Test
+    public void drawFrame_allocatesNothingPerFrame() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        // 只设置尺寸，不启动渲染线程，由测试线程直接绘制
+        AudioRecordView view = newView(context, true);
+        for (int i = 0; i < 200; i++) {
+            view.setDecibel(40 + i % 40);
+        }
+        Canvas canvas = new Canvas(Bitmap.createBitmap(WIDTH, HEIGHT, Bitmap.Config.ARGB_8888));
+        // 第一帧分配波形坐标数组、测量标签宽度
+        view.drawFrame(canvas, System.nanoTime());
+
+        Debug.resetThreadAllocCount();
+        Debug.startAllocCounting();
+        long start = SystemClock.elapsedRealtimeNanos();
+        for (int i = 0; i < FRAMES; i++) {
+            view.drawFrame(canvas, System.nanoTime());
+        }
+        long elapsed = SystemClock.elapsedRealtimeNanos() - start;
+        Debug.stopAllocCounting();
+        Log.i(TAG, String.format("drawFrame: %.3f ms/frame", elapsed / 1e6 / FRAMES));
+        assertEquals(0, Debug.getThreadAllocCount());
+    }
+
+    @Test
+    public void incremental_matchesFullRedraw() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        AudioRecordView incremental = newView(context, true);
+        AudioRecordView full = newView(context, false);
+        Bitmap incrementalFrame = Bitmap.createBitmap(WIDTH, HEIGHT, Bitmap.Config.ARGB_8888);
+        Bitmap fullFrame = Bitmap.createBitmap(WIDTH, HEIGHT, Bitmap.Config.ARGB_8888);
+        Canvas incrementalCanvas = new Canvas(incrementalFrame);
+        Canvas fullCanvas = new Canvas(fullFrame);
+        long incrementalNanos = 0;
+        long fullNanos = 0;
+        // 超过一屏，让环形位图绕回几次
+        for (int i = 0; i < 1000; i++) {
+            double decibel = 30 + (i * 7) % 50;
+            incremental.setDecibel(decibel);
+            full.setDecibel(decibel);
+            long start = SystemClock.elapsedRealtimeNanos();
+            long frameTime = System.nanoTime();
+            incremental.drawFrame(incrementalCanvas, frameTime);
+            incrementalNanos += SystemClock.elapsedRealtimeNanos() - start;
+            start = SystemClock.elapsedRealtimeNanos();
+            full.drawFrame(fullCanvas, frameTime);
+            fullNanos += SystemClock.elapsedRealtimeNanos() - start;
+        }
+        Log.i(TAG, String.format("incremental %.3f ms/frame, full %.3f ms/frame",
+                incrementalNanos / 1e6 / 1000, fullNanos / 1e6 / 1000));
+
+        // 只比较波形区域中轴线左边，整屏重画的线段会超出波形区域
+        float density = context.getResources().getDisplayMetrics().density;
+        int top = (int) Math.ceil(DisplayKit.sp2px(10) * 1.5f + 7 * density) + 1;
+        int bottom = (int) (HEIGHT - 20 * density) - 1;
+        int different = 0;
+        int total = 0;
+        for (int y = top; y < bottom; y++) {
+            for (int x = 0; x < WIDTH / 2 - 2; x++) {
+                total++;
+                if (incrementalFrame.getPixel(x, y) != fullFrame.getPixel(x, y)) {
+                    different++;
+                }
+            }
+        }
+        assertTrue(different + " of " + total + " pixels differ", different <= total / 1000);
+    }
+
+    @Test
+    public void setWaveform_redrawsHistoryInFirstFrame() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        AudioRecordView before = newView(context, true);
+        RecordWaveform waveform = before.getWaveform();
+        Canvas canvas = new Canvas(Bitmap.createBitmap(WIDTH, HEIGHT, Bitmap.Config.ARGB_8888));
+        long frameTime = System.nanoTime();
+        for (int i = 0; i < 300; i++) {
+            waveform.appendDecibel(30 + (i * 7) % 50);
+            before.drawFrame(canvas, frameTime);
+        }
+        Bitmap expected = Bitmap.createBitmap(WIDTH, HEIGHT, Bitmap.Config.ARGB_8888);
+        before.drawFrame(new Canvas(expected), frameTime);
+
+        // 模拟旋转屏幕后新建的View接上同一份数据
+        AudioRecordView after = newView(context, true);
+        after.setWaveform(waveform);
+        Bitmap actual = Bitmap.createBitmap(WIDTH, HEIGHT, Bitmap.Config.ARGB_8888);
+        after.drawFrame(new Canvas(actual), frameTime);
+
+        int top = (int) (HEIGHT * 0.3f);
+        int bottom = (int) (HEIGHT * 0.7f);
+        for (int y = top; y < bottom; y++) {
+            for (int x = 0; x < WIDTH / 2; x++) {
+                assertEquals("pixel " + x + "," + y, expected.getPixel(x, y), actual.getPixel(x, y));
+            }
+        }
+    }
+
+    /**
+     * View里的Handler需要主线程的Looper，在主线程创建
+     */
+    private static AudioRecordView newView(Context context, boolean incremental) {
+        AudioRecordView[] view = new AudioRecordView[1];
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> {
+            view[0] = new AudioRecordView(context);
+            view[0].setIncrementalRendering(incremental);
+            view[0].onSurfaceTextureSizeChanged(null, WIDTH, HEIGHT);
+        });
+        return view[0];
+    }
+}
@@ -0,0 +1,90 @@
+package com.demo.recordaudio;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.os.Debug;
+import android.os.SystemClock;
+import android.text.TextPaint;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 刻度瓦片的缓存和淘汰，以及长时间录音后的每帧耗时
+ */
+@RunWith(AndroidJUnit4.class)
+public class RulerTileCacheTest {
+
+    private static final String TAG = "RulerTileCacheTest";
+    private static final int WIDTH = 1080;
+    private static final int ITEM_WIDTH = 20;
+    private static final int TILE_WIDTH = ITEM_WIDTH * RulerTileCache.TICKS_PER_TILE;
+    private static final int CAPACITY = 3;
+
+    private RulerTileCache mCache;
+    private Canvas mCanvas;
+
+    @Before
+    public void setUp() {
+        Paint rulerPaint = new Paint();
+        rulerPaint.setStrokeWidth(2);
+        TextPaint textPaint = new TextPaint();
+        textPaint.setTextSize(30);
+        mCache = new RulerTileCache(rulerPaint, textPaint, ITEM_WIDTH, 30, 20, 9, CAPACITY);
+        mCanvas = new Canvas(Bitmap.createBitmap(WIDTH, 100, Bitmap.Config.ARGB_8888));
+    }
+
+    @Test
+    public void draw_reusesCachedTiles() {
+        mCache.draw(mCanvas, WIDTH / 2, WIDTH);
+        int rendered = mCache.getRenderCount();
+        for (int i = 0; i < 100; i++) {
+            mCache.draw(mCanvas, WIDTH / 2 - i, WIDTH);
+        }
+        assertEquals(rendered, mCache.getRenderCount());
+    }
+
+    @Test
+    public void draw_evictsLeastRecentlyUsed() {
+        // 10小时，每个刻度0.1秒
+        long ticks = 10L * 3600 * 10;
+        for (long offset = 0; offset < ticks * ITEM_WIDTH; offset += WIDTH / 4) {
+            mCache.draw(mCanvas, -offset, WIDTH);
+            assertTrue(mCache.getTileCount() <= CAPACITY);
+        }
+        int tiles = (int) (ticks * ITEM_WIDTH / TILE_WIDTH);
+        assertTrue("rendered " + mCache.getRenderCount(), mCache.getRenderCount() <= tiles + 2);
+    }
+
+    @Test
+    public void draw_costIndependentOfSessionLength() {
+        float early = measureFrame(0);
+        float late = measureFrame(-10L * 3600 * 10 * ITEM_WIDTH);
+        Log.i(TAG, String.format("ruler: %.3f ms/frame at start, %.3f ms/frame after 10h", early, late));
+        assertTrue(late < early * 3 + 0.5f);
+    }
+
+    private float measureFrame(long baseOffset) {
+        // 先把用到的瓦片渲染好
+        mCache.draw(mCanvas, baseOffset, WIDTH);
+        mCache.draw(mCanvas, baseOffset - 50, WIDTH);
+        Debug.resetThreadAllocCount();
+        Debug.startAllocCounting();
+        long start = SystemClock.elapsedRealtimeNanos();
+        for (int i = 0; i < 50; i++) {
+            mCache.draw(mCanvas, baseOffset - i, WIDTH);
+        }
+        long elapsed = SystemClock.elapsedRealtimeNanos() - start;
+        Debug.stopAllocCounting();
+        assertEquals(0, Debug.getThreadAllocCount());
+        return elapsed / 1e6f / 50;
+    }
+}
@@ -0,0 +1,176 @@
+package com.demo.recordaudio;
+
+import android.os.Process;
+import android.util.Log;
+
+import com.demo.audiocore.PcmKernels;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ShortBuffer;
+
+/**
+ * @author : Zach
+ * @desc : 音频采集引擎，在独立的高优先级线程里读取PCM，按块计算RMS和峰值后写入LevelQueue
+ * @date : 2026/10/18 11:32
+ */
+public class AudioCaptureEngine {
+
+    private static final String TAG = "AudioCaptureEngine";
+
+    private final AudioSource mSource;
+    private final LevelQueue mLevelQueue;
+    /**
+     * 复用的采集缓冲区
+     */
+    private final ByteBuffer mBuffer;
+    /**
+     * mBuffer的short视图和拷贝目标，整块拷出来后交给PcmKernels计算
+     */
+    private final ShortBuffer mShortView;
+    private final short[] mSamples;
+
+    private volatile BlockListener mBlockListener;
+    private volatile LevelMeter mLevelMeter;
+    private volatile boolean mRunning;
+    private Thread mThread;
+    /**
+     * 已采集的帧数，用来计算音频时间
+     */
+    private volatile long mFramePosition;
+
+    public AudioCaptureEngine(AudioSource source, LevelQueue levelQueue) {
+        mSource = source;
+        mLevelQueue = levelQueue;
+        mBuffer = ByteBuffer.allocateDirect(source.getBufferSize()).order(ByteOrder.LITTLE_ENDIAN);
+        mShortView = mBuffer.asShortBuffer();
+        mSamples = new short[mShortView.capacity()];
+    }
+
+    /**
+     * 设置PCM数据回调，在采集线程调用，回调里不能做阻塞操作
+     */
+    public void setBlockListener(BlockListener blockListener) {
+        this.mBlockListener = blockListener;
+    }
+
+    /**
+     * 设置电平表，在采集线程按块计算
+     */
+    public void setLevelMeter(LevelMeter levelMeter) {
+        this.mLevelMeter = levelMeter;
+    }
+
+    public synchronized void start() {
+        if (mRunning) {
+            return;
+        }
+        mRunning = true;
+        mThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                Process.setThreadPriority(Process.THREAD_PRIORITY_URGENT_AUDIO);
+                loop();
+            }
+        }, "audio-capture");
+        mThread.setPriority(Thread.MAX_PRIORITY);
+        mThread.start();
+    }
+
+    /**
+     * 停止采集，等待采集线程退出
+     */
+    public synchronized void stop() {
+        if (mThread == null) {
+            return;
+        }
+        mRunning = false;
+        try {
+            mThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        mThread = null;
+    }
+
+    public void release() {
+        stop();
+        mSource.release();
+    }
+
+    public boolean isRunning() {
+        return mRunning;
+    }
+
+    /**
+     * 当前音频时间，单位纳秒
+     */
+    public long getPositionNanos() {
+        return mFramePosition * 1000000000L / mSource.getSampleRate();
+    }
+
+    private void loop() {
+        try {
+            mSource.start();
+        } catch (IOException e) {
+            Log.e(TAG, "start audio source failed", e);
+            mRunning = false;
+            return;
+        }
+        int frameSize = 2 * mSource.getChannelCount();
+        while (mRunning) {
+            mBuffer.clear();
+            int size = mSource.read(mBuffer, mBuffer.capacity());
+            if (size < 0) {
+                Log.w(TAG, "read audio source failed: " + size);
+                break;
+            }
+            if (size == 0) {
+                continue;
+            }
+            long timeNanos = getPositionNanos();
+            processBlock(size, timeNanos);
+            LevelMeter meter = mLevelMeter;
+            if (meter != null) {
+                meter.process(mBuffer, size);
+            }
+            BlockListener listener = mBlockListener;
+            if (listener != null) {
+                listener.onBlock(mBuffer, size, timeNanos);
+            }
+            mFramePosition += size / frameSize;
+        }
+        mSource.stop();
+        mRunning = false;
+    }
+
+    /**
+     * 计算一块数据的RMS和峰值
+     *
+     * @param size      字节数
+     * @param timeNanos 块起始的音频时间
+     */
+    private void processBlock(int size, long timeNanos) {
+        int count = size / 2;
+        if (count == 0) {
+            return;
+        }
+        mShortView.clear();
+        mShortView.get(mSamples, 0, count);
+        float rms = PcmKernels.rms(mSamples, 0, count);
+        int peak = PcmKernels.peak(mSamples, 0, count);
+        mLevelQueue.offer(rms, peak / PcmKernels.SHORT_FULL_SCALE, timeNanos);
+    }
+
+    public interface BlockListener {
+        /**
+         * 采集到一块PCM数据
+         *
+         * @param pcm       数据从position 0开始，只在回调期间有效
+         * @param size      字节数
+         * @param timeNanos 块起始的音频时间
+         */
+        void onBlock(ByteBuffer pcm, int size, long timeNanos);
+    }
+}
@@ -11,15 +11,19 @@ import android.graphics.Paint;
 import android.graphics.RectF;
 import android.util.AttributeSet;
 import android.view.MotionEvent;
+import android.view.ScaleGestureDetector;
 import android.view.View;
 
 import androidx.annotation.Nullable;
 
 import java.util.Random;
+import java.util.concurrent.Executor;
 
 /**
  * @author : Zach
- * @desc : 音频裁剪自定义View
+ * @desc : 音频裁剪自定义View。选区、指示器和可见范围都按毫秒保存，坐标只在绘制和触摸时换算，
+ * 音频多长都可以双指缩放到任意一段再拖动滑块；滑块拖到边缘时可见范围自动滚动。
+ * 波形只按可见范围向数据源查询屏幕宽度那么多列
  * @date : 2021/1/23 15:11
  */
 public class AudioClipView extends View {
@@ -29,8 +33,26 @@ public class AudioClipView extends View {
     private final int SCROLL_RIGHT_THUMB = 0X22;
     private final int SCROLL_CURSOR = 0X23;
 
+    private final int WAVE_COLOR = 0xFF666666;
+    private final int SELECTED_COLOR = 0x4446AA5F;
+
+    /**
+     * 没有设置时长时的默认值
+     */
     private final int DEFAULT_MAX_MILLISECOND = 120 * 1000;
     private final int DEFAULT_MIN_MILLISECOND = 5 * 1000;
+    /**
+     * 放到最大时可见范围的时长
+     */
+    private static final long MIN_VISIBLE_MILLISECOND = 1000;
+    /**
+     * 滑块离波形区域边缘多近时开始自动滚动，dp
+     */
+    private static final float EDGE_ZONE_DP = 24;
+    /**
+     * 贴边时每帧滚动可见范围的比例
+     */
+    private static final float EDGE_SCROLL_PER_FRAME = 0.02f;
     /**
      * 上下文
      */
@@ -91,19 +113,11 @@ public class AudioClipView extends View {
      * 波形线间隔
      */
     private int mWaveLineGap;
+    private float mLastX = 0f;
     /**
-     * 最小间隔时长对应的px
-     */
-    private float mMinIntervalPx = 200;
-    /**
-     * 最大间隔时长对应的px
+     * 按下滑块时手指和选区边界的距离，拖动时保持不变
      */
-    private float mMaxIntervalPx = 200;
-
-    private float mLastX = 0f;
-
-    private float minDuration = 0f;
-    private float durationPx = 0f;
+    private float mGrabOffset;
 
     private int mBackgroundColor;
     private int mCursorColor;
@@ -112,16 +126,89 @@ public class AudioClipView extends View {
     private float mBorderWidth = 6;
     private int mViewHeight;
 
-    private OnScrollListener mOnScrollListener;
+    /**
+     * 滑动回调每帧最多分发一次，移动时只记录最新值
+     */
+    private final ScrollEventCoalescer mScrollCoalescer = new ScrollEventCoalescer();
+    private boolean mFlushPosted;
+    private final Runnable mFlushScroll = new Runnable() {
+        @Override
+        public void run() {
+            mFlushPosted = false;
+            mScrollCoalescer.flush();
+        }
+    };
+
+    /**
+     * 波形数据源，为空时不显示真实波形
+     */
+    private PeakSource mPeakSource;
+    /**
+     * 整个音频对应的bin数，数据还在解码时比mPeakSource现有的多，已有的部分只画在左边对应的宽度里
+     */
+    private long mTotalBins = -1;
+    /**
+     * 每列波形的查询结果
+     */
+    private short[] mBarMin = new short[0];
+    private short[] mBarMax = new short[0];
+    /**
+     * 波形竖线的坐标，数据或尺寸变化时重新计算，onDraw里直接使用
+     */
+    private float[] mWaveLines = new float[0];
+    private int mWaveLineCount;
+    private boolean mWaveDirty = true;
+    /**
+     * 没有数据时的占位波形，固定种子，重算时保持不变
+     */
+    private final Random mPlaceholderRandom = new Random();
+    private Paint mWavePaint;
+    private final Matrix mLeftMatrix = new Matrix();
+    private final Matrix mRightMatrix = new Matrix();
 
     /**
-     * 最大时长 120s
+     * 音频总时长，毫秒
      */
-    private int mMaxMilliSecond = DEFAULT_MAX_MILLISECOND;
+    private long mDurationMs = DEFAULT_MAX_MILLISECOND;
     /**
-     * 最小时长 5s
+     * 选区最小时长 5s，超过总时长时按总时长
      */
     private int mMinMilliSecond = DEFAULT_MIN_MILLISECOND;
+    /**
+     * 可见范围，毫秒
+     */
+    private double mVisibleStartMs;
+    private double mVisibleEndMs = DEFAULT_MAX_MILLISECOND;
+    /**
+     * 选区和指示器，毫秒
+     */
+    private long mSelectStartMs;
+    private long mSelectEndMs = DEFAULT_MAX_MILLISECOND;
+    private long mCursorMs;
+    /**
+     * 双指缩放，上一次的焦点用来同时平移
+     */
+    private ScaleGestureDetector mScaleDetector;
+    private float mLastFocusX;
+    private float mEdgeZone;
+    /**
+     * 拖动滑块或指示器到边缘时每帧滚动可见范围
+     */
+    private final Runnable mEdgeScroller = new Runnable() {
+        @Override
+        public void run() {
+            if (mScrollState == SCROLL_NONE) {
+                return;
+            }
+            double delta = getEdgeScrollDelta(mLastX);
+            if (delta == 0) {
+                return;
+            }
+            setVisibleRangeInternal(mVisibleStartMs + delta, mVisibleEndMs + delta);
+            applyDrag(mLastX);
+            postOnAnimation(this);
+        }
+    };
 
     public AudioClipView(Context context) {
         super(context);
@@ -144,50 +231,77 @@ public class AudioClipView extends View {
         init();
     }
 
+    /**
+     * 设置波形数据，整个数据源对应整个时长
+     */
+    public void setPeakSource(PeakSource peakSource) {
+        setPeakSource(peakSource, -1);
+    }
+
+    /**
+     * 设置还没加载完的波形数据，已有的数据按totalBins的比例对应到时间轴的前面，后面留空
+     *
+     * @param totalBins 全部数据的bin数，小于等于0时按数据源现有的bin数对应整个时长
+     */
+    public void setPeakSource(PeakSource peakSource, long totalBins) {
+        this.mPeakSource = peakSource;
+        this.mTotalBins = totalBins;
+        invalidateWave();
+    }
+
+    /**
+     * 波形数据有变化，下一帧重新计算波形坐标
+     */
+    public void invalidateWave() {
+        mWaveDirty = true;
+        invalidate();
+    }
+
     public void setOnScrollListener(OnScrollListener mOnScrollListener) {
-        this.mOnScrollListener = mOnScrollListener;
+        mScrollCoalescer.setListener(mOnScrollListener);
+    }
+
+    /**
+     * 设置滑动回调的线程，监听里有耗时操作(比如seek)时可以放到后台，不影响拖动
+     *
+     * @param executor 为null时在主线程的下一帧回调
+     */
+    public void setScrollDispatchExecutor(Executor executor) {
+        mScrollCoalescer.setExecutor(executor);
     }
 
     private void updateThumbCallback(boolean isLeft) {
-        if (mOnScrollListener != null) {
-            float indexPx = mCursorRectF.left + mCursorWidth / 2;
-            int indexTime = (int) ((indexPx - getLeftBitmapWidth()) * mMaxMilliSecond / mMaxIntervalPx);
-            ScrollInfo info = new ScrollInfo();
-            if (isLeft) {
-                int startTime = (int) ((mLeftRectF.right - getLeftBitmapWidth()) * mMaxMilliSecond / mMaxIntervalPx);
-                info.setTime(startTime);
-                info.setPosition(mLeftRectF.right);
-            } else {
-                int endTime = (int) ((mRightRectF.left - getRightBitmapWidth()) * mMaxMilliSecond / mMaxIntervalPx);
-                info.setTime(endTime);
-                info.setPosition(mRightRectF.left);
-            }
-            mOnScrollListener.onScrollThumb(isLeft, info);
+        if (isLeft) {
+            mScrollCoalescer.offerThumb(true, (int) mSelectStartMs, mLeftRectF.right);
+        } else {
+            mScrollCoalescer.offerThumb(false, (int) mSelectEndMs, mRightRectF.left);
         }
+        scheduleScrollFlush();
     }
 
-    private void updateCursorCallback() {
-        if (mOnScrollListener != null) {
-            float indexPx = mCursorRectF.left + mCursorWidth / 2;
-            int indexTime = (int) ((indexPx - getLeftBitmapWidth()) * mMaxMilliSecond / mMaxIntervalPx);
-            ScrollInfo info = new ScrollInfo();
-            info.setTime(indexTime);
-            info.setPosition(indexPx);
-            mOnScrollListener.onScrollCursor(info);
+    private void updateCursorCallback(boolean fromUser) {
+        mScrollCoalescer.offerCursor((int) mCursorMs, mCursorRectF.left + mCursorWidth / 2, fromUser);
+        scheduleScrollFlush();
+    }
+
+    /**
+     * 下一帧分发这一帧里记录的移动
+     */
+    private void scheduleScrollFlush() {
+        if (!mFlushPosted) {
+            mFlushPosted = true;
+            postOnAnimation(mFlushScroll);
         }
     }
 
-    private void initPx() {
-        // 延时处理，保证mWidth > 0
-        postDelayed(new Runnable() {
-            @Override
-            public void run() {
-                if (getWidth() > 0) {
-                    mMaxIntervalPx = getWidth() - getLeftBitmapWidth() - getRightBitmapWidth();
-                    mMinIntervalPx = mMaxIntervalPx * mMinMilliSecond / mMaxMilliSecond;
-                }
-            }
-        }, 100);
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        //还没分发的移动立即分发，不丢最后的位置
+        removeCallbacks(mFlushScroll);
+        removeCallbacks(mEdgeScroller);
+        mFlushPosted = false;
+        mScrollCoalescer.flush();
     }
 
     private void init() {
@@ -202,19 +316,34 @@ public class AudioClipView extends View {
         mPaint.setStyle(Paint.Style.STROKE);
         mPaint.setColor(Color.WHITE);
         mPaint.setStrokeWidth(mBorderWidth);
+
+        mWavePaint = new Paint();
+        mWavePaint.setAntiAlias(true);
+        mWavePaint.setStyle(Paint.Style.STROKE);
+        mWavePaint.setStrokeCap(Paint.Cap.BUTT);
+        mWavePaint.setStrokeWidth(mWaveLineWidth);
+        mWavePaint.setColor(WAVE_COLOR);
         //todo 处理自定义属性，线的颜色，边界的切图
         mLeftBitmap = BitmapFactory.decodeResource(getContext().getResources(), mLeftBitmapId);
         mRightBitmap = BitmapFactory.decodeResource(getContext().getResources(), mRightBitmapId);
-        mLeftRectF.left = 0f;
-        mLeftRectF.right = getLeftBitmapWidth();
-        mRectF.left = mLeftRectF.right;
-        mCursorRectF.left = mLeftRectF.right - mCursorWidth / 2;
-        mCursorRectF.top = 0;
-        mCursorRectF.right = mLeftRectF.right + mCursorWidth / 2;
-        mCursorRectF.bottom = mViewHeight;
-        mWaveRectF.left = mLeftRectF.right;
-        mWaveRectF.top = mLeftRectF.top + mBorderWidth;
-        initPx();
+        mEdgeZone = DisplayKit.dp2px(EDGE_ZONE_DP);
+        mScaleDetector = new ScaleGestureDetector(mContext, new ScaleGestureDetector.SimpleOnScaleGestureListener() {
+            @Override
+            public boolean onScaleBegin(ScaleGestureDetector detector) {
+                //双指操作时不再拖动滑块
+                mScrollState = SCROLL_NONE;
+                mLastFocusX = detector.getFocusX();
+                return true;
+            }
+
+            @Override
+            public boolean onScale(ScaleGestureDetector detector) {
+                zoomAround(detector.getFocusX(), detector.getScaleFactor(), detector.getFocusX() - mLastFocusX);
+                mLastFocusX = detector.getFocusX();
+                return true;
+            }
+        });
+        updateRects();
     }
 
     /**
@@ -223,24 +352,96 @@ public class AudioClipView extends View {
      * @param minMilliSec
      */
     public void setMinInterval(int minMilliSec) {
-        if (minMilliSec >= DEFAULT_MIN_MILLISECOND && minMilliSec <= DEFAULT_MAX_MILLISECOND) {
+        if (minMilliSec > 0) {
             mMinMilliSecond = minMilliSec;
         }
-        initPx();
+        updateRects();
+        invalidate();
     }
 
     /**
-     * 设置最小时长，单位毫秒
+     * 设置音频总时长，单位毫秒
      *
      * @param maxMilliSec
+     * @see #setDuration(long)
      */
     public void setMaxInterval(int maxMilliSec) {
-        if (maxMilliSec >= DEFAULT_MIN_MILLISECOND && maxMilliSec <= DEFAULT_MAX_MILLISECOND) {
-            mMaxMilliSecond = maxMilliSec;
+        setDuration(maxMilliSec);
+    }
+
+    /**
+     * 设置音频总时长，不限长度。可见范围和选区重置为整个音频
+     *
+     * @param durationMs 毫秒，小于等于0时忽略
+     */
+    public void setDuration(long durationMs) {
+        if (durationMs <= 0) {
+            return;
+        }
+        mDurationMs = durationMs;
+        mVisibleStartMs = 0;
+        mVisibleEndMs = durationMs;
+        mSelectStartMs = 0;
+        mSelectEndMs = durationMs;
+        mCursorMs = 0;
+        updateRects();
+        invalidateWave();
+    }
+
+    public long getDuration() {
+        return mDurationMs;
+    }
+
+    /**
+     * 设置可见范围，会限制在[0, 时长]内，最短{@link #MIN_VISIBLE_MILLISECOND}
+     */
+    public void setVisibleRange(long startMs, long endMs) {
+        setVisibleRangeInternal(startMs, endMs);
+    }
+
+    public long getVisibleStart() {
+        return (long) mVisibleStartMs;
+    }
+
+    public long getVisibleEnd() {
+        return (long) mVisibleEndMs;
+    }
+
+    public long getSelectionStart() {
+        return mSelectStartMs;
+    }
+
+    public long getSelectionEnd() {
+        return mSelectEndMs;
+    }
+
+    private void setVisibleRangeInternal(double startMs, double endMs) {
+        double span = Math.min(Math.max(endMs - startMs, Math.min(MIN_VISIBLE_MILLISECOND, mDurationMs)), mDurationMs);
+        startMs = Math.max(0, Math.min(startMs, mDurationMs - span));
+        if (startMs == mVisibleStartMs && startMs + span == mVisibleEndMs) {
+            return;
         }
-        initPx();
+        mVisibleStartMs = startMs;
+        mVisibleEndMs = startMs + span;
+        updateRects();
+        invalidateWave();
     }
 
+    /**
+     * 以focusX对应的时间为中心缩放，同时按焦点的移动平移
+     *
+     * @param scale 大于1放大
+     */
+    private void zoomAround(float focusX, float scale, float panPx) {
+        float waveWidth = getWaveWidth();
+        if (waveWidth <= 0 || scale <= 0) {
+            return;
+        }
+        double focusMs = timeAt(focusX);
+        double span = (mVisibleEndMs - mVisibleStartMs) / scale;
+        double start = focusMs - (focusX - getLeftBitmapWidth()) / waveWidth * span - panPx * span / waveWidth;
+        setVisibleRangeInternal(start, start + span);
+    }
 
     /**
      * 更新指示器位置
@@ -249,23 +450,24 @@ public class AudioClipView extends View {
         if (getWidth() == 0) {// 布局还未测量
             return;
         }
-        float index = indexTime * mMaxIntervalPx / mMaxMilliSecond + getLeftBitmapWidth();
-        mCursorRectF.left = index - mCursorWidth / 2;
-        mCursorRectF.right = mCursorRectF.left + mCursorWidth;
-
-        if (index > mRightRectF.left) {
-            index = mRightRectF.left;
-            mCursorRectF.right = index + mCursorWidth / 2;
-            mCursorRectF.left = index - mCursorWidth / 2;
+        if (mScrollState == SCROLL_CURSOR) {// 手指正在拖动指示器
+            return;
+        }
+        mCursorMs = Math.min(Math.max((long) indexTime, mSelectStartMs), mSelectEndMs);
+        if (mScrollState == SCROLL_NONE && (mCursorMs < mVisibleStartMs || mCursorMs > mVisibleEndMs)) {
+            //播放到可见范围外时翻到指示器所在的一页
+            double span = mVisibleEndMs - mVisibleStartMs;
+            setVisibleRangeInternal(mCursorMs, mCursorMs + span);
         }
-        updateCursorCallback();
+        updateRects();
+        updateCursorCallback(false);
         invalidate();
-        if (index == mRightRectF.left) {
+        if (mCursorMs == mSelectEndMs) {
             postDelayed(new Runnable() {
                 @Override
                 public void run() {
                     moveCursorToStart();
-                    updateCursorCallback();
+                    updateCursorCallback(false);
                     invalidate();
                 }
             }, 20);
@@ -291,14 +493,120 @@ public class AudioClipView extends View {
     @Override
     protected void onSizeChanged(int w, int h, int oldw, int oldh) {
         super.onSizeChanged(w, h, oldw, oldh);
-        mRightRectF.right = Integer.valueOf(w).floatValue();
-        mRightRectF.left = mRightRectF.right - getRightBitmapWidth();
-        mRectF.right = mRightRectF.left;
-        mRectF.top = 0;
-        mRectF.bottom = Integer.valueOf(h).floatValue();
+        updateRects();
+        int columns = Math.max((int) (mWaveRectF.width() / mWaveLineWidth), 0);
+        mBarMin = new short[columns];
+        mBarMax = new short[columns];
+        mWaveLines = new float[(columns / 2 + 1) * 4];
+        mWaveDirty = true;
+    }
+
+    /**
+     * 按毫秒状态和可见范围计算滑块、选区和指示器的位置，移出可见范围的贴在边上
+     */
+    private void updateRects() {
+        int width = getWidth();
+        int height = getHeight();
+        float waveLeft = getLeftBitmapWidth();
+        float waveRight = Math.max(waveLeft, width - getRightBitmapWidth());
+        mWaveRectF.set(waveLeft, mBorderWidth, waveRight, height - mBorderWidth);
+
+        float selectLeft = clampX(xOf(mSelectStartMs));
+        float selectRight = clampX(xOf(mSelectEndMs));
+        mLeftRectF.set(selectLeft - getLeftBitmapWidth(), 0, selectLeft, height);
+        mRightRectF.set(selectRight, 0, selectRight + getRightBitmapWidth(), height);
+        mRectF.set(selectLeft, 0, selectRight, height);
+
+        float cursor = Math.min(Math.max(xOf(mCursorMs), selectLeft), selectRight);
+        mCursorRectF.set(cursor - mCursorWidth / 2, 0, cursor + mCursorWidth / 2, mViewHeight);
+    }
 
-        mWaveRectF.right = mRightRectF.left;
-        mWaveRectF.bottom = Integer.valueOf(h).floatValue() - mBorderWidth;
+    private float getWaveWidth() {
+        return Math.max(0, getWidth() - getLeftBitmapWidth() - getRightBitmapWidth());
+    }
+
+    /**
+     * 时间对应的x坐标，可能在波形区域外
+     */
+    private float xOf(double ms) {
+        double span = mVisibleEndMs - mVisibleStartMs;
+        if (span <= 0) {
+            return getLeftBitmapWidth();
+        }
+        return (float) (getLeftBitmapWidth() + (ms - mVisibleStartMs) * getWaveWidth() / span);
+    }
+
+    /**
+     * x坐标对应的时间，限制在可见范围内
+     */
+    private double timeAt(float x) {
+        float waveWidth = getWaveWidth();
+        if (waveWidth <= 0) {
+            return mVisibleStartMs;
+        }
+        float offset = Math.min(Math.max(x - getLeftBitmapWidth(), 0), waveWidth);
+        return mVisibleStartMs + offset * (mVisibleEndMs - mVisibleStartMs) / waveWidth;
+    }
+
+    private float clampX(float x) {
+        return Math.min(Math.max(x, getLeftBitmapWidth()), getLeftBitmapWidth() + getWaveWidth());
+    }
+
+    /**
+     * 选区的最小时长，音频比它短时按音频时长
+     */
+    private long getMinSelection() {
+        return Math.min(mMinMilliSecond, mDurationMs);
+    }
+
+    /**
+     * 计算波形竖线坐标，每隔一列画一根，线宽等于列宽。只查询可见范围对应的bin
+     */
+    private void buildWaveLines() {
+        mWaveDirty = false;
+        mWaveLineCount = 0;
+        int size = (int) (mWaveRectF.width() / mWaveLineWidth);
+        if (size <= 0 || size > mBarMax.length) {
+            return;
+        }
+        long binCount = mPeakSource == null ? 0 : mPeakSource.getBinCount();
+        long totalBins = Math.max(mTotalBins, binCount);
+        // 可见范围按时长比例换算成bin，至少一个bin
+        long startBin = (long) (mVisibleStartMs * totalBins / mDurationMs);
+        long endBin = Math.max(startBin + 1, (long) Math.ceil(mVisibleEndMs * totalBins / mDurationMs));
+        long span = endBin - startBin;
+        // 已加载的数据占的列数，按整列对齐，查询的区间不超过已有的bin
+        int filled = totalBins == 0 ? 0 : (int) Math.min(size, Math.max(0, (binCount - startBin) * size / span));
+        boolean hasPeaks = filled > 0
+                && mPeakSource.query(startBin, startBin + filled * span / size, filled, mBarMin, mBarMax) == filled;
+        mPlaceholderRandom.setSeed(size);
+        float halfHeight = mWaveRectF.height() / 2;
+        float left = mWaveRectF.left;
+        int index = 0;
+        for (int i = 0; i < size; i++) {
+            float right = left + mWaveLineWidth;
+            if (mPeakSource != null && i >= filled) {
+                //还没解码到的部分先空着
+                break;
+            }
+            int offset;
+            if (hasPeaks) {
+                // 振幅越大，上下留白越少
+                float amplitude = Math.max(Math.abs(mBarMin[i]), Math.abs(mBarMax[i])) / 32768f;
+                offset = (int) (mWaveLineGap + (halfHeight - mWaveLineGap) * (1 - amplitude));
+            } else {
+                offset = mPlaceholderRandom.nextInt(35) + mWaveLineGap;
+            }
+            if (i % 2 != 0) {
+                float x = (left + right) / 2;
+                mWaveLines[index++] = x;
+                mWaveLines[index++] = mWaveRectF.top + offset;
+                mWaveLines[index++] = x;
+                mWaveLines[index++] = mWaveRectF.bottom - offset;
+            }
+            left = right;
+        }
+        mWaveLineCount = index;
     }
 
     @Override
@@ -320,21 +628,15 @@ public class AudioClipView extends View {
         mPaint.setStyle(Paint.Style.FILL);
         mPaint.setColor(mBackgroundColor);
         canvas.drawRoundRect(0, 0, width, height, mRoundRadius, mRoundRadius, mPaint);
-        // 画音频波形
-        float left = mWaveRectF.left;
-        int size = (int) (mWaveRectF.width() / mWaveLineWidth);
-        mPaint.setColor(Color.parseColor("#666666"));
-        Random random = new Random();
-        for (int i = 0; i < size; i++) {
-            float right = left + mWaveLineWidth;
-            int offset = random.nextInt(35) + mWaveLineGap;
-            if (i % 2 != 0) {
-                canvas.drawRect(left, mWaveRectF.top + offset, right, mWaveRectF.bottom - offset, mPaint);
-            }
-            left = right;
+        // 画音频波形，坐标只在数据或尺寸变化时计算
+        if (mWaveDirty) {
+            buildWaveLines();
+        }
+        if (mWaveLineCount > 0) {
+            canvas.drawLines(mWaveLines, 0, mWaveLineCount, mWavePaint);
         }
 
-        mPaint.setColor(Color.parseColor("#4446AA5F"));
+        mPaint.setColor(SELECTED_COLOR);
         canvas.drawRect(mRectF.left, mRectF.top, mRectF.right, mRectF.bottom, mPaint);
 
         // 画指示器位置
@@ -348,16 +650,16 @@ public class AudioClipView extends View {
         canvas.drawLine(mRectF.left, height - mBorderWidth / 2, mRectF.right, height - mBorderWidth / 2, mPaint);
 
         //画左边界
-        Matrix matrix1 = new Matrix();
-        matrix1.postTranslate(mLeftRectF.left, 0);
-        matrix1.postScale(1, getHeight() / getLeftBitmapHeight(), mLeftRectF.left, 0);
-        canvas.drawBitmap(this.mLeftBitmap, matrix1, mPaint);
+        mLeftMatrix.reset();
+        mLeftMatrix.postTranslate(mLeftRectF.left, 0);
+        mLeftMatrix.postScale(1, getHeight() / getLeftBitmapHeight(), mLeftRectF.left, 0);
+        canvas.drawBitmap(this.mLeftBitmap, mLeftMatrix, mPaint);
 
         //画右边界
-        Matrix matrix2 = new Matrix();
-        matrix2.postTranslate(mRightRectF.right - getRightBitmapWidth(), 0);
-        matrix2.postScale(1, getHeight() / getRightBitmapHeight(), mRightRectF.right - getRightBitmapWidth(), 0);
-        canvas.drawBitmap(this.mRightBitmap, matrix2, mPaint);
+        mRightMatrix.reset();
+        mRightMatrix.postTranslate(mRightRectF.right - getRightBitmapWidth(), 0);
+        mRightMatrix.postScale(1, getHeight() / getRightBitmapHeight(), mRightRectF.right - getRightBitmapWidth(), 0);
+        canvas.drawBitmap(this.mRightBitmap, mRightMatrix, mPaint);
     }
 
     @Override
@@ -366,103 +668,112 @@ public class AudioClipView extends View {
         if (!isEnabled()) {
             return false;
         }
-        switch (event.getAction()) {
+        mScaleDetector.onTouchEvent(event);
+        if (mScaleDetector.isInProgress()) {
+            return true;
+        }
+        switch (event.getActionMasked()) {
             case MotionEvent.ACTION_DOWN:
                 //判断是否点击点在边界上，如果是则处理此次事件。
                 float downX = event.getX();
                 mLastX = downX;
-                if (downX > mLeftRectF.left && downX < mLeftRectF.left + getLeftBitmapWidth()) {
+                if (downX > mLeftRectF.left && downX < mLeftRectF.right) {
                     mScrollState = SCROLL_LEFT_THUMB;
-                    mLastX = downX;
+                    mGrabOffset = downX - mLeftRectF.right;
                     consumed = true;
-                } else if (downX > mRightRectF.right - getRightBitmapWidth() && downX < mRightRectF.right) {
+                } else if (downX > mRightRectF.left && downX < mRightRectF.right) {
                     mScrollState = SCROLL_RIGHT_THUMB;
-                    mLastX = downX;
+                    mGrabOffset = downX - mRightRectF.left;
                     consumed = true;
-                } else if (downX > mLeftRectF.left + getRightBitmapWidth() && downX < mRightRectF.right - getRightBitmapWidth()) {
+                } else if (downX > mWaveRectF.left && downX < mWaveRectF.right) {
                     mScrollState = SCROLL_CURSOR;
-                    mLastX = downX;
+                    mGrabOffset = 0;
                     consumed = true;
                 } else {
                     mScrollState = SCROLL_NONE;
                     consumed = false;
                 }
                 break;
+            case MotionEvent.ACTION_POINTER_DOWN:
+                //第二根手指按下，交给缩放处理
+                consumed = true;
+                break;
             case MotionEvent.ACTION_MOVE:
-                float moveX = event.getX();
-                float dx = moveX - mLastX;
-                if (mScrollState == SCROLL_LEFT_THUMB) {
-                    float newPadding = Math.max(mLeftRectF.left + dx, 0f);
-                    if (newPadding + getLeftBitmapWidth() < mRightRectF.right - getRightBitmapWidth()) {
-                        if (mRightRectF.right - getRightBitmapWidth() - newPadding - getLeftBitmapWidth() > mMinIntervalPx) {
-                            mLeftRectF.left = newPadding;
-                            mLeftRectF.right = newPadding + getRightBitmapWidth();
-                            moveCursorToStart();
-                            updateThumbCallback(true);
-                        } else {
-                            mLeftRectF.left = mRightRectF.right - getRightBitmapWidth() - mMinIntervalPx - getLeftBitmapWidth();
-                        }
-                    } else {
-                        mLeftRectF.left = mRightRectF.right - 2 * getRightBitmapWidth();
-                    }
-                    consumed = true;
-                } else if (mScrollState == SCROLL_RIGHT_THUMB) {
-                    float newPadding = Math.min(mRightRectF.right + dx, getWidth());
-                    if (newPadding - getRightBitmapWidth() > mLeftRectF.left + getLeftBitmapWidth()) {
-                        if (newPadding - getRightBitmapWidth() - mLeftRectF.left - getLeftBitmapWidth() > mMinIntervalPx) {
-                            mRightRectF.left = newPadding - getRightBitmapWidth();
-                            mRightRectF.right = newPadding;
-                            moveCursorToStart();
-                            updateThumbCallback(false);
-                        } else {
-                            mRightRectF.right = getRightBitmapWidth() + mLeftRectF.left + getLeftBitmapWidth() + mMinIntervalPx;
-                        }
-                    } else {
-                        mRightRectF.right = mLeftRectF.left + 2 * getLeftBitmapWidth();
-                    }
-                    consumed = true;
-                } else if (mScrollState == SCROLL_CURSOR) {
-                    mCursorRectF.left = moveX - mCursorWidth / 2;
-                    mCursorRectF.right = moveX + mCursorWidth / 2;
-                    consumed = true;
-                } else {
-                    consumed = false;
+                if (mScrollState == SCROLL_NONE) {
+                    break;
                 }
-                if (consumed) {
-                    mLastX = moveX;
-                    mRectF.left = mLeftRectF.left + getLeftBitmapWidth();
-                    mRectF.right = mRightRectF.right - getRightBitmapWidth();
-                    if (mCursorRectF.left + mCursorWidth / 2 < mLeftRectF.right) {
-                        mCursorRectF.left = mLeftRectF.right - mCursorWidth / 2;
-                        mCursorRectF.right = mCursorRectF.left + mCursorWidth;
-                    }
-                    if (mCursorRectF.right - mCursorWidth / 2 > mRightRectF.left) {
-                        mCursorRectF.right = mRightRectF.left + mCursorWidth / 2;
-                        mCursorRectF.left = mCursorRectF.right - mCursorWidth;
-                    }
-                    updateCursorCallback();
-                    invalidate();
+                mLastX = event.getX();
+                applyDrag(mLastX);
+                //贴边时开始自动滚动，离开边缘后mEdgeScroller自己停下
+                removeCallbacks(mEdgeScroller);
+                if (getEdgeScrollDelta(mLastX) != 0) {
+                    postOnAnimation(mEdgeScroller);
                 }
+                consumed = true;
                 break;
             case MotionEvent.ACTION_UP:
             case MotionEvent.ACTION_CANCEL:
                 //这里不考虑长按等事件，简单处理。 有需要可以再处理。
                 consumed = true;
                 mScrollState = SCROLL_NONE;
+                removeCallbacks(mEdgeScroller);
                 break;
         }
         return consumed;
     }
 
     /**
-     * 移动指示器到最左边
+     * 按手指位置移动正在拖动的滑块或指示器
+     */
+    private void applyDrag(float x) {
+        long time = Math.round(timeAt(x - mGrabOffset));
+        if (mScrollState == SCROLL_LEFT_THUMB) {
+            mSelectStartMs = Math.max(0, Math.min(time, mSelectEndMs - getMinSelection()));
+            moveCursorToStart();
+            updateThumbCallback(true);
+        } else if (mScrollState == SCROLL_RIGHT_THUMB) {
+            mSelectEndMs = Math.min(mDurationMs, Math.max(time, mSelectStartMs + getMinSelection()));
+            moveCursorToStart();
+            updateThumbCallback(false);
+        } else if (mScrollState == SCROLL_CURSOR) {
+            mCursorMs = Math.min(Math.max(time, mSelectStartMs), mSelectEndMs);
+            updateRects();
+        } else {
+            return;
+        }
+        updateCursorCallback(true);
+        invalidate();
+    }
+
+    /**
+     * 手指在波形区域边缘时每帧滚动的毫秒数，越靠外越快，已经滚到头时返回0
+     */
+    private double getEdgeScrollDelta(float x) {
+        if (mEdgeZone <= 0) {
+            return 0;
+        }
+        float edgeX = x - mGrabOffset;
+        double step = (mVisibleEndMs - mVisibleStartMs) * EDGE_SCROLL_PER_FRAME;
+        float leftDepth = (mWaveRectF.left + mEdgeZone - edgeX) / mEdgeZone;
+        if (leftDepth > 0 && mVisibleStartMs > 0) {
+            return -step * Math.min(leftDepth, 1);
+        }
+        float rightDepth = (edgeX - (mWaveRectF.right - mEdgeZone)) / mEdgeZone;
+        if (rightDepth > 0 && mVisibleEndMs < mDurationMs) {
+            return step * Math.min(rightDepth, 1);
+        }
+        return 0;
+    }
+
+    /**
+     * 移动指示器到选区开始
      */
     private void moveCursorToStart() {
+        mCursorMs = mSelectStartMs;
+        updateRects();
         if (getWidth() == 0) {
             return;
         }
-        mCursorRectF.left = mLeftRectF.right - mCursorWidth / 2;
-        mCursorRectF.right = mCursorRectF.left + mCursorWidth;
         invalidate();
     }
 
@@ -496,9 +807,13 @@ public class AudioClipView extends View {
         return mRectF.right;
     }
 
-    public class ScrollInfo {
+    /**
+     * 滑动信息，回调时传入的对象会被复用，只在回调期间有效，需要保存时自行拷贝
+     */
+    public static class ScrollInfo {
         private int time; //对应时间,毫秒
         private float position; //位置,px
+        private boolean fromUser; //是否由手指拖动产生，updateCursor移动时为false
 
         public int getTime() {
             return time;
@@ -516,11 +831,20 @@ public class AudioClipView extends View {
             this.position = position;
         }
 
+        public boolean isFromUser() {
+            return fromUser;
+        }
+
+        public void setFromUser(boolean fromUser) {
+            this.fromUser = fromUser;
+        }
+
         @Override
         public String toString() {
             return "ScrollInfo{" +
                     "time=" + time +
                     ", position=" + position +
+                    ", fromUser=" + fromUser +
                     '}';
         }
     }
@@ -534,7 +858,7 @@ public class AudioClipView extends View {
         void onScrollThumb(boolean isLeftThumb, ScrollInfo info);
 
         /**
-         * 手动去滑动指示器
+         * 指示器移动，手动拖动和updateCursor都会回调，用{@link ScrollInfo#isFromUser()}区分
          *
          * @param info 滑动信息
          */
@@ -0,0 +1,42 @@
+package com.demo.recordaudio;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * @author : Zach
+ * @desc : 音频解码器，按块输出16bit交错PCM。手机上用MediaCodec解码AAC/M4A等压缩格式，
+ * JVM测试和WAV文件直接读PCM
+ * @date : 2026/10/19 11:05
+ */
+public interface AudioDecoder extends Closeable {
+
+    /**
+     * 采样率，压缩格式在第一次read之后才能确定(比如HE-AAC实际输出的采样率是文件里写的两倍)
+     */
+    int getSampleRate();
+
+    int getChannelCount();
+
+    /**
+     * 文件里记录的时长，单位微秒，未知时返回-1
+     */
+    long getDurationUs();
+
+    /**
+     * 解码下一块数据，阻塞到有数据或者结束
+     *
+     * @param buffer 输出的16bit交错PCM
+     * @param offset 起始位置
+     * @param length 最多写入的采样数
+     * @return 写入的采样数，总是声道数的整数倍；-1表示已经结束
+     */
+    int read(short[] buffer, int offset, int length) throws IOException;
+
+    /**
+     * 跳到指定的帧，下一次read从这一帧开始输出，超出结尾时read返回-1
+     *
+     * @param frame 按当前采样率计算的帧序号
+     */
+    void seekTo(long frame) throws IOException;
+}
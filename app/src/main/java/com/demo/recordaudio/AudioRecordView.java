@@ -8,12 +8,15 @@ import android.os.Handler;
 import android.os.Message;
 import android.text.TextPaint;
 import android.util.AttributeSet;
-import android.util.Log;
+import android.util.DisplayMetrics;
+import android.util.TypedValue;
+import android.view.Display;
+import android.view.GestureDetector;
+import android.view.MotionEvent;
+import android.view.ScaleGestureDetector;
 import android.view.TextureView;
+import android.widget.OverScroller;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Random;
 
 /**
  * @author : Zach
@@ -35,6 +38,27 @@ public class AudioRecordView extends TextureView implements TextureView.SurfaceT
     private final float DEFAULT_LARGER_RULER_HEIGHT = DisplayKit.dp2px(7f);
     private final float DEFAULT_WAVE_WIDTH = DisplayKit.dp2px(1.8f);
     private final float DEFAULT_DECIBEL_HEIGHT = DisplayKit.dp2px(20f);
+    /**
+     * 屏幕外保留的波形个数，100ms一个，约1分钟
+     */
+    private final int DEFAULT_WAVE_SCROLLBACK = 600;
+    /**
+     * 刷新间隔，单位ms，只影响录音时间回调，不影响滚动的流畅度
+     */
+    private final int DEFAULT_TICK_INTERVAL = 100;
+    /**
+     * 电平表的格数和显示范围，-60dBFS到0dBFS
+     */
+    private static final int METER_SEGMENTS = 35;
+    private static final float METER_RANGE_DB = 60f;
+    /**
+     * 每列波形和每个刻度对应的时长
+     */
+    private static final long COLUMN_NANOS = RecordWaveform.COLUMN_NANOS;
+    /**
+     * 最大缩放级别，一个刻度约7分钟，一屏能看完十几个小时
+     */
+    private static final int MAX_ZOOM_LEVEL = 12;
 
     /**
      * 刻度
@@ -57,6 +81,17 @@ public class AudioRecordView extends TextureView implements TextureView.SurfaceT
     private float waveSpace = DisplayKit.dp2px(2.8f);
 
     private float mDecibelHeight = DEFAULT_DECIBEL_HEIGHT;
+    /**
+     * 绘制时用到的dp值，创建时按屏幕密度换算好，不在每帧里换算
+     */
+    private float mMaxWaveHeight;
+    private float mCursorRadius;
+    private float mMeterGap;
+    private float mMeterPadding;
+    /**
+     * 量化分贝转波形高度的查找表，只在渲染线程使用，最大高度变化时重建
+     */
+    private final DecibelHeightTable mHeightTable = new DecibelHeightTable();
 
     /**
      * 波形区域画笔
@@ -76,30 +111,161 @@ public class AudioRecordView extends TextureView implements TextureView.SurfaceT
      * 初始化偏移量
      */
 
-    private float mInitPix;
+    private int mInitPix;
     /**
-     * 移动偏移量
+     * 单个刻度（也就是一列波形）的宽度
      */
-    private float mPixOffset = 0;//移动/滑动的距离，绘制的时候需要根据这个值来确定位置
+    private int mItemWidth;
+    private boolean mRunning;
 
     /**
-     * 每秒有多少个像素
+     * 波形数据和滚动时钟，可以由录音会话提供，界面重建后接上继续画
+     */
+    private RecordWaveform mWaveform = new RecordWaveform();
+    /**
+     * 离屏缓存对应的波形数据和清空次数，不一致时整屏重画，只在渲染线程使用
+     */
+    private RecordWaveform mStripWaveform;
+    private int mStripGeneration;
+    /**
+     * 波形线段坐标，每个波形4个float，复用避免每帧分配
+     */
+    private float[] mWaveLines = new float[0];
+    /**
+     * 缩放级别，每列波形对应2^level列数据，0表示不缩放
+     */
+    private int mZoomLevel;
+    /**
+     * 用户拖动后中轴线对应的数据列，小于0表示跟随录音自动滚动
+     */
+    private double mScrubColumn = -1;
+    /**
+     * 拖动、惯性滑动和双指缩放，只在UI线程使用
+     */
+    private GestureDetector mGestureDetector;
+    private ScaleGestureDetector mScaleDetector;
+    private OverScroller mScroller;
+    /**
+     * 双指缩放累计的比例，超过2倍时缩放一级
+     */
+    private float mScaleAccum = 1;
+    /**
+     * 惯性滑动，每个vsync推进一次
+     */
+    private final Runnable mFlingRunnable = new Runnable() {
+        @Override
+        public void run() {
+            if (!mScroller.computeScrollOffset()) {
+                return;
+            }
+            boolean reachedLive;
+            synchronized (mStateLock) {
+                double column = (double) mScroller.getCurrX() * (1L << mZoomLevel) / mItemWidth;
+                reachedLive = !setScrubColumn(column);
+            }
+            refreshCanvas();
+            if (reachedLive) {
+                mScroller.forceFinished(true);
+            } else {
+                postOnAnimation(this);
+            }
+        }
+    };
+    /**
+     * 历史瓦片从磁盘加载完后重画
+     */
+    private final WaveTileStore.Listener mTileListener = new WaveTileStore.Listener() {
+        @Override
+        public void onTileLoaded() {
+            refreshCanvas();
+        }
+    };
+    /**
+     * 查询历史的结果，只在渲染线程使用
+     */
+    private short[] mZoomMin = new short[0];
+    private short[] mZoomMax = new short[0];
+    /**
+     * 当前帧要画的波形个数，只在渲染线程使用
+     */
+    private int mFrameWaveCount;
+    /**
+     * 是否增量绘制波形：旧的列留在离屏位图里，每帧只画新来的数据。缩放时总是整屏重画
      */
-    private float mPixSecond = 0;//每秒有多少个像素，s/px
+    private boolean mIncremental = true;
+    /**
+     * 当前帧是否走增量绘制，以及要追加的数据，只在渲染线程使用
+     */
+    private boolean mFrameIncremental;
+    private short[] mFrameNewWave = new short[0];
+    private int mFrameNewCount;
+    private long mFrameAppended;
+    /**
+     * 波形离屏缓存，只在渲染线程使用
+     */
+    private WaveStripCache mWaveStrip;
+    /**
+     * 当前帧的偏移量，只在渲染线程使用
+     */
+    private long mFramePixOffset;
+    /**
+     * 当前帧最新一列波形离中轴线的像素，只在渲染线程使用
+     */
+    private int mFrameShift;
+    /**
+     * Surface的宽高
+     */
+    private int mViewWidth;
+    private int mViewHeight;
 
     /**
-     * 当前时间秒数（中轴线时间）
+     * 保护UI线程写入、渲染线程读取的状态：mWaveform、mZoomLevel、mScrubColumn、mViewWidth、mViewHeight
      */
-    private float mCurrentSecond = 0;
+    private final Object mStateLock = new Object();
     /**
-     * 当前分贝值
+     * 渲染线程，Surface可用时创建，销毁时退出
      */
-    private int mDecibel;
+    private RenderThread mRenderThread;
+    private final RenderThread.Renderer mRenderer = new RenderThread.Renderer() {
+        @Override
+        public void onDrawFrame(Canvas canvas, long frameTimeNanos) {
+            long start = System.nanoTime();
+            drawFrame(canvas, frameTimeNanos);
+            mMetrics.onFrameDrawn(System.nanoTime() - start, mFrameIntervalNanos);
+        }
+    };
 
     /**
-     * 波形数据集合
+     * 帧耗时、刷新抖动等指标，默认不记录
+     */
+    private volatile RecordMetrics mMetrics = RecordMetrics.NONE;
+    /**
+     * 屏幕刷新间隔，Surface可用时按屏幕刷新率计算
      */
-    private List<Integer> mWaveDataList = new ArrayList<>();
+    private volatile long mFrameIntervalNanos = 1000000000L / 60;
+    /**
+     * 上一次刷新的时间，用来计算抖动，0表示还没开始
+     */
+    private long mLastTickNanos;
+
+    /**
+     * 刻度瓦片，只在渲染线程使用，宽度变化时重建
+     */
+    private RulerTileCache mRulerTiles;
+    private int mRulerTilesWidth;
+    private int mRulerTilesZoom;
+    /**
+     * 当前帧的缩放级别，只在渲染线程使用
+     */
+    private int mFrameZoomLevel;
+    /**
+     * 录音时间的字符，只在UI线程使用
+     */
+    private final char[] mRecordedTimeChars = new char[TimecodeFormatter.MAX_LENGTH];
+    /**
+     * 上一次回调的秒数，秒数不变时不回调
+     */
+    private int mLastRecordedSecond = -1;
 
     /**
      * 波形画笔
@@ -109,6 +275,11 @@ public class AudioRecordView extends TextureView implements TextureView.SurfaceT
      * 波形画笔
      */
     private Paint mDecibelPaint;
+    /**
+     * 电平表和读取结果，结果只在渲染线程使用
+     */
+    private volatile LevelMeter mLevelMeter;
+    private final LevelMeter.Snapshot mMeterSnapshot = new LevelMeter.Snapshot();
     /**
      * 波形颜色
      */
@@ -117,14 +288,31 @@ public class AudioRecordView extends TextureView implements TextureView.SurfaceT
     private Handler mHandler = new Handler() {
         @Override
         public void handleMessage(Message msg) {
-            mPixOffset -= (mRulerWidth + mRulerSpace) / 2;
-            int max = (int) DisplayKit.dp2px(20f);
-            int min = (int) DisplayKit.dp2px(10f);
-            Random random = new Random();
-            int s = random.nextInt(max) % (max - min + 1) + min;
-            setDecibel(s);
+            long now = System.nanoTime();
+            if (mLastTickNanos != 0) {
+                mMetrics.onTick(now - mLastTickNanos - DEFAULT_TICK_INTERVAL * 1000000L);
+            }
+            mLastTickNanos = now;
+            long position;
+            int waveSize;
+            RecordWaveform waveform = mWaveform;
+            synchronized (waveform) {
+                //没有Surface时渲染线程不取数据，由这里取
+                waveform.drainLevels();
+                position = waveform.getPosition(now);
+                waveSize = waveform.getWave().size();
+            }
+            mMetrics.onWaveBufferSize(waveSize);
             refreshCanvas();
-            mHandler.sendEmptyMessageDelayed(100, 100);
+            if (mOnRecordListener != null) {
+                int seconds = (int) (position / 1000000000L);
+                if (seconds != mLastRecordedSecond) {
+                    mLastRecordedSecond = seconds;
+                    int length = TimecodeFormatter.formatLong(seconds, mRecordedTimeChars);
+                    mOnRecordListener.onRecordedTime(mRecordedTimeChars, length);
+                }
+            }
+            mHandler.sendEmptyMessageDelayed(100, DEFAULT_TICK_INTERVAL);
             super.handleMessage(msg);
         }
     };
@@ -133,18 +321,21 @@ public class AudioRecordView extends TextureView implements TextureView.SurfaceT
         super(context);
         setSurfaceTextureListener(this);
         initPaint();
+        initGesture(context);
     }
 
     public AudioRecordView(Context context, AttributeSet attrs) {
         super(context, attrs);
         setSurfaceTextureListener(this);
         initPaint();
+        initGesture(context);
     }
 
     public AudioRecordView(Context context, AttributeSet attrs, int defStyleAttr) {
         super(context, attrs, defStyleAttr);
         setSurfaceTextureListener(this);
         initPaint();
+        initGesture(context);
     }
 
     /**
@@ -158,52 +349,127 @@ public class AudioRecordView extends TextureView implements TextureView.SurfaceT
     }
 
     public void reset() {
-        mWaveDataList.clear();
-        mPixOffset = mInitPix;
+        mWaveform.reset();
+        followLive();
         refreshCanvas();
     }
 
     /**
-     * 波纹算法
+     * 设置分贝
      *
      * @param decibel
-     * @return
      */
-    public double getValue(double decibel) {
-        double y;
-        if (decibel <= -15) {
-            y = new Random().nextInt(2);
-        } else {
-            decibel = (decibel) / 10;
-            y = 3.5 * decibel * decibel - 32;
+    public void setDecibel(double decibel) {
+        mWaveform.appendDecibel(decibel);
+        refreshCanvas();
+    }
+
+    /**
+     * 设置电平表，底部的电平条只读取它最近一次的结果
+     *
+     * @param levelMeter 为null时电平条不亮
+     */
+    public void setLevelMeter(LevelMeter levelMeter) {
+        this.mLevelMeter = levelMeter;
+        refreshCanvas();
+    }
+
+    /**
+     * 设置电平来源，每次刷新时从队列取出采集线程算好的电平
+     *
+     * @param levelQueue 为null时显示静音
+     */
+    public void setLevelQueue(LevelQueue levelQueue) {
+        mWaveform.setLevelQueue(levelQueue);
+    }
+
+    /**
+     * 接上外部持有的波形数据，比如录音会话的，下一帧直接按已有的数据画出来
+     */
+    public void setWaveform(RecordWaveform waveform) {
+        synchronized (mStateLock) {
+            mWaveform.getHistory().setListener(null);
+            mWaveform = waveform;
+            if (isAttachedToWindow()) {
+                waveform.getHistory().setListener(mTileListener);
+            }
+            if (mViewWidth > 0) {
+                waveform.ensureCapacity(getWaveCapacity(mViewWidth));
+            }
         }
+        refreshCanvas();
+    }
+
+    public RecordWaveform getWaveform() {
+        return mWaveform;
+    }
 
-        if (y < 1) {
-            y = 1;
+    /**
+     * 设置缩放级别，中轴线对应的时间不变
+     *
+     * @param zoomLevel 每列波形对应2^zoomLevel列数据，0~{@link #MAX_ZOOM_LEVEL}
+     */
+    public void setZoomLevel(int zoomLevel) {
+        synchronized (mStateLock) {
+            mZoomLevel = Math.max(0, Math.min(zoomLevel, MAX_ZOOM_LEVEL));
         }
-        Log.i("deb", "y=" + y);
-        /**
-         * 这个高度换机器要做适配
-         */
-        if (y > DisplayKit.dp2px(130)) {
-            y = DisplayKit.dp2px(130);
+        refreshCanvas();
+    }
+
+    public int getZoomLevel() {
+        synchronized (mStateLock) {
+            return mZoomLevel;
         }
-        return y;
     }
 
     /**
-     * 设置分贝
-     *
-     * @param decibel
+     * 是否跟随录音自动滚动，拖到历史位置后为false，拖回最新位置后恢复
      */
-    public void setDecibel(double decibel) {
-        this.mDecibel = (int) getValue(decibel);
-        int max = 20;
-        int min = 3;
-        Random random = new Random();
-        int s = random.nextInt(max) % (max - min + 1) + min;
-        mWaveDataList.add(0, this.mDecibel);
-        invalidate();
+    public boolean isFollowingLive() {
+        synchronized (mStateLock) {
+            return mScrubColumn < 0;
+        }
+    }
+
+    /**
+     * 停止惯性滑动，回到最新位置继续自动滚动
+     */
+    public void followLive() {
+        if (mScroller != null) {
+            mScroller.forceFinished(true);
+        }
+        synchronized (mStateLock) {
+            mScrubColumn = -1;
+        }
+        refreshCanvas();
+    }
+
+    /**
+     * 设置是否增量绘制波形，关闭后每帧整屏重画，用来对比和排查问题
+     */
+    public void setIncrementalRendering(boolean incremental) {
+        synchronized (mStateLock) {
+            mIncremental = incremental;
+        }
+        refreshCanvas();
+    }
+
+    /**
+     * 录音过程的峰值数据
+     */
+    public PeakSource getPeakSource() {
+        return mWaveform.getHistory();
+    }
+
+    /**
+     * 设置指标收集，传null时不记录
+     */
+    public void setMetrics(RecordMetrics metrics) {
+        this.mMetrics = metrics == null ? RecordMetrics.NONE : metrics;
+    }
+
+    public RecordMetrics getMetrics() {
+        return mMetrics;
     }
 
     public void setOnRecordListener(OnRecordListener mOnRecordListener) {
@@ -211,11 +477,30 @@ public class AudioRecordView extends TextureView implements TextureView.SurfaceT
     }
 
     public void start() {
+        mLastTickNanos = 0;
+        mLastRecordedSecond = -1;
+        synchronized (mStateLock) {
+            mRunning = true;
+        }
+        mWaveform.start(System.nanoTime());
+        RenderThread renderThread = mRenderThread;
+        if (renderThread != null) {
+            renderThread.setContinuous(true);
+        }
         mHandler.sendEmptyMessage(100);
     }
 
     public void stop() {
         mHandler.removeCallbacksAndMessages(null);
+        synchronized (mStateLock) {
+            mRunning = false;
+        }
+        mWaveform.pause(System.nanoTime());
+        RenderThread renderThread = mRenderThread;
+        if (renderThread != null) {
+            renderThread.setContinuous(false);
+        }
+        refreshCanvas();
     }
 
 
@@ -249,152 +534,332 @@ public class AudioRecordView extends TextureView implements TextureView.SurfaceT
         mAreaPaint.setAntiAlias(true);
         mDecibelPaint = new Paint();
         mDecibelPaint.setAntiAlias(true);
+
+        mItemWidth = (int) (mRulerWidth + mRulerSpace);//单个view的宽度，表示0.1秒
+
+        DisplayMetrics metrics = getResources().getDisplayMetrics();
+        mMaxWaveHeight = TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_DIP, 130, metrics);
+        mCursorRadius = TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_DIP, 3, metrics);
+        mMeterGap = TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_DIP, 3, metrics);
+        mMeterPadding = TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_DIP, 2, metrics);
     }
 
     /**
-     * 刷新视图
+     * 单指拖动翻看历史，松手后按速度惯性滑动，双指缩放。录音在后台照常追加，拖回最新位置后恢复自动滚动
      */
-    private void refreshCanvas() {
-        Canvas canvas = lockCanvas();
-        if (canvas != null) {
-            canvas.drawColor(0xFF101010);//画背景、由于TextureView不支持直接设置背景颜色，只能按这种方式
-            drawTextAndRuler(canvas);//画文本和刻度
-            drawRecodeArea(canvas);//画有效区域
-            drawCenterLine(canvas);//画中间标线
-            drawDecibel(canvas);//画中间标线
-        }
-        unlockCanvasAndPost(canvas);
-        if (mOnRecordListener != null) {
-            mOnRecordListener.onRecordedTime(toTime((int) mCurrentSecond / 10));
+    private void initGesture(Context context) {
+        mScroller = new OverScroller(context);
+        mGestureDetector = new GestureDetector(context, new GestureDetector.SimpleOnGestureListener() {
+            @Override
+            public boolean onDown(MotionEvent e) {
+                mScroller.forceFinished(true);
+                return true;
+            }
+
+            @Override
+            public boolean onSingleTapUp(MotionEvent e) {
+                performClick();
+                return true;
+            }
+
+            @Override
+            public boolean onScroll(MotionEvent e1, MotionEvent e2, float distanceX, float distanceY) {
+                if (mScaleDetector.isInProgress()) {
+                    return false;
+                }
+                synchronized (mStateLock) {
+                    double column = getCenterColumn(System.nanoTime());
+                    setScrubColumn(column + (double) distanceX * (1L << mZoomLevel) / mItemWidth);
+                }
+                refreshCanvas();
+                return true;
+            }
+
+            @Override
+            public boolean onFling(MotionEvent e1, MotionEvent e2, float velocityX, float velocityY) {
+                if (mScaleDetector.isInProgress()) {
+                    return false;
+                }
+                synchronized (mStateLock) {
+                    if (mScrubColumn < 0) {
+                        return false;
+                    }
+                    //按当前缩放下的像素滑动，最新位置作为右边界
+                    long binsPerColumn = 1L << mZoomLevel;
+                    int start = (int) (mScrubColumn * mItemWidth / binsPerColumn);
+                    int max = (int) (getLiveColumn(System.nanoTime()) * mItemWidth / binsPerColumn);
+                    mScroller.fling(start, 0, (int) -velocityX, 0, 0, max, 0, 0);
+                }
+                postOnAnimation(mFlingRunnable);
+                return true;
+            }
+        });
+        mScaleDetector = new ScaleGestureDetector(context, new ScaleGestureDetector.SimpleOnScaleGestureListener() {
+            @Override
+            public boolean onScaleBegin(ScaleGestureDetector detector) {
+                mScroller.forceFinished(true);
+                mScaleAccum = 1;
+                return true;
+            }
+
+            @Override
+            public boolean onScale(ScaleGestureDetector detector) {
+                mScaleAccum *= detector.getScaleFactor();
+                if (mScaleAccum >= 2) {
+                    //两指张开，放大
+                    mScaleAccum /= 2;
+                    setZoomLevel(getZoomLevel() - 1);
+                } else if (mScaleAccum <= 0.5f) {
+                    mScaleAccum *= 2;
+                    setZoomLevel(getZoomLevel() + 1);
+                }
+                return true;
+            }
+        });
+    }
+
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        mScaleDetector.onTouchEvent(event);
+        mGestureDetector.onTouchEvent(event);
+        return true;
+    }
+
+    @Override
+    public boolean performClick() {
+        return super.performClick();
+    }
+
+    /**
+     * 最新数据对应的列，按时钟算，有小数。需要持有mStateLock
+     */
+    private double getLiveColumn(long nowNanos) {
+        return (double) mWaveform.getPosition(nowNanos) / COLUMN_NANOS;
+    }
+
+    /**
+     * 中轴线对应的列，需要持有mStateLock
+     */
+    private double getCenterColumn(long nowNanos) {
+        return mScrubColumn < 0 ? getLiveColumn(nowNanos) : mScrubColumn;
+    }
+
+    /**
+     * 把中轴线移到指定的列，到达或者超过最新位置时恢复自动滚动。需要持有mStateLock
+     *
+     * @return 是否停在历史位置
+     */
+    private boolean setScrubColumn(double column) {
+        if (column >= getLiveColumn(System.nanoTime())) {
+            mScrubColumn = -1;
+            return false;
         }
+        mScrubColumn = Math.max(0, column);
+        return true;
     }
 
-    private void drawRecodeArea(Canvas canvas) {
-        mAreaPaint.setColor(mAreaBg);
-        canvas.drawRect(0, mTextSize * 1.5f + mRulerHeightBig, getWidth(), getHeight() - mDecibelHeight, mAreaPaint);
-        for (int i = 0; i < mWaveDataList.size(); i++) {
-            float x = (getWidth() / 2 - (i * mRulerSpace));
-            int y = mWaveDataList.get(i);
-            canvas.drawLine(x, getHeight() / 2, x, getHeight() / 2 - y, mWavePaint);
-            canvas.drawLine(x, getHeight() / 2, x, getHeight() / 2 + y, mWavePaint);
+    /**
+     * 请求刷新视图，实际绘制在渲染线程的下一个vsync进行，不会阻塞调用线程
+     */
+    private void refreshCanvas() {
+        RenderThread renderThread = mRenderThread;
+        if (renderThread != null) {
+            renderThread.requestRender();
         }
     }
 
     /**
-     * 画文本和刻度
+     * 渲染线程绘制一帧，只在持锁期间拷贝状态，绘制时不持锁。
+     * 滚动位置按帧时间从时钟算出来，取整到像素，刻度和波形用同一个值
      *
-     * @param canvas
+     * @param frameTimeNanos vsync时间，和System.nanoTime同一个时钟
      */
-
-    private void drawTextAndRuler(Canvas canvas) {
-        int viewWidth = getWidth();
-        int itemWidth = (int) (mRulerWidth + mRulerSpace);//单个view的宽度
-        mPixSecond = 10f / itemWidth;//itemWidth表示一秒钟，
-        int count = viewWidth / itemWidth;
-        if (mPixOffset < 0) {//<0表示往左边移动-->右滑
-            count += -mPixOffset / 10;//需要加上移动的距离
-        }
-        Log.d("xie", "mPixOffset = " + mPixOffset);
-        int leftCount = 0;
-        //从屏幕左边开始画刻度和文本
-        for (int index = leftCount; index < count; index++) {
-            float rightX = index * itemWidth + mPixOffset;//右边方向x坐标
-            if (index == 0) {//根据最左边的时刻算最中间的时刻，左边时刻(rightX*每秒多少像素)+中间时刻（view的宽度/2*每秒多少像素）
-                if (rightX < 0) {//15分钟之后的移动
-                    mCurrentSecond = viewWidth * mPixSecond / 2f + Math.abs(rightX * mPixSecond);
-                } else {//15分钟之前的移动
-                    mCurrentSecond = viewWidth * mPixSecond / 2f - rightX * mPixSecond;
+    void drawFrame(Canvas canvas, long frameTimeNanos) {
+        synchronized (mStateLock) {
+            RecordWaveform waveform = mWaveform;
+            synchronized (waveform) {
+                waveform.drainLevels();
+                long position = waveform.getPosition(frameTimeNanos);
+                updateHeightTable();
+                mFrameZoomLevel = mZoomLevel;
+                if (mScrubColumn < 0 && mZoomLevel == 0) {
+                    long scrolled = position * mItemWidth / COLUMN_NANOS;
+                    mFramePixOffset = mInitPix - scrolled;
+                    long shift = scrolled - waveform.getAppended() * mItemWidth;
+                    mFrameShift = (int) Math.max(0, Math.min(shift, mViewWidth));
+                    mFrameIncremental = mIncremental;
+                    if (mFrameIncremental) {
+                        snapshotNewWave(waveform);
+                    } else {
+                        snapshotWave(waveform);
+                    }
+                } else {
+                    //翻看历史或者缩放时从历史瓦片整屏重画，实时波形照常追加
+                    double center = mScrubColumn < 0 ? (double) position / COLUMN_NANOS : mScrubColumn;
+                    mFramePixOffset = mInitPix - (long) (center * mItemWidth / (1L << mZoomLevel));
+                    mFrameIncremental = false;
+                    snapshotHistory(waveform.getHistory(), center);
                 }
             }
-            int divisor = 10;//除数、刻度精度
-            if (index % divisor == 0) {//大刻度
-                //画刻度
-                canvas.drawLine(rightX, mTextSize * 1.5f + mRulerHeightBig, rightX, mTextSize * 1.5f, mRulerPaint);
-                //画文本
-                draText(canvas, index, rightX);
-            } else {//小刻度
-                //画下面小刻度
-                canvas.drawLine(rightX, mTextSize * 1.5f + mRulerHeightBig, rightX, mTextSize * 1.5f + mRulerHeightBig - mRulerHeightSmall, mRulerPaint);
-            }
+        }
+        if (mFrameIncremental) {
+            mWaveStrip.append(mFrameNewWave, mFrameNewCount, mFrameAppended);
+        }
+        canvas.drawColor(0xFF101010);//画背景、由于TextureView不支持直接设置背景颜色，只能按这种方式
+        drawTextAndRuler(canvas);//画文本和刻度
+        drawRecodeArea(canvas);//画有效区域
+        drawCenterLine(canvas);//画中间标线
+        drawDecibel(canvas);//画中间标线
+    }
+
+    /**
+     * 波形高度不超过130dp，也不超出波形区域，尺寸不变时不会重建查找表。需要持有mStateLock
+     */
+    private void updateHeightTable() {
+        float centerY = mViewHeight / 2;
+        float areaTop = mTextSize * 1.5f + mRulerHeightBig;
+        float areaBottom = mViewHeight - mDecibelHeight;
+        float maxHeight = Math.min(mMaxWaveHeight, Math.min(centerY - areaTop, areaBottom - centerY));
+        if (mHeightTable.update(maxHeight)) {
+            //离屏位图里是按旧表画的，整屏重画
+            mStripWaveform = null;
         }
     }
 
-    public static String unitFormat(int i) {// 时分秒的格式转换
-        if (i >= 0 && i < 10) {
-            return "0" + i;
-        } else {
-            return "" + i;
+    /**
+     * 把可见的波形转换成线段坐标，需要持有mStateLock和waveform的锁
+     */
+    private void snapshotWave(RecordWaveform waveform) {
+        WaveRingBuffer wave = waveform.getWave();
+        //只画中轴线左边可见的部分，x = width/2 - i*space >= 0
+        int columns = Math.max((mViewWidth / 2 - mFrameShift) / mItemWidth + 1, 0);
+        int count = Math.min(wave.size(), columns);
+        if (mWaveLines.length < count * 4) {
+            mWaveLines = new float[count * 4];
+        }
+        float centerY = mViewHeight / 2;
+        for (int i = 0; i < count; i++) {
+            float x = (mViewWidth / 2 - mFrameShift - (i * mItemWidth));
+            int y = mHeightTable.heightOf(wave.get(i));
+            int j = i * 4;
+            mWaveLines[j] = x;
+            mWaveLines[j + 1] = centerY - y;
+            mWaveLines[j + 2] = x;
+            mWaveLines[j + 3] = centerY + y;
+        }
+        mFrameWaveCount = count;
+    }
+
+    /**
+     * 只拷贝离屏位图里还没有的数据，需要持有mStateLock和waveform的锁
+     */
+    private void snapshotNewWave(RecordWaveform waveform) {
+        WaveRingBuffer wave = waveform.getWave();
+        long appended = waveform.getAppended();
+        if (mWaveStrip == null) {
+            mWaveStrip = new WaveStripCache(mItemWidth, mAreaBg, mWavePaint);
         }
+        int areaTop = (int) (mTextSize * 1.5f + mRulerHeightBig);
+        int areaBottom = (int) (mViewHeight - mDecibelHeight);
+        mWaveStrip.setArea(mViewWidth / 2, areaTop, areaBottom, mViewHeight / 2);
+        int columns = Math.max(mViewWidth / 2 / mItemWidth + 2, 0);
+        long delta = appended - mWaveStrip.getAppended();
+        if (waveform != mStripWaveform || waveform.getGeneration() != mStripGeneration
+                || delta < 0 || delta > columns) {
+            //换了数据、数据被清空或者落后太多，整屏重画
+            mStripWaveform = waveform;
+            mStripGeneration = waveform.getGeneration();
+            mWaveStrip.reset();
+            delta = columns;
+        }
+        int count = (int) Math.min(delta, wave.size());
+        if (mFrameNewWave.length < count) {
+            mFrameNewWave = new short[columns];
+        }
+        for (int j = 0; j < count; j++) {
+            mFrameNewWave[j] = (short) mHeightTable.heightOf(wave.get(count - 1 - j));
+        }
+        mFrameNewCount = count;
+        mFrameAppended = appended;
     }
 
     /**
-     * 将int类型数字转换成时分秒毫秒的格式数据
+     * 从历史瓦片查询中轴线两侧可见的波形，第k列画在第k+1个刻度上，和实时波形的位置一致。
+     * 需要持有mStateLock和历史所属波形的锁
      *
-     * @param time long类型的数据
-     * @return HH:mm:ss
-     * @author zero 2019/04/11
-     */
-    public String secToTime(int time) {
-        String timeStr = null;
-        if (time <= 0) {
-            return "00:00";
-        } else {
-            int second = time / 10;
-            int minute = second / 60;
-            if (second < 60) {
-                timeStr = "00:" + unitFormat(second);
-            } else if (minute < 60) {
-                second = second % 60;
-                timeStr = unitFormat(minute) + ":" + unitFormat(second);
-            } else {// 数字>=3600 000的时候
-                int hour = minute / 60;
-                minute = minute % 60;
-                second = second - hour * 3600 - minute * 60;
-                timeStr = unitFormat(hour) + ":" + unitFormat(minute) + ":" + unitFormat(second);
-            }
+     * @param center 中轴线对应的数据列
+     */
+    private void snapshotHistory(WaveTileStore history, double center) {
+        long binsPerColumn = 1L << mZoomLevel;
+        long bins = history.getBinCount();
+        double centerItem = center / binsPerColumn;
+        int half = mViewWidth / 2 / mItemWidth + 1;
+        long first = Math.max(0, (long) Math.floor(centerItem) - half - 1);
+        long full = Math.min(bins / binsPerColumn, (long) Math.floor(centerItem) + half + 1);
+        long last = Math.min((bins + binsPerColumn - 1) / binsPerColumn, (long) Math.floor(centerItem) + half + 1);
+        int count = (int) Math.max(0, last - first);
+        if (mZoomMax.length < count) {
+            mZoomMin = new short[count];
+            mZoomMax = new short[count];
         }
-        return timeStr;
-    }
-
-    public String toTime(int time) {
-        String timeStr = null;
-        if (time <= 0) {
-            return "00:00:00";
-        } else {
-            int second = time / 10;
-            int minute = second / 60;
-            if (second < 60) {
-                timeStr = "00:00:" + unitFormat(second);
-            } else if (minute < 60) {
-                second = second % 60;
-                timeStr = "00:" + unitFormat(minute) + ":" + unitFormat(second);
-            } else {// 数字>=3600 000的时候
-                int hour = minute / 60;
-                minute = minute % 60;
-                second = second - hour * 3600 - minute * 60;
-                timeStr = unitFormat(hour) + ":" + unitFormat(minute) + ":" + unitFormat(second);
-            }
+        int fullCount = (int) Math.max(0, full - first);
+        short partial = 0;
+        if (count > fullCount) {
+            //最后一列可能还没满，单独查询，其它列覆盖的数据一样多
+            history.query(full * binsPerColumn, bins, 1, mZoomMin, mZoomMax);
+            partial = mZoomMax[0];
+        }
+        if (fullCount > 0) {
+            history.query(first * binsPerColumn, full * binsPerColumn, fullCount, mZoomMin, mZoomMax);
+        }
+        if (count > fullCount) {
+            mZoomMax[fullCount] = partial;
+        }
+        if (mWaveLines.length < count * 4) {
+            mWaveLines = new float[count * 4];
+        }
+        float centerY = mViewHeight / 2;
+        for (int i = 0; i < count; i++) {
+            float x = (float) (mViewWidth / 2 + (first + i + 1 - centerItem) * mItemWidth);
+            int y = mHeightTable.heightOf(mZoomMax[i]);
+            int j = i * 4;
+            mWaveLines[j] = x;
+            mWaveLines[j + 1] = centerY - y;
+            mWaveLines[j + 2] = x;
+            mWaveLines[j + 3] = centerY + y;
+        }
+        mFrameWaveCount = count;
+    }
+
+    private void drawRecodeArea(Canvas canvas) {
+        mAreaPaint.setColor(mAreaBg);
+        canvas.drawRect(0, mTextSize * 1.5f + mRulerHeightBig, mViewWidth, mViewHeight - mDecibelHeight, mAreaPaint);
+        if (mFrameIncremental) {
+            mWaveStrip.draw(canvas, mFrameShift);
+        } else if (mFrameWaveCount > 0) {
+            canvas.drawLines(mWaveLines, 0, mFrameWaveCount * 4, mWavePaint);
         }
-        return timeStr;
     }
 
     /**
-     * 画时间文本
+     * 画文本和刻度，刻度预先画在瓦片里，每帧只贴一两张位图
      *
      * @param canvas
-     * @param time   当前时间
-     * @param x      所画时间x轴坐标
      */
-    public void draText(Canvas canvas, int time, float x) {
-        String keyText = secToTime(time);
-        float keyTextWidth = mTextPaint.measureText(keyText);
-        float keyTextX = x - keyTextWidth / 2;
-//        if (keyTextX <= getWidth() / 2) {
-//            keyTickTextPaint.setColor(0xFF990000);
-//        } else {
-//            keyTickTextPaint.setColor(0xFF9B9B9B);
-//        }
-        canvas.drawText(keyText, keyTextX, mTextSize * 1.0f, mTextPaint);
+    private void drawTextAndRuler(Canvas canvas) {
+        int viewWidth = mViewWidth;
+        if (mRulerTiles == null || mRulerTilesWidth != viewWidth || mRulerTilesZoom != mFrameZoomLevel) {
+            if (mRulerTiles != null) {
+                mRulerTiles.release();
+            }
+            //一屏最多跨越的瓦片数，再留一个给即将滚入的瓦片
+            int capacity = viewWidth / (mItemWidth * RulerTileCache.TICKS_PER_TILE) + 3;
+            mRulerTiles = new RulerTileCache(mRulerPaint, mTextPaint, mItemWidth, mTextSize,
+                    mRulerHeightBig, mRulerHeightSmall, capacity, 1 << mFrameZoomLevel);
+            mRulerTilesWidth = viewWidth;
+            mRulerTilesZoom = mFrameZoomLevel;
+        }
+        mRulerTiles.draw(canvas, mFramePixOffset, viewWidth);
     }
 
     /**
@@ -403,18 +868,25 @@ public class AudioRecordView extends TextureView implements TextureView.SurfaceT
      * @param canvas
      */
     private void drawCenterLine(Canvas canvas) {
-        canvas.drawLine(getWidth() / 2, mTextSize * 1.5f + mRulerHeightBig, getWidth() / 2, getHeight() - mDecibelHeight, mCursorPaint);
-        canvas.drawCircle(getWidth() / 2, mTextSize * 1.5f + mRulerHeightBig, DisplayKit.dp2px(3), mCursorPaint);
+        canvas.drawLine(mViewWidth / 2, mTextSize * 1.5f + mRulerHeightBig, mViewWidth / 2, mViewHeight - mDecibelHeight, mCursorPaint);
+        canvas.drawCircle(mViewWidth / 2, mTextSize * 1.5f + mRulerHeightBig, mCursorRadius, mCursorPaint);
     }
 
     private void drawDecibel(Canvas canvas) {
         mDecibelPaint.setColor(0xFF232323);
-        canvas.drawRect(0, getHeight() - mDecibelHeight, getWidth(), getHeight(), mDecibelPaint);
-        float gap = DisplayKit.dp2px(3);
-        float width = (getWidth() - 2 * DisplayKit.dp2px(2) - 33 * gap) / 34;
-        int num = new Random().nextInt(35);
-        for (int i = 0; i < 35; i++) {
-            if (i <= num) {
+        canvas.drawRect(0, mViewHeight - mDecibelHeight, mViewWidth, mViewHeight, mDecibelPaint);
+        float gap = mMeterGap;
+        float width = (mViewWidth - 2 * mMeterPadding - (METER_SEGMENTS - 2) * gap) / (METER_SEGMENTS - 1);
+        int num = -1;
+        int hold = -1;
+        LevelMeter meter = mLevelMeter;
+        if (meter != null) {
+            meter.read(mMeterSnapshot);
+            num = meterSegment(mMeterSnapshot.levelDb);
+            hold = meterSegment(mMeterSnapshot.holdDb);
+        }
+        for (int i = 0; i < METER_SEGMENTS; i++) {
+            if (i <= num || i == hold) {
                 if (i < 17) {
                     mDecibelPaint.setColor(DEFAULT_SMALLER_DECIBEL_COLOR);
                 } else if (i >= 17 && i < 28) {
@@ -425,26 +897,92 @@ public class AudioRecordView extends TextureView implements TextureView.SurfaceT
             } else {
                 mDecibelPaint.setColor(DEFAULT_ZERO_DECIBEL_COLOR);
             }
-            float left = DisplayKit.dp2px(2) + i * (gap + width);
-            canvas.drawRect(left, getHeight() - mDecibelHeight, left + width, getHeight(), mDecibelPaint);
+            float left = mMeterPadding + i * (gap + width);
+            canvas.drawRect(left, mViewHeight - mDecibelHeight, left + width, mViewHeight, mDecibelPaint);
+        }
+    }
+
+    /**
+     * 电平对应的最后一格，-1表示一格都不亮
+     */
+    private static int meterSegment(float db) {
+        int segment = (int) ((db + METER_RANGE_DB) / METER_RANGE_DB * METER_SEGMENTS) - 1;
+        return Math.min(segment, METER_SEGMENTS - 1);
+    }
+
+    /**
+     * 波形缓冲区容量：中轴线左边能显示的个数加上回滚窗口
+     *
+     * @param width view宽度
+     */
+    private int getWaveCapacity(int width) {
+        return width / 2 / mItemWidth + 1 + DEFAULT_WAVE_SCROLLBACK;
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        synchronized (mStateLock) {
+            mWaveform.getHistory().setListener(mTileListener);
         }
     }
 
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        //界面销毁时只停止刷新，波形数据可能属于录音会话，它的时钟由会话控制；
+        //会话比界面活得久，要解除瓦片的监听，否则会话通过它一直持有这个view和Activity
+        synchronized (mStateLock) {
+            mWaveform.getHistory().setListener(null);
+        }
+        mHandler.removeCallbacksAndMessages(null);
+    }
+
     @Override
     public void onSurfaceTextureAvailable(SurfaceTexture surface, int width, int height) {
-        mInitPix = getWidth() / 2;
-        mPixOffset = mInitPix;
+        synchronized (mStateLock) {
+            mViewWidth = width;
+            mViewHeight = height;
+            mInitPix = width / 2;
+            mWaveform.ensureCapacity(getWaveCapacity(width));
+        }
+        Display display = getDisplay();
+        if (display != null && display.getRefreshRate() > 0) {
+            mFrameIntervalNanos = (long) (1000000000L / display.getRefreshRate());
+        }
+        mRenderThread = new RenderThread(this, mRenderer);
+        mRenderThread.start();
+        mRenderThread.setContinuous(mRunning);
         refreshCanvas();
     }
 
     @Override
     public void onSurfaceTextureSizeChanged(SurfaceTexture surface, int width, int height) {
-
+        synchronized (mStateLock) {
+            mViewWidth = width;
+            mViewHeight = height;
+            mInitPix = width / 2;
+            mWaveform.ensureCapacity(getWaveCapacity(width));
+        }
+        refreshCanvas();
     }
 
     @Override
     public boolean onSurfaceTextureDestroyed(SurfaceTexture surface) {
-        return false;
+        //等渲染线程退出后再让系统释放SurfaceTexture
+        if (mRenderThread != null) {
+            mRenderThread.quitAndWait();
+            mRenderThread = null;
+        }
+        if (mRulerTiles != null) {
+            mRulerTiles.release();
+            mRulerTiles = null;
+        }
+        if (mWaveStrip != null) {
+            mWaveStrip.release();
+            mWaveStrip = null;
+        }
+        return true;
     }
 
     @Override
@@ -453,6 +991,12 @@ public class AudioRecordView extends TextureView implements TextureView.SurfaceT
     }
 
     public interface OnRecordListener {
-        void onRecordedTime(String time);
+        /**
+         * 录音时间变化，每秒最多回调一次
+         *
+         * @param time   HH:mm:ss，数组会被复用，需要保存时自行拷贝
+         * @param length 有效字符数
+         */
+        void onRecordedTime(char[] time, int length);
     }
 }
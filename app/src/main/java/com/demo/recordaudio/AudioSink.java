@@ -0,0 +1,43 @@
+package com.demo.recordaudio;
+
+import java.io.IOException;
+
+/**
+ * @author : Zach
+ * @desc : 播放输出，手机上是AudioTrack，JVM测试用NullAudioSink。
+ * 已播放的帧数就是播放引擎的音频时钟，界面上的指示器按它移动
+ * @date : 2026/10/19 17:00
+ */
+public interface AudioSink {
+
+    /**
+     * 按格式打开，重复打开时先关闭之前的
+     */
+    void open(int sampleRate, int channelCount) throws IOException;
+
+    void play();
+
+    /**
+     * 暂停，已经写入还没播放的数据保留，play后接着播
+     */
+    void pause();
+
+    /**
+     * 写入16bit交错PCM，缓冲区满时阻塞
+     *
+     * @return 写入的采样数，出错时返回负数
+     */
+    int write(short[] pcm, int offset, int length);
+
+    /**
+     * 丢掉已经写入还没播放的数据，已播放帧数从0重新计算，播放状态不变
+     */
+    void flush();
+
+    /**
+     * open或者上一次flush之后实际播放出去的帧数，可以在任意线程调用
+     */
+    long getPlayedFrames();
+
+    void close();
+}
@@ -0,0 +1,51 @@
+package com.demo.recordaudio;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * @author : Zach
+ * @desc : 音频输入源，输出16bit小端PCM。麦克风、文件、合成信号都可以实现它
+ * @date : 2026/10/18 11:05
+ */
+public interface AudioSource {
+
+    /**
+     * 采样率，单位Hz
+     */
+    int getSampleRate();
+
+    /**
+     * 声道数
+     */
+    int getChannelCount();
+
+    /**
+     * 每次读取建议的字节数，必须是帧大小的整数倍
+     */
+    int getBufferSize();
+
+    /**
+     * 开始采集
+     */
+    void start() throws IOException;
+
+    /**
+     * 阻塞读取PCM数据，从buffer的position 0开始写入
+     *
+     * @param buffer direct ByteBuffer
+     * @param size   最多读取的字节数
+     * @return 实际读取的字节数，小于0表示已结束或出错
+     */
+    int read(ByteBuffer buffer, int size);
+
+    /**
+     * 停止采集，之后可以再次start
+     */
+    void stop();
+
+    /**
+     * 释放资源
+     */
+    void release();
+}
@@ -0,0 +1,140 @@
+package com.demo.recordaudio;
+
+import android.media.AudioAttributes;
+import android.media.AudioFormat;
+import android.media.AudioManager;
+import android.media.AudioTrack;
+
+import java.io.IOException;
+
+/**
+ * @author : Zach
+ * @desc : 基于AudioTrack流模式的输出。缓冲区只比最小值多一点，seek时flush掉的数据少，延迟低。
+ * 已播放帧数用getPlaybackHeadPosition，它是32位无符号数，这里展开成long并减去flush时的基准
+ * @date : 2026/10/19 17:10
+ */
+public class AudioTrackSink implements AudioSink {
+
+    /**
+     * 缓冲区大约的时长，ms，不小于系统要求的最小值
+     */
+    private static final int BUFFER_MILLISECOND = 60;
+
+    private volatile AudioTrack mTrack;
+    /**
+     * 展开后的播放头位置和flush时的基准
+     */
+    private long mLastHead;
+    private long mHeadBase;
+
+    @Override
+    public synchronized void open(int sampleRate, int channelCount) throws IOException {
+        close();
+        int channelConfig = channelCount == 1 ? AudioFormat.CHANNEL_OUT_MONO : AudioFormat.CHANNEL_OUT_STEREO;
+        int minSize = AudioTrack.getMinBufferSize(sampleRate, channelConfig, AudioFormat.ENCODING_PCM_16BIT);
+        if (minSize <= 0) {
+            throw new IOException("unsupported format, sampleRate=" + sampleRate + ", channels=" + channelCount);
+        }
+        int size = Math.max(minSize, sampleRate * BUFFER_MILLISECOND / 1000 * 2 * channelCount);
+        AudioAttributes attributes = new AudioAttributes.Builder()
+                .setUsage(AudioAttributes.USAGE_MEDIA)
+                .setContentType(AudioAttributes.CONTENT_TYPE_MUSIC)
+                .build();
+        AudioFormat format = new AudioFormat.Builder()
+                .setSampleRate(sampleRate)
+                .setChannelMask(channelConfig)
+                .setEncoding(AudioFormat.ENCODING_PCM_16BIT)
+                .build();
+        AudioTrack track = new AudioTrack(attributes, format, size, AudioTrack.MODE_STREAM,
+                AudioManager.AUDIO_SESSION_ID_GENERATE);
+        if (track.getState() != AudioTrack.STATE_INITIALIZED) {
+            track.release();
+            throw new IOException("AudioTrack init failed");
+        }
+        mLastHead = 0;
+        mHeadBase = 0;
+        mTrack = track;
+    }
+
+    @Override
+    public synchronized void play() {
+        if (mTrack != null) {
+            mTrack.play();
+        }
+    }
+
+    @Override
+    public synchronized void pause() {
+        if (mTrack != null) {
+            mTrack.pause();
+        }
+    }
+
+    /**
+     * 不加锁，缓冲区满时阻塞在这里，其它线程仍然可以读时钟
+     */
+    @Override
+    public int write(short[] pcm, int offset, int length) {
+        AudioTrack track = mTrack;
+        if (track == null) {
+            return -1;
+        }
+        return track.write(pcm, offset, length);
+    }
+
+    @Override
+    public synchronized void flush() {
+        AudioTrack track = mTrack;
+        if (track == null) {
+            return;
+        }
+        //AudioTrack只能在暂停或停止时flush
+        boolean playing = track.getPlayState() == AudioTrack.PLAYSTATE_PLAYING;
+        if (playing) {
+            track.pause();
+        }
+        track.flush();
+        mHeadBase = readHead(track);
+        if (playing) {
+            track.play();
+        }
+    }
+
+    @Override
+    public synchronized long getPlayedFrames() {
+        AudioTrack track = mTrack;
+        if (track == null) {
+            return 0;
+        }
+        return Math.max(0, readHead(track) - mHeadBase);
+    }
+
+    /**
+     * 播放头位置展开成long，flush后系统可能把它归零，这时从新的位置重新累计
+     */
+    private long readHead(AudioTrack track) {
+        long raw = track.getPlaybackHeadPosition() & 0xffffffffL;
+        long last = mLastHead & 0xffffffffL;
+        long head;
+        if (raw >= last) {
+            head = mLastHead + (raw - last);
+        } else if (last - raw > 0x80000000L) {
+            //32位回绕
+            head = mLastHead + (raw + 0x100000000L - last);
+        } else {
+            //flush后归零
+            head = raw;
+            mHeadBase = 0;
+        }
+        mLastHead = head;
+        return head;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (mTrack != null) {
+            mTrack.release();
+            mTrack = null;
+        }
+    }
+}
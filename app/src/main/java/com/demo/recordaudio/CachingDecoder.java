@@ -0,0 +1,155 @@
+package com.demo.recordaudio;
+
+import java.io.IOException;
+
+/**
+ * @author : Zach
+ * @desc : 带PcmChunkCache的解码器，按固定帧数的块输出，先查缓存，没有时才让里面的解码器解码并放进缓存。
+ * 读到缓存里的块时里面的解码器不动，再遇到没缓存的块时才seek过去，顺序读不会多seek。
+ * 和原来的解码器一样只在一个线程使用，缓存可以在多个解码器之间共享
+ * @date : 2026/10/19 18:40
+ */
+public class CachingDecoder implements AudioDecoder {
+
+    /**
+     * 每块的帧数，44.1kHz大约93毫秒
+     */
+    public static final int CHUNK_FRAMES = 4096;
+
+    private final AudioDecoder mDecoder;
+    private final PcmChunkCache mCache;
+    private final String mKey;
+    private short[] mChunk;
+    /**
+     * mChunk里的块起始帧和有效帧数，-1表示还没加载
+     */
+    private long mChunkFrame = -1;
+    private int mChunkFrames;
+    /**
+     * 下一次read的帧，以及里面的解码器下一次输出的帧
+     */
+    private long mPosition;
+    private long mDecoderFrame;
+    /**
+     * 里面的解码器是否已经输出过数据，之前它报告的可能是文件里写的格式，不是实际输出的格式
+     */
+    private boolean mFormatKnown;
+
+    /**
+     * @param key 文件的缓存键，见{@link PcmChunkCache#keyOf(java.io.File)}
+     */
+    public CachingDecoder(AudioDecoder decoder, PcmChunkCache cache, String key) {
+        mDecoder = decoder;
+        mCache = cache;
+        mKey = key;
+    }
+
+    @Override
+    public int getSampleRate() {
+        return mDecoder.getSampleRate();
+    }
+
+    @Override
+    public int getChannelCount() {
+        return mDecoder.getChannelCount();
+    }
+
+    @Override
+    public long getDurationUs() {
+        return mDecoder.getDurationUs();
+    }
+
+    @Override
+    public int read(short[] buffer, int offset, int length) throws IOException {
+        if (!mFormatKnown) {
+            probeFormat();
+        }
+        int channelCount = getChannelCount();
+        long chunkFrame = mPosition / CHUNK_FRAMES * CHUNK_FRAMES;
+        if (chunkFrame != mChunkFrame) {
+            loadChunk(chunkFrame, channelCount);
+        }
+        int skip = (int) (mPosition - mChunkFrame);
+        int frames = Math.min(mChunkFrames - skip, length / channelCount);
+        if (frames <= 0) {
+            if (length < channelCount) {
+                throw new IllegalArgumentException("length must hold at least one frame, was " + length);
+            }
+            return -1;
+        }
+        System.arraycopy(mChunk, skip * channelCount, buffer, offset, frames * channelCount);
+        mPosition += frames;
+        return frames * channelCount;
+    }
+
+    @Override
+    public void seekTo(long frame) {
+        mPosition = Math.max(0, frame);
+    }
+
+    /**
+     * 先让里面的解码器解码第一块的开头，拿到实际输出的声道数和采样率，再按它排列块。
+     * 比如HE-AAC/PS文件里写的是单声道，解码出来是立体声，按文件里的格式排列会错位，还会错位地放进缓存
+     */
+    private void probeFormat() throws IOException {
+        mChunkFrame = -1;
+        if (mDecoderFrame != 0) {
+            //上次探测出错，里面的解码器停在不知道的位置
+            mDecoder.seekTo(0);
+        }
+        mDecoderFrame = -1;
+        //不超过任何声道数下一块的长度
+        short[] probe = new short[CHUNK_FRAMES];
+        int read = mDecoder.read(probe, 0, probe.length);
+        int channelCount = getChannelCount();
+        mChunk = new short[CHUNK_FRAMES * channelCount];
+        int filled = Math.max(0, read);
+        System.arraycopy(probe, 0, mChunk, 0, filled);
+        fillChunk(0, filled, channelCount);
+        mFormatKnown = true;
+    }
+
+    private void loadChunk(long chunkFrame, int channelCount) throws IOException {
+        if (mChunk.length != CHUNK_FRAMES * channelCount) {
+            mChunk = new short[CHUNK_FRAMES * channelCount];
+        }
+        //加载完成前mChunk里的数据不完整，解码出错时下次read要重新加载
+        mChunkFrame = -1;
+        int cached = mCache.read(mKey, chunkFrame, mChunk, 0, mChunk.length);
+        if (cached >= 0) {
+            mChunkFrames = cached / channelCount;
+            mChunkFrame = chunkFrame;
+            return;
+        }
+        if (mDecoderFrame != chunkFrame) {
+            mDecoder.seekTo(chunkFrame);
+        }
+        //解码出错时不知道里面的解码器停在哪里，下次要重新seek
+        mDecoderFrame = -1;
+        fillChunk(chunkFrame, 0, channelCount);
+    }
+
+    /**
+     * 里面的解码器接着解码，填满mChunk或者到结尾，然后放进缓存
+     *
+     * @param filled mChunk里已经有的采样数
+     */
+    private void fillChunk(long chunkFrame, int filled, int channelCount) throws IOException {
+        while (filled < mChunk.length) {
+            int read = mDecoder.read(mChunk, filled, mChunk.length - filled);
+            if (read < 0) {
+                break;
+            }
+            filled += read;
+        }
+        mChunkFrames = filled / channelCount;
+        mDecoderFrame = chunkFrame + mChunkFrames;
+        mChunkFrame = chunkFrame;
+        mCache.put(mKey, chunkFrame, mChunk, 0, filled);
+    }
+
+    @Override
+    public void close() throws IOException {
+        mDecoder.close();
+    }
+}
@@ -0,0 +1,33 @@
+package com.demo.recordaudio;
+
+import java.io.InterruptedIOException;
+
+/**
+ * @author : Zach
+ * @desc : 单个后台任务的取消标记，提交任务时创建并传给任务，界面关闭时取消。
+ * 只能从未取消变成已取消，任务还在队列里没开始时取消也不会丢，开始后第一次检查就会停下
+ * @date : 2026/10/19 19:10
+ */
+public class CancelSignal {
+
+    private volatile boolean mCancelled;
+
+    public void cancel() {
+        mCancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return mCancelled;
+    }
+
+    /**
+     * 已取消时抛出InterruptedIOException
+     *
+     * @param message 异常信息
+     */
+    public void throwIfCancelled(String message) throws InterruptedIOException {
+        if (mCancelled) {
+            throw new InterruptedIOException(message);
+        }
+    }
+}
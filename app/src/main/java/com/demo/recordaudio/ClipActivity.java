@@ -2,10 +2,17 @@ package com.demo.recordaudio;
 
 import android.os.Bundle;
 import android.util.Log;
+import android.widget.TextView;
 
 import androidx.annotation.Nullable;
 import androidx.appcompat.app.AppCompatActivity;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
 /**
  * @author : Zach
  * @desc :
@@ -13,55 +20,289 @@ import androidx.appcompat.app.AppCompatActivity;
  */
 public class ClipActivity extends AppCompatActivity {
 
+    /**
+     * 要裁剪的录音路径，不传时打开最新的录音
+     */
+    public static final String EXTRA_AUDIO_PATH = "audio_path";
+
     AudioClipView clip_view;
+    private TextView tv_export;
+    private TextView tv_play;
     private int cur = 0;
+    private MappedPeakSource mPeakSource;
+    private File mAudioFile;
+    /**
+     * 选中区间，毫秒
+     */
+    private long mStartTime = 0;
+    private long mEndTime = Long.MAX_VALUE;
+    private final ClipExporter mExporter = new ClipExporter();
+    private final ExecutorService mExportExecutor = Executors.newSingleThreadExecutor();
+    private boolean mExporting;
+    /**
+     * 每次导出新建，界面关闭时取消
+     */
+    private CancelSignal mExportSignal;
+    /**
+     * 没有峰值文件时在后台解码音频
+     */
+    private final PeakLoader mPeakLoader = new PeakLoader();
+    private final ParallelPeakExtractor mPeakExtractor = new ParallelPeakExtractor();
+    private final ExecutorService mDecodeExecutor = Executors.newSingleThreadExecutor();
+    /**
+     * 每次提交解码任务时新建，界面关闭时取消，还在队列里的任务开始后立即停止
+     */
+    private CancelSignal mDecodeSignal;
+    /**
+     * 播放选中区间，播放时每帧按音频时钟移动指示器
+     */
+    private final PlaybackEngine mPlaybackEngine = new PlaybackEngine(new AudioTrackSink());
+    /**
+     * 要打开的录音还在收尾时，等峰值文件写完再加载，不和录音同时写峰值文件
+     */
+    private RecordSession mSession;
+    private final RecordSession.Listener mSessionListener = new RecordSession.Listener() {
+        @Override
+        public void onStateChanged(RecordSession.State state) {
+            if (state != RecordSession.State.FINALIZING) {
+                mSession.removeListener(this);
+                loadPeaks();
+                openPlayback();
+            }
+        }
+    };
+    private final Runnable mCursorTicker = new Runnable() {
+        @Override
+        public void run() {
+            clip_view.updateCursor(mPlaybackEngine.getPositionMs());
+            if (mPlaybackEngine.isPlaying()) {
+                clip_view.postOnAnimation(this);
+            }
+        }
+    };
 
     @Override
     protected void onCreate(@Nullable Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_clip);
         clip_view = findViewById(R.id.clip_view);
+        tv_export = findViewById(R.id.tv_export);
+        tv_export.setOnClickListener(v -> export());
+        tv_play = findViewById(R.id.tv_play);
+        tv_play.setOnClickListener(v -> togglePlay());
         clip_view.setOnScrollListener(new AudioClipView.OnScrollListener() {
             @Override
             public void onScrollThumb(boolean isLeftThumb, AudioClipView.ScrollInfo info) {
                 if (isLeftThumb) {
-                    Log.i("xie", "leftThumb: " + intToTime(info.getTime() / 1000));
+                    mStartTime = info.getTime();
                 } else {
-                    Log.d("xie", "rightThumb: " + intToTime(info.getTime() / 1000));
+                    mEndTime = info.getTime();
                 }
+                mPlaybackEngine.setRange(mStartTime, mEndTime);
             }
 
             @Override
             public void onScrollCursor(AudioClipView.ScrollInfo info) {
                 cur = info.getTime();
-                Log.w("xie", "onScrollCursor: " + intToTime(cur / 1000));
+                //播放时updateCursor也会回调，只有手动拖动才seek
+                if (info.isFromUser()) {
+                    mPlaybackEngine.seekTo(cur);
+                }
+            }
+        });
+        mPlaybackEngine.setListener(new PlaybackEngine.Listener() {
+            @Override
+            public void onCompletion() {
+                runOnUiThread(() -> tv_play.setText(R.string.clip_play));
+            }
+
+            @Override
+            public void onError(IOException e) {
+                Log.e("xie", "playback failed: " + mAudioFile, e);
+                runOnUiThread(() -> tv_play.setText(R.string.clip_play));
+            }
+        });
+        String path = getIntent().getStringExtra(EXTRA_AUDIO_PATH);
+        mAudioFile = path != null ? new File(path) : RecordFiles.getLatestRecord(this);
+        mSession = RecordSession.get(this);
+        if (mAudioFile != null && mSession.getState() == RecordSession.State.FINALIZING
+                && mAudioFile.equals(mSession.getFile())) {
+            mSession.addListener(mSessionListener);
+            return;
+        }
+        loadPeaks();
+        openPlayback();
+    }
+
+    @Override
+    protected void onPause() {
+        super.onPause();
+        if (mPlaybackEngine.isPlaying()) {
+            togglePlay();
+        }
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        mSession.removeListener(mSessionListener);
+        if (mExportSignal != null) {
+            mExportSignal.cancel();
+        }
+        mExportExecutor.shutdown();
+        if (mDecodeSignal != null) {
+            mDecodeSignal.cancel();
+        }
+        mDecodeExecutor.shutdown();
+        mPeakExtractor.shutdown();
+        clip_view.removeCallbacks(mCursorTicker);
+        mPlaybackEngine.release();
+        if (mPeakSource != null) {
+            try {
+                mPeakSource.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    /**
+     * 读取录音旁边的峰值文件，只映射文件，不解码音频；没有峰值文件时解码生成
+     */
+    private void loadPeaks() {
+        File audio = mAudioFile;
+        if (audio == null) {
+            return;
+        }
+        File peakFile = PeakFile.forAudio(audio);
+        if (!peakFile.exists()) {
+            decodePeaks(audio, peakFile);
+            return;
+        }
+        try {
+            mPeakSource = new MappedPeakSource(peakFile);
+            clip_view.setDuration(mPeakSource.getDurationMs());
+            clip_view.setPeakSource(mPeakSource);
+        } catch (IOException e) {
+            Log.e("xie", "open peak file failed: " + peakFile, e);
+        }
+    }
+
+    /**
+     * 在后台解码，波形边解码边显示，完成后写入峰值文件，下次打开直接映射。
+     * WAV不需要解码，按CPU核数并行提取
+     */
+    private void decodePeaks(final File audio, final File peakFile) {
+        final CancelSignal signal = new CancelSignal();
+        mDecodeSignal = signal;
+        if (ParallelPeakExtractor.canExtract(audio)) {
+            mDecodeExecutor.execute(() -> {
+                try (AudioDecoder decoder = PeakLoader.openDecoder(audio)) {
+                    final long durationMs = decoder.getDurationUs() / 1000;
+                    final PeakPyramid peaks = mPeakExtractor.extract(audio, signal);
+                    runOnUiThread(signal, () -> {
+                        clip_view.setDuration(durationMs);
+                        clip_view.setPeakSource(peaks);
+                    });
+                    PeakFile.write(peakFile, peaks, decoder.getSampleRate(), decoder.getChannelCount());
+                } catch (InterruptedIOException ignored) {
+                    //界面已经关闭
+                } catch (IOException e) {
+                    Log.e("xie", "extract peaks failed: " + audio, e);
+                }
+            });
+            return;
+        }
+        mDecodeExecutor.execute(() -> {
+            try (AudioDecoder decoder = PeakLoader.openDecoder(audio)) {
+                final long durationMs = decoder.getDurationUs() / 1000;
+                runOnUiThread(signal, () -> clip_view.setDuration(durationMs));
+                final PeakPyramid peaks = mPeakLoader.load(decoder, (partial, expectedBins) ->
+                        runOnUiThread(signal, () -> clip_view.setPeakSource(partial, expectedBins)), signal);
+                runOnUiThread(signal, () -> clip_view.setPeakSource(peaks));
+                PeakFile.write(peakFile, peaks, decoder.getSampleRate(), decoder.getChannelCount());
+            } catch (InterruptedIOException ignored) {
+                //界面已经关闭
+            } catch (IOException e) {
+                Log.e("xie", "decode peaks failed: " + audio, e);
             }
         });
     }
 
     /**
-     * 将秒转换为00:00
-     *
-     * @param seconds
-     * @return
+     * 打开录音交给播放引擎，引擎在自己的线程里预先解码开头的数据。
+     * 解码结果放进进程共用的缓存，重新打开同一个录音时不用再解码
      */
-    public String intToTime(int seconds) {
-        if (seconds <= 0) {
-            return "00:00";
+    private void openPlayback() {
+        if (mAudioFile == null) {
+            return;
         }
-        String time = "";
-        int min = seconds / 60;
-        if (min < 10) {
-            time = time + "0" + min + ":";
-        } else {
-            time = time + min + ":";
+        try {
+            AudioDecoder decoder = PeakLoader.openDecoder(mAudioFile);
+            mPlaybackEngine.open(new CachingDecoder(decoder, PcmChunkCache.getShared(),
+                    PcmChunkCache.keyOf(mAudioFile)));
+        } catch (IOException e) {
+            Log.e("xie", "open playback failed: " + mAudioFile, e);
+            tv_play.setEnabled(false);
         }
-        int sec = seconds - min * 60;
-        if (sec < 10) {
-            time = time + "0" + sec;
+    }
+
+    private void togglePlay() {
+        if (mPlaybackEngine.isPlaying()) {
+            mPlaybackEngine.pause();
+            tv_play.setText(R.string.clip_play);
         } else {
-            time = time + sec;
+            mPlaybackEngine.play();
+            tv_play.setText(R.string.clip_pause);
+            clip_view.removeCallbacks(mCursorTicker);
+            clip_view.postOnAnimation(mCursorTicker);
         }
-        return time;
+    }
+
+    /**
+     * 后台任务回到主线程更新界面，任务已经取消(界面已经关闭)时不执行
+     */
+    private void runOnUiThread(final CancelSignal signal, final Runnable action) {
+        runOnUiThread(() -> {
+            if (!signal.isCancelled()) {
+                action.run();
+            }
+        });
+    }
+
+    /**
+     * 在后台导出选中区间，源文件不变
+     */
+    private void export() {
+        if (mAudioFile == null || mExporting) {
+            return;
+        }
+        mExporting = true;
+        final File source = mAudioFile;
+        final File target = RecordFiles.newClipFile(source);
+        final long start = mStartTime;
+        final long end = mEndTime;
+        final CancelSignal signal = new CancelSignal();
+        mExportSignal = signal;
+        mExportExecutor.execute(() -> {
+            try {
+                mExporter.export(source, target, start, end, (done, total) -> {
+                    final int percent = total == 0 ? 100 : (int) (done * 100 / total);
+                    runOnUiThread(signal, () -> tv_export.setText(getString(R.string.clip_export_progress, percent)));
+                }, signal);
+                runOnUiThread(signal, () -> {
+                    mExporting = false;
+                    tv_export.setText(R.string.clip_export);
+                    Log.i("xie", "export finished: " + target);
+                });
+            } catch (InterruptedIOException ignored) {
+                //界面已经关闭
+            } catch (IOException e) {
+                Log.e("xie", "export failed: " + source, e);
+                runOnUiThread(signal, () -> {
+                    mExporting = false;
+                    tv_export.setText(R.string.clip_export);
+                });
+            }
+        });
     }
 }
@@ -0,0 +1,177 @@
+package com.demo.recordaudio;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**
+ * @author : Zach
+ * @desc : 按选中区间导出WAV片段，不修改源文件。中间部分用FileChannel.transferTo直接拷贝，
+ * 只有两端淡入淡出的几毫秒数据经过内存，导出几百MB的文件内存占用也是固定的
+ * @date : 2026/10/18 17:20
+ */
+public class ClipExporter {
+
+    public static final int DEFAULT_FADE_MILLISECOND = 10;
+    /**
+     * 每次transferTo的字节数，决定进度回调的频率
+     */
+    private static final long TRANSFER_CHUNK = 4 * 1024 * 1024;
+
+    private final int mFadeMilliSecond;
+
+    public ClipExporter() {
+        this(DEFAULT_FADE_MILLISECOND);
+    }
+
+    /**
+     * @param fadeMilliSecond 切点处淡入淡出的时长，0表示不处理
+     */
+    public ClipExporter(int fadeMilliSecond) {
+        mFadeMilliSecond = fadeMilliSecond;
+    }
+
+    public long export(File source, File target, long startMs, long endMs, ProgressListener listener) throws IOException {
+        return export(source, target, startMs, endMs, listener, null);
+    }
+
+    /**
+     * 导出[startMs, endMs)区间，先写临时文件，成功后重命名为target
+     *
+     * @param listener 进度回调，在调用线程执行，可以为null
+     * @param signal   取消后export删除临时文件并抛出InterruptedIOException，可以为null
+     * @return 导出的字节数，不含文件头
+     */
+    public long export(File source, File target, long startMs, long endMs, ProgressListener listener,
+                       CancelSignal signal) throws IOException {
+        if (signal != null) {
+            signal.throwIfCancelled("export cancelled");
+        }
+        File tmp = new File(target.getPath() + ".tmp");
+        boolean success = false;
+        try (RandomAccessFile in = new RandomAccessFile(source, "r");
+             RandomAccessFile out = new RandomAccessFile(tmp, "rw");
+             FileChannel src = in.getChannel();
+             FileChannel dst = out.getChannel()) {
+            WavHeader header = WavHeader.read(src);
+            if (header.bitsPerSample != 16) {
+                throw new IOException("only 16bit pcm is supported, was " + header.bitsPerSample);
+            }
+            int frameSize = header.getFrameSize();
+            long totalFrames = header.getFrameCount();
+            // 按帧对齐，保证采样精确且不会把一帧切成两半
+            long startFrame = toFrame(startMs, header);
+            long endFrame = Math.max(startFrame, toFrame(endMs, header));
+            long frames = endFrame - startFrame;
+            long dataSize = frames * frameSize;
+            long fadeFrames = Math.min((long) mFadeMilliSecond * header.sampleRate / 1000, frames / 2);
+
+            dst.truncate(0);
+            ByteBuffer wavHeader = ByteBuffer.allocateDirect(WavFileWriter.HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            WavFileWriter.writeHeader(wavHeader, header.sampleRate, header.channelCount, dataSize);
+            writeFully(dst, wavHeader, 0);
+
+            long srcPosition = header.dataOffset + startFrame * frameSize;
+            long dstPosition = WavFileWriter.HEADER_SIZE;
+            long fadeBytes = fadeFrames * frameSize;
+            ByteBuffer fade = fadeBytes > 0
+                    ? ByteBuffer.allocateDirect((int) fadeBytes).order(ByteOrder.LITTLE_ENDIAN) : null;
+            if (fade != null) {
+                copyWithFade(src, srcPosition, dst, dstPosition, fade, header.channelCount, true);
+            }
+            long middle = dataSize - 2 * fadeBytes;
+            long done = fadeBytes;
+            long copied = 0;
+            while (copied < middle) {
+                if (signal != null) {
+                    signal.throwIfCancelled("export cancelled");
+                }
+                long count = Math.min(TRANSFER_CHUNK, middle - copied);
+                dst.position(dstPosition + fadeBytes + copied);
+                long transferred = src.transferTo(srcPosition + fadeBytes + copied, count, dst);
+                if (transferred <= 0) {
+                    throw new IOException("transfer stopped at " + (srcPosition + fadeBytes + copied));
+                }
+                copied += transferred;
+                done += transferred;
+                if (listener != null) {
+                    listener.onProgress(done, dataSize);
+                }
+            }
+            if (fade != null) {
+                copyWithFade(src, srcPosition + fadeBytes + middle, dst, dstPosition + fadeBytes + middle,
+                        fade, header.channelCount, false);
+            }
+            if (listener != null) {
+                listener.onProgress(dataSize, dataSize);
+            }
+            success = true;
+            return dataSize;
+        } finally {
+            if (success) {
+                if (!tmp.renameTo(target)) {
+                    tmp.delete();
+                    throw new IOException("rename " + tmp + " to " + target + " failed");
+                }
+            } else {
+                tmp.delete();
+            }
+        }
+    }
+
+    /**
+     * 毫秒转换成帧位置，限制在文件范围内
+     */
+    private static long toFrame(long ms, WavHeader header) {
+        if (ms <= 0) {
+            return 0;
+        }
+        if (ms >= header.getDurationMs()) {
+            return header.getFrameCount();
+        }
+        return ms * header.sampleRate / 1000;
+    }
+
+    /**
+     * 读取切点附近的数据，线性淡入或淡出后写入
+     */
+    private static void copyWithFade(FileChannel src, long srcPosition, FileChannel dst, long dstPosition,
+                                     ByteBuffer buffer, int channelCount, boolean fadeIn) throws IOException {
+        buffer.clear();
+        while (buffer.hasRemaining()) {
+            int read = src.read(buffer, srcPosition + buffer.position());
+            if (read < 0) {
+                throw new IOException("unexpected end of file at " + (srcPosition + buffer.position()));
+            }
+        }
+        int frameSize = 2 * channelCount;
+        int frames = buffer.capacity() / frameSize;
+        for (int i = 0; i < frames; i++) {
+            float gain = fadeIn ? (float) i / frames : (float) (frames - 1 - i) / frames;
+            for (int c = 0; c < channelCount; c++) {
+                int index = i * frameSize + c * 2;
+                buffer.putShort(index, (short) (buffer.getShort(index) * gain));
+            }
+        }
+        buffer.flip();
+        writeFully(dst, buffer, dstPosition);
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    public interface ProgressListener {
+        /**
+         * @param done  已导出的字节数
+         * @param total 总字节数
+         */
+        void onProgress(long done, long total);
+    }
+}
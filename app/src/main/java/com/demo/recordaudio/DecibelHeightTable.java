@@ -0,0 +1,79 @@
+package com.demo.recordaudio;
+
+import com.demo.audiocore.PcmKernels;
+
+/**
+ * @author : Zach
+ * @desc : 量化分贝到波形高度的查找表。波形数据里存的是0.1dB为单位的量化分贝，和屏幕无关；
+ * 绘制时每个值只需要查一次表，表只在最大高度变化(尺寸或者密度变了)时重建。只在渲染线程使用
+ * @date : 2026/10/19 10:30
+ */
+public class DecibelHeightTable {
+
+    /**
+     * 每dB的量化级数
+     */
+    public static final int STEPS_PER_DB = 10;
+    /**
+     * 量化范围，波纹算法-15dB以下都贴底，再往下没有区别
+     */
+    public static final int MIN_DB = -16;
+    public static final int MAX_DB = 150;
+    private static final int MIN_QUANTIZED = MIN_DB * STEPS_PER_DB;
+    private static final int MAX_QUANTIZED = MAX_DB * STEPS_PER_DB;
+
+    private final short[] mHeights = new short[MAX_QUANTIZED - MIN_QUANTIZED + 1];
+    /**
+     * 当前表对应的最大高度，小于0表示还没建表
+     */
+    private float mMaxHeight = -1;
+
+    /**
+     * 分贝量化成short，超出范围的截断
+     */
+    public static short quantize(double decibel) {
+        if (decibel < MIN_DB) {
+            decibel = MIN_DB;
+        } else if (decibel > MAX_DB) {
+            decibel = MAX_DB;
+        }
+        return (short) Math.round(decibel * STEPS_PER_DB);
+    }
+
+    public static double dequantize(int quantized) {
+        return (double) quantized / STEPS_PER_DB;
+    }
+
+    /**
+     * 按最大高度重建查找表，和上次一样时直接返回
+     *
+     * @param maxHeight 最大高度，像素，小于1时按1处理
+     * @return 是否重建了，重建后之前按旧表画的结果都要作废
+     */
+    public boolean update(float maxHeight) {
+        maxHeight = Math.max(maxHeight, 1);
+        if (maxHeight == mMaxHeight) {
+            return false;
+        }
+        mMaxHeight = maxHeight;
+        for (int i = 0; i < mHeights.length; i++) {
+            float decibel = (float) dequantize(i + MIN_QUANTIZED);
+            mHeights[i] = (short) PcmKernels.rippleHeight(decibel, maxHeight);
+        }
+        return true;
+    }
+
+    public float getMaxHeight() {
+        return mMaxHeight;
+    }
+
+    /**
+     * 量化分贝对应的高度，调用前需要先{@link #update(float)}
+     *
+     * @param quantized {@link #quantize(double)}的结果
+     * @return 像素
+     */
+    public int heightOf(int quantized) {
+        return mHeights[quantized - MIN_QUANTIZED];
+    }
+}
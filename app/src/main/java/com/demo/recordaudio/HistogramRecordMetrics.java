@@ -0,0 +1,79 @@
+package com.demo.recordaudio;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @author : Zach
+ * @desc : 用直方图记录帧耗时、掉帧、刷新抖动和缓冲区大小，运行时可以查询，也可以导出到文件
+ * @date : 2026/10/18 18:30
+ */
+public class HistogramRecordMetrics implements RecordMetrics {
+
+    private static final long NANOS_PER_MILLI = 1000000L;
+
+    private final LatencyHistogram mFrameTime = new LatencyHistogram("frame_draw");
+    private final LatencyHistogram mTickJitter = new LatencyHistogram("tick_jitter");
+    private final LatencyHistogram mWaveBufferSize = new LatencyHistogram("wave_buffer_size");
+    private final AtomicLong mDroppedFrames = new AtomicLong();
+
+    @Override
+    public void onFrameDrawn(long drawNanos, long frameIntervalNanos) {
+        mFrameTime.record(drawNanos);
+        if (frameIntervalNanos > 0 && drawNanos > frameIntervalNanos) {
+            mDroppedFrames.addAndGet(drawNanos / frameIntervalNanos);
+        }
+    }
+
+    @Override
+    public void onTick(long jitterNanos) {
+        mTickJitter.record(Math.abs(jitterNanos));
+    }
+
+    @Override
+    public void onWaveBufferSize(int size) {
+        mWaveBufferSize.record(size);
+    }
+
+    public LatencyHistogram getFrameTime() {
+        return mFrameTime;
+    }
+
+    public LatencyHistogram getTickJitter() {
+        return mTickJitter;
+    }
+
+    public LatencyHistogram getWaveBufferSize() {
+        return mWaveBufferSize;
+    }
+
+    public long getDroppedFrames() {
+        return mDroppedFrames.get();
+    }
+
+    public void reset() {
+        mFrameTime.reset();
+        mTickJitter.reset();
+        mWaveBufferSize.reset();
+        mDroppedFrames.set(0);
+    }
+
+    public void dump(Writer writer) throws IOException {
+        writer.write("dropped_frames " + getDroppedFrames() + "\n");
+        mFrameTime.dump(writer, NANOS_PER_MILLI, "ms");
+        mTickJitter.dump(writer, NANOS_PER_MILLI, "ms");
+        mWaveBufferSize.dump(writer, 1, "samples");
+    }
+
+    /**
+     * 导出到文件，覆盖已有内容
+     */
+    public void dumpTo(File file) throws IOException {
+        try (Writer writer = new FileWriter(file)) {
+            dump(writer);
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.demo.recordaudio;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * @author : Zach
+ * @desc : HDR风格的对数线性直方图，每个2的幂区间分成16档，相对误差约6%。
+ * 记录只做数组自增，不分配对象，可以在渲染线程和采集线程里使用
+ * @date : 2026/10/18 18:05
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKET_HALF = 1 << SUB_BUCKET_BITS;
+    private static final int SUB_BUCKET_COUNT = SUB_BUCKET_HALF * 2;
+    private static final int BUCKET_COUNT = (64 - SUB_BUCKET_BITS) * SUB_BUCKET_HALF + SUB_BUCKET_HALF;
+
+    private final String mName;
+    private final AtomicLongArray mCounts = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong mTotalCount = new AtomicLong();
+    private final AtomicLong mTotalValue = new AtomicLong();
+    private final AtomicLong mMax = new AtomicLong();
+
+    public LatencyHistogram(String name) {
+        mName = name;
+    }
+
+    public String getName() {
+        return mName;
+    }
+
+    /**
+     * 记录一个值，负数按0处理
+     */
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        mCounts.incrementAndGet(indexOf(value));
+        mTotalCount.incrementAndGet();
+        mTotalValue.addAndGet(value);
+        long max = mMax.get();
+        while (value > max && !mMax.compareAndSet(max, value)) {
+            max = mMax.get();
+        }
+    }
+
+    static int indexOf(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return shift * SUB_BUCKET_HALF + (int) (value >>> shift);
+    }
+
+    /**
+     * 桶的下界
+     */
+    static long lowestValueAt(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int shift = index / SUB_BUCKET_HALF - 1;
+        return (long) (index - shift * SUB_BUCKET_HALF) << shift;
+    }
+
+    /**
+     * 桶的上界，不包含
+     */
+    static long highestValueAt(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index + 1;
+        }
+        int shift = index / SUB_BUCKET_HALF - 1;
+        return lowestValueAt(index) + (1L << shift);
+    }
+
+    public long getCount() {
+        return mTotalCount.get();
+    }
+
+    public long getMax() {
+        return mMax.get();
+    }
+
+    public double getMean() {
+        long count = mTotalCount.get();
+        return count == 0 ? 0 : (double) mTotalValue.get() / count;
+    }
+
+    /**
+     * 百分位值，返回所在桶的上界，不会超过最大值
+     *
+     * @param percentile 0~100
+     */
+    public long getValueAtPercentile(double percentile) {
+        long count = mTotalCount.get();
+        if (count == 0) {
+            return 0;
+        }
+        long target = Math.max(1, (long) Math.ceil(count * Math.min(percentile, 100) / 100));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += mCounts.get(i);
+            if (seen >= target) {
+                return Math.min(highestValueAt(i) - 1, mMax.get());
+            }
+        }
+        return mMax.get();
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            mCounts.set(i, 0);
+        }
+        mTotalCount.set(0);
+        mTotalValue.set(0);
+        mMax.set(0);
+    }
+
+    /**
+     * 输出汇总和非空的桶，每行一个，方便不同设备和版本对比
+     *
+     * @param unit 输出时除以的单位，比如纳秒转毫秒传1000000
+     */
+    public void dump(Writer writer, long unit, String unitName) throws IOException {
+        writer.write(String.format(java.util.Locale.US,
+                "%s count=%d mean=%.3f p50=%.3f p90=%.3f p99=%.3f p99.9=%.3f max=%.3f (%s)%n",
+                mName, getCount(), getMean() / unit,
+                (double) getValueAtPercentile(50) / unit, (double) getValueAtPercentile(90) / unit,
+                (double) getValueAtPercentile(99) / unit, (double) getValueAtPercentile(99.9) / unit,
+                (double) getMax() / unit, unitName));
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            long count = mCounts.get(i);
+            if (count > 0) {
+                writer.write(String.format(java.util.Locale.US, "  [%.3f, %.3f) %d%n",
+                        (double) lowestValueAt(i) / unit, (double) highestValueAt(i) / unit, count));
+            }
+        }
+    }
+}
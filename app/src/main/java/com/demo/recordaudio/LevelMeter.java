@@ -0,0 +1,373 @@
+package com.demo.recordaudio;
+
+import java.nio.ByteBuffer;
+
+/**
+ * @author : Zach
+ * @desc : 电平表，按块计算真峰值、RMS和峰值保持，可选A计权。
+ * process在采集线程调用，只用预先分配的基本类型数组；界面通过{@link #read(Snapshot)}读取最近一次的结果。
+ * 单位都是dBFS，满幅正弦波的峰值是0dBFS，RMS是-3.01dBFS
+ * @date : 2026/10/19 09:10
+ */
+public class LevelMeter {
+
+    /**
+     * 静音时的下限
+     */
+    public static final float FLOOR_DB = -90f;
+    /**
+     * 峰值保持时间
+     */
+    private static final long HOLD_NANOS = 1500000000L;
+    /**
+     * 电平和峰值保持的回落速度
+     */
+    private static final float DECAY_DB_PER_SECOND = 20f;
+    /**
+     * 真峰值按4倍过采样估算，每个相位12个抽头
+     */
+    private static final int OVERSAMPLE = 4;
+    private static final int TAPS = 12;
+    /**
+     * A计权的极点频率，IEC 61672
+     */
+    private static final double A_F1 = 20.598997;
+    private static final double A_F2 = 107.65265;
+    private static final double A_F3 = 737.86223;
+    private static final double A_F4 = 12194.217;
+
+    private final int mSampleRate;
+    private final int mChannelCount;
+
+    /**
+     * 过采样插值滤波器，按相位存放，每个相位TAPS个系数
+     */
+    private final float[] mPhaseCoefs = new float[OVERSAMPLE * TAPS];
+    /**
+     * 每个声道最近TAPS个采样，存两份省掉取模
+     */
+    private final float[] mHistory;
+    private int mHistoryPos;
+
+    /**
+     * A计权的3个二阶节，每节b0、b1、b2、a1、a2
+     */
+    private final double[] mWeighting = new double[3 * 5];
+    /**
+     * 每个声道每节两个状态，直接II型转置
+     */
+    private final double[] mWeightingState;
+    private volatile boolean mAWeighting;
+    private boolean mWeightingActive;
+
+    /**
+     * 采集线程的状态
+     */
+    private float mLevelDb = FLOOR_DB;
+    private float mHoldDb = FLOOR_DB;
+    private long mHoldAgeNanos;
+
+    /**
+     * 发布给界面的结果，版本号为奇数时表示正在写
+     */
+    private volatile int mVersion;
+    private volatile float mPeakDb = FLOOR_DB;
+    private volatile float mTruePeakDb = FLOOR_DB;
+    private volatile float mRmsDb = FLOOR_DB;
+    private volatile float mPublishedLevelDb = FLOOR_DB;
+    private volatile float mPublishedHoldDb = FLOOR_DB;
+
+    public LevelMeter(int sampleRate, int channelCount) {
+        if (sampleRate <= 0 || channelCount <= 0) {
+            throw new IllegalArgumentException("sampleRate=" + sampleRate + ", channelCount=" + channelCount);
+        }
+        mSampleRate = sampleRate;
+        mChannelCount = channelCount;
+        mHistory = new float[channelCount * TAPS * 2];
+        mWeightingState = new double[channelCount * 3 * 2];
+        designInterpolator();
+        designAWeighting();
+    }
+
+    /**
+     * 加窗sinc低通，截止在原采样率的奈奎斯特频率，每个相位归一化到直流增益1
+     */
+    private void designInterpolator() {
+        int length = OVERSAMPLE * TAPS;
+        double center = (length - 1) / 2d;
+        for (int phase = 0; phase < OVERSAMPLE; phase++) {
+            double sum = 0;
+            for (int k = 0; k < TAPS; k++) {
+                int n = phase + k * OVERSAMPLE;
+                double x = (n - center) / OVERSAMPLE;
+                double sinc = x == 0 ? 1 : Math.sin(Math.PI * x) / (Math.PI * x);
+                //Blackman窗
+                double w = 0.42 - 0.5 * Math.cos(2 * Math.PI * n / (length - 1))
+                        + 0.08 * Math.cos(4 * Math.PI * n / (length - 1));
+                mPhaseCoefs[phase * TAPS + k] = (float) (sinc * w);
+                sum += sinc * w;
+            }
+            for (int k = 0; k < TAPS; k++) {
+                mPhaseCoefs[phase * TAPS + k] /= sum;
+            }
+        }
+    }
+
+    /**
+     * 预畸变的双线性变换得到A计权的三个二阶节：两个高通、一个低通，再把1kHz的增益归一化到0dB
+     */
+    private void designAWeighting() {
+        double k = 2d * mSampleRate;
+        double w1 = prewarp(A_F1);
+        double w2 = prewarp(A_F2);
+        double w3 = prewarp(A_F3);
+        double w4 = prewarp(A_F4);
+        // s^2 / (s + w1)^2
+        setSection(0, k * k, -2 * k * k, k * k, k + w1, w1 - k, k + w1, w1 - k);
+        // s^2 / ((s + w2)(s + w3))
+        setSection(1, k * k, -2 * k * k, k * k, k + w2, w2 - k, k + w3, w3 - k);
+        // 1 / (s + w4)^2，分子是(1 + z^-1)^2
+        setSection(2, 1, 2, 1, k + w4, w4 - k, k + w4, w4 - k);
+        double gain = 1 / magnitudeAt(1000);
+        mWeighting[0] *= gain;
+        mWeighting[1] *= gain;
+        mWeighting[2] *= gain;
+    }
+
+    /**
+     * 预畸变，让极点频率在变换后保持不变，否则12kHz的极点在44.1kHz下偏差明显
+     */
+    private double prewarp(double frequency) {
+        return 2d * mSampleRate * Math.tan(Math.PI * frequency / mSampleRate);
+    }
+
+    /**
+     * 分母是两个一阶因子(p0 + p1 z^-1)(q0 + q1 z^-1)的乘积，归一化到a0 = 1
+     */
+    private void setSection(int section, double b0, double b1, double b2, double p0, double p1, double q0, double q1) {
+        double a0 = p0 * q0;
+        double a1 = p0 * q1 + p1 * q0;
+        double a2 = p1 * q1;
+        int i = section * 5;
+        mWeighting[i] = b0 / a0;
+        mWeighting[i + 1] = b1 / a0;
+        mWeighting[i + 2] = b2 / a0;
+        mWeighting[i + 3] = a1 / a0;
+        mWeighting[i + 4] = a2 / a0;
+    }
+
+    /**
+     * A计权滤波器在某个频率的幅度响应
+     */
+    double magnitudeAt(double frequency) {
+        double w = 2 * Math.PI * frequency / mSampleRate;
+        double cos1 = Math.cos(w);
+        double sin1 = Math.sin(w);
+        double cos2 = Math.cos(2 * w);
+        double sin2 = Math.sin(2 * w);
+        double magnitude = 1;
+        for (int section = 0; section < 3; section++) {
+            int i = section * 5;
+            double numRe = mWeighting[i] + mWeighting[i + 1] * cos1 + mWeighting[i + 2] * cos2;
+            double numIm = -mWeighting[i + 1] * sin1 - mWeighting[i + 2] * sin2;
+            double denRe = 1 + mWeighting[i + 3] * cos1 + mWeighting[i + 4] * cos2;
+            double denIm = -mWeighting[i + 3] * sin1 - mWeighting[i + 4] * sin2;
+            magnitude *= Math.sqrt((numRe * numRe + numIm * numIm) / (denRe * denRe + denIm * denIm));
+        }
+        return magnitude;
+    }
+
+    /**
+     * RMS是否使用A计权，下一块数据生效。峰值始终不计权
+     */
+    public void setAWeighting(boolean aWeighting) {
+        mAWeighting = aWeighting;
+    }
+
+    public boolean isAWeighting() {
+        return mAWeighting;
+    }
+
+    /**
+     * 处理一块16bit小端交错的PCM，用绝对位置读取，不改变buffer的position
+     *
+     * @param pcm  从0开始的数据
+     * @param size 字节数
+     */
+    public void process(ByteBuffer pcm, int size) {
+        int frames = size / (2 * mChannelCount);
+        if (frames == 0) {
+            return;
+        }
+        boolean weighting = mAWeighting;
+        if (weighting != mWeightingActive) {
+            mWeightingActive = weighting;
+            for (int i = 0; i < mWeightingState.length; i++) {
+                mWeightingState[i] = 0;
+            }
+        }
+        float samplePeak = 0;
+        float truePeak = 0;
+        double sumSquares = 0;
+        int offset = 0;
+        for (int frame = 0; frame < frames; frame++) {
+            int pos = mHistoryPos;
+            for (int channel = 0; channel < mChannelCount; channel++) {
+                float x = pcm.getShort(offset) / 32768f;
+                offset += 2;
+                float abs = Math.abs(x);
+                if (abs > samplePeak) {
+                    samplePeak = abs;
+                }
+                float interpolated = interpolate(channel, pos, x);
+                if (interpolated > truePeak) {
+                    truePeak = interpolated;
+                }
+                double y = weighting ? weight(channel, x) : x;
+                sumSquares += y * y;
+            }
+            mHistoryPos = pos + 1 == TAPS ? 0 : pos + 1;
+        }
+        double meanSquare = sumSquares / (frames * mChannelCount);
+        long blockNanos = frames * 1000000000L / mSampleRate;
+        publish(toDb(samplePeak), toDb(Math.max(samplePeak, truePeak)), powerToDb(meanSquare), blockNanos);
+    }
+
+    /**
+     * 写入历史并计算各个插值相位的最大绝对值
+     */
+    private float interpolate(int channel, int pos, float x) {
+        int base = channel * TAPS * 2;
+        mHistory[base + pos] = x;
+        mHistory[base + pos + TAPS] = x;
+        //最新的采样在base + pos + TAPS，往前依次是更早的采样
+        int newest = base + pos + TAPS;
+        float max = 0;
+        for (int phase = 0; phase < OVERSAMPLE; phase++) {
+            int c = phase * TAPS;
+            float sum = 0;
+            for (int k = 0; k < TAPS; k++) {
+                sum += mPhaseCoefs[c + k] * mHistory[newest - k];
+            }
+            float abs = Math.abs(sum);
+            if (abs > max) {
+                max = abs;
+            }
+        }
+        return max;
+    }
+
+    private double weight(int channel, double x) {
+        int state = channel * 6;
+        for (int section = 0; section < 3; section++) {
+            int i = section * 5;
+            int s = state + section * 2;
+            double y = mWeighting[i] * x + mWeightingState[s];
+            mWeightingState[s] = mWeighting[i + 1] * x - mWeighting[i + 3] * y + mWeightingState[s + 1];
+            mWeightingState[s + 1] = mWeighting[i + 2] * x - mWeighting[i + 4] * y;
+            x = y;
+        }
+        return x;
+    }
+
+    /**
+     * 更新回落和峰值保持，然后发布结果
+     */
+    private void publish(float peakDb, float truePeakDb, float rmsDb, long blockNanos) {
+        float decay = DECAY_DB_PER_SECOND * blockNanos / 1e9f;
+        mLevelDb = Math.max(rmsDb, Math.max(FLOOR_DB, mLevelDb - decay));
+        if (truePeakDb >= mHoldDb) {
+            mHoldDb = truePeakDb;
+            mHoldAgeNanos = 0;
+        } else {
+            mHoldAgeNanos += blockNanos;
+            if (mHoldAgeNanos > HOLD_NANOS) {
+                mHoldDb = Math.max(truePeakDb, mHoldDb - decay);
+            }
+        }
+        mVersion++;
+        mPeakDb = peakDb;
+        mTruePeakDb = truePeakDb;
+        mRmsDb = rmsDb;
+        mPublishedLevelDb = mLevelDb;
+        mPublishedHoldDb = mHoldDb;
+        mVersion++;
+    }
+
+    /**
+     * 回到静音，只能在没有采集的时候调用
+     */
+    public void reset() {
+        for (int i = 0; i < mHistory.length; i++) {
+            mHistory[i] = 0;
+        }
+        for (int i = 0; i < mWeightingState.length; i++) {
+            mWeightingState[i] = 0;
+        }
+        mLevelDb = FLOOR_DB;
+        mHoldDb = FLOOR_DB;
+        mHoldAgeNanos = 0;
+        publish(FLOOR_DB, FLOOR_DB, FLOOR_DB, 0);
+    }
+
+    /**
+     * 读取最近一次的结果，任意线程调用，不分配对象
+     */
+    public void read(Snapshot out) {
+        while (true) {
+            int version = mVersion;
+            if ((version & 1) != 0) {
+                Thread.yield();
+                continue;
+            }
+            out.peakDb = mPeakDb;
+            out.truePeakDb = mTruePeakDb;
+            out.rmsDb = mRmsDb;
+            out.levelDb = mPublishedLevelDb;
+            out.holdDb = mPublishedHoldDb;
+            if (version == mVersion) {
+                return;
+            }
+        }
+    }
+
+    private static float toDb(float amplitude) {
+        if (amplitude <= 0) {
+            return FLOOR_DB;
+        }
+        return Math.max(FLOOR_DB, (float) (20 * Math.log10(amplitude)));
+    }
+
+    private static float powerToDb(double power) {
+        if (power <= 0) {
+            return FLOOR_DB;
+        }
+        return Math.max(FLOOR_DB, (float) (10 * Math.log10(power)));
+    }
+
+    /**
+     * 一次读取的结果，由调用方复用
+     */
+    public static class Snapshot {
+        /**
+         * 采样峰值
+         */
+        public float peakDb = FLOOR_DB;
+        /**
+         * 4倍过采样估算的真峰值，不低于采样峰值
+         */
+        public float truePeakDb = FLOOR_DB;
+        /**
+         * 这一块的RMS，开启A计权时是计权后的
+         */
+        public float rmsDb = FLOOR_DB;
+        /**
+         * 表头显示的电平：RMS立即上升，按固定速度回落
+         */
+        public float levelDb = FLOOR_DB;
+        /**
+         * 峰值保持
+         */
+        public float holdDb = FLOOR_DB;
+    }
+}
@@ -0,0 +1,111 @@
+package com.demo.recordaudio;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @author : Zach
+ * @desc : 单生产者单消费者的无锁电平队列，采集线程写入，UI线程读取。数据放在基本类型数组里，不分配对象
+ * @date : 2026/10/18 11:20
+ */
+public class LevelQueue {
+
+    private final int mMask;
+    private final float[] mRms;
+    private final float[] mPeak;
+    private final long[] mTime;
+    /**
+     * 消费者读取位置
+     */
+    private final AtomicLong mHead = new AtomicLong();
+    /**
+     * 生产者写入位置
+     */
+    private final AtomicLong mTail = new AtomicLong();
+    /**
+     * 生产者缓存的读取位置，减少对mHead的volatile读
+     */
+    private long mHeadCache;
+    /**
+     * 队列满时丢弃的个数，只有生产者写
+     */
+    private volatile long mDropped;
+
+    /**
+     * @param capacity 容量，向上取整到2的幂
+     */
+    public LevelQueue(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be > 0, was " + capacity);
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        mMask = size - 1;
+        mRms = new float[size];
+        mPeak = new float[size];
+        mTime = new long[size];
+    }
+
+    /**
+     * 生产者调用，队列满时直接丢弃，不会阻塞
+     *
+     * @param rms       均方根电平，0~1
+     * @param peak      峰值电平，0~1
+     * @param timeNanos 这一块数据在音频时间轴上的位置
+     * @return 是否写入成功
+     */
+    public boolean offer(float rms, float peak, long timeNanos) {
+        long tail = mTail.get();
+        int capacity = mMask + 1;
+        if (tail - mHeadCache >= capacity) {
+            mHeadCache = mHead.get();
+            if (tail - mHeadCache >= capacity) {
+                mDropped++;
+                return false;
+            }
+        }
+        int index = (int) tail & mMask;
+        mRms[index] = rms;
+        mPeak[index] = peak;
+        mTime[index] = timeNanos;
+        mTail.lazySet(tail + 1);
+        return true;
+    }
+
+    /**
+     * 消费者调用，取出当前所有数据
+     *
+     * @param consumer 回调
+     * @return 取出的个数
+     */
+    public int drain(Consumer consumer) {
+        long head = mHead.get();
+        long tail = mTail.get();
+        int count = 0;
+        while (head < tail) {
+            int index = (int) head & mMask;
+            consumer.onLevel(mRms[index], mPeak[index], mTime[index]);
+            head++;
+            count++;
+        }
+        mHead.lazySet(head);
+        return count;
+    }
+
+    public int size() {
+        return (int) (mTail.get() - mHead.get());
+    }
+
+    public int capacity() {
+        return mMask + 1;
+    }
+
+    public long getDroppedCount() {
+        return mDropped;
+    }
+
+    public interface Consumer {
+        void onLevel(float rms, float peak, long timeNanos);
+    }
+}
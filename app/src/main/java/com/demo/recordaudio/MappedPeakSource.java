@@ -0,0 +1,140 @@
+package com.demo.recordaudio;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * @author : Zach
+ * @desc : 通过MappedByteBuffer读取峰值文件，打开时只解析文件头，查询时只会缺页加载屏幕上用到的区域
+ * @date : 2026/10/18 16:20
+ */
+public class MappedPeakSource implements PeakSource, Closeable {
+
+    private final RandomAccessFile mFile;
+    private final MappedByteBuffer mBuffer;
+    private final int mSampleRate;
+    private final int mChannelCount;
+    private final int mSamplesPerBin;
+    private final long mBinCount;
+    /**
+     * 每级的数据，以short为单位，min/max交替
+     */
+    private final ShortBuffer[] mLevels;
+
+    public MappedPeakSource(File file) throws IOException {
+        mFile = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = mFile.getChannel();
+            mBuffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            mBuffer.order(ByteOrder.LITTLE_ENDIAN);
+            if (mBuffer.capacity() < PeakFile.HEADER_SIZE || mBuffer.getInt(0) != PeakFile.MAGIC) {
+                throw new IOException("not a peak file: " + file);
+            }
+            int version = mBuffer.getShort(4);
+            if (version != PeakFile.VERSION) {
+                throw new IOException("unsupported peak file version " + version + ": " + file);
+            }
+            int levelCount = mBuffer.getShort(6);
+            mSampleRate = mBuffer.getInt(8);
+            mChannelCount = mBuffer.getInt(12);
+            mSamplesPerBin = mBuffer.getInt(16);
+            mBinCount = mBuffer.getLong(24);
+            mLevels = new ShortBuffer[levelCount];
+            for (int level = 0; level < levelCount; level++) {
+                int entry = PeakFile.HEADER_SIZE + level * PeakFile.LEVEL_ENTRY_SIZE;
+                long offset = mBuffer.getLong(entry);
+                long count = mBuffer.getLong(entry + 8);
+                if (offset + count * PeakFile.BIN_SIZE > mBuffer.capacity()) {
+                    throw new IOException("truncated peak file: " + file);
+                }
+                mBuffer.position((int) offset);
+                mBuffer.limit((int) (offset + count * PeakFile.BIN_SIZE));
+                mLevels[level] = mBuffer.slice().order(ByteOrder.LITTLE_ENDIAN).asShortBuffer();
+                mBuffer.clear();
+            }
+        } catch (IOException | RuntimeException e) {
+            mFile.close();
+            throw e;
+        }
+    }
+
+    public int getSampleRate() {
+        return mSampleRate;
+    }
+
+    public int getChannelCount() {
+        return mChannelCount;
+    }
+
+    public int getSamplesPerBin() {
+        return mSamplesPerBin;
+    }
+
+    /**
+     * 音频时长，单位毫秒
+     */
+    public long getDurationMs() {
+        return mBinCount * mSamplesPerBin * 1000L / mSampleRate;
+    }
+
+    @Override
+    public long getBinCount() {
+        return mBinCount;
+    }
+
+    @Override
+    public int query(long startBin, long endBin, int columns, short[] outMin, short[] outMax) {
+        if (startBin < 0) {
+            startBin = 0;
+        }
+        if (endBin > mBinCount) {
+            endBin = mBinCount;
+        }
+        if (columns <= 0 || startBin >= endBin || mLevels.length == 0) {
+            return 0;
+        }
+        long span = endBin - startBin;
+        // 选每列至少覆盖一个bin的最粗的一级
+        int level = 0;
+        while (level + 1 < mLevels.length && (span / columns) >> (level + 1) > 0) {
+            level++;
+        }
+        ShortBuffer bins = mLevels[level];
+        long levelCount = mBinCount >> level;
+        for (int c = 0; c < columns; c++) {
+            long from = (startBin + span * c / columns) >> level;
+            long to = (startBin + span * (c + 1) / columns + (1L << level) - 1) >> level;
+            if (to <= from) {
+                to = from + 1;
+            }
+            if (to > levelCount) {
+                to = levelCount;
+            }
+            int min = Short.MAX_VALUE;
+            int max = Short.MIN_VALUE;
+            for (long i = from; i < to; i++) {
+                int index = (int) (i * 2);
+                min = Math.min(min, bins.get(index));
+                max = Math.max(max, bins.get(index + 1));
+            }
+            if (from >= to) {
+                min = 0;
+                max = 0;
+            }
+            outMin[c] = (short) min;
+            outMax[c] = (short) max;
+        }
+        return columns;
+    }
+
+    @Override
+    public void close() throws IOException {
+        mFile.close();
+    }
+}
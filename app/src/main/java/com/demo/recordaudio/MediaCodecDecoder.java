@@ -0,0 +1,222 @@
+package com.demo.recordaudio;
+
+import android.media.MediaCodec;
+import android.media.MediaExtractor;
+import android.media.MediaFormat;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ShortBuffer;
+
+/**
+ * @author : Zach
+ * @desc : MediaExtractor加MediaCodec同步模式解码压缩音频(AAC/M4A/MP3等)，解码器的输出缓冲区直接拷给调用方，
+ * 一块没读完时留到下一次read，整个文件的PCM不会同时在内存里
+ * @date : 2026/10/19 11:20
+ */
+public class MediaCodecDecoder implements AudioDecoder {
+
+    private static final long TIMEOUT_US = 10000;
+
+    private final MediaExtractor mExtractor;
+    private final MediaCodec mCodec;
+    private final MediaCodec.BufferInfo mInfo = new MediaCodec.BufferInfo();
+    private final long mDurationUs;
+    private int mSampleRate;
+    private int mChannelCount;
+    private boolean mInputDone;
+    private boolean mOutputDone;
+    /**
+     * 还没读完的输出缓冲区，-1表示没有
+     */
+    private int mOutputIndex = -1;
+    private ShortBuffer mOutput;
+    /**
+     * seek的目标时间，同步帧和目标之间解出来的数据丢掉，-1表示没有
+     */
+    private long mSeekTargetUs = -1;
+
+    public MediaCodecDecoder(File file) throws IOException {
+        mExtractor = new MediaExtractor();
+        MediaCodec codec = null;
+        try {
+            mExtractor.setDataSource(file.getPath());
+            int track = selectAudioTrack(mExtractor);
+            if (track < 0) {
+                throw new IOException("no audio track: " + file);
+            }
+            mExtractor.selectTrack(track);
+            MediaFormat format = mExtractor.getTrackFormat(track);
+            mSampleRate = format.getInteger(MediaFormat.KEY_SAMPLE_RATE);
+            mChannelCount = format.getInteger(MediaFormat.KEY_CHANNEL_COUNT);
+            mDurationUs = format.containsKey(MediaFormat.KEY_DURATION) ? format.getLong(MediaFormat.KEY_DURATION) : -1;
+            codec = MediaCodec.createDecoderByType(format.getString(MediaFormat.KEY_MIME));
+            codec.configure(format, null, null, 0);
+            codec.start();
+        } catch (IOException | RuntimeException e) {
+            if (codec != null) {
+                codec.release();
+            }
+            mExtractor.release();
+            throw e instanceof IOException ? (IOException) e : new IOException("open decoder failed: " + file, e);
+        }
+        mCodec = codec;
+    }
+
+    private static int selectAudioTrack(MediaExtractor extractor) {
+        for (int i = 0; i < extractor.getTrackCount(); i++) {
+            String mime = extractor.getTrackFormat(i).getString(MediaFormat.KEY_MIME);
+            if (mime != null && mime.startsWith("audio/")) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public int getSampleRate() {
+        return mSampleRate;
+    }
+
+    @Override
+    public int getChannelCount() {
+        return mChannelCount;
+    }
+
+    @Override
+    public long getDurationUs() {
+        return mDurationUs;
+    }
+
+    @Override
+    public int read(short[] buffer, int offset, int length) throws IOException {
+        while (true) {
+            if (mOutput != null) {
+                int count = Math.min(mOutput.remaining(), length) / mChannelCount * mChannelCount;
+                if (count <= 0) {
+                    throw new IllegalArgumentException("length must hold at least one frame, was " + length);
+                }
+                mOutput.get(buffer, offset, count);
+                if (mOutput.remaining() < mChannelCount) {
+                    releaseOutput();
+                }
+                return count;
+            }
+            if (mOutputDone) {
+                return -1;
+            }
+            try {
+                if (!mInputDone) {
+                    feedInput();
+                }
+                drainOutput();
+            } catch (IllegalStateException e) {
+                throw new IOException("decode failed", e);
+            }
+        }
+    }
+
+    /**
+     * 解封装器跳到目标之前的同步帧，清空解码器，之后解出来的数据丢到目标时间为止
+     */
+    @Override
+    public void seekTo(long frame) throws IOException {
+        long targetUs = Math.max(0, frame) * 1000000L / mSampleRate;
+        try {
+            releaseOutput();
+            mExtractor.seekTo(targetUs, MediaExtractor.SEEK_TO_PREVIOUS_SYNC);
+            mCodec.flush();
+        } catch (IllegalStateException e) {
+            throw new IOException("seek failed", e);
+        }
+        mInputDone = false;
+        mOutputDone = false;
+        mSeekTargetUs = targetUs;
+    }
+
+    private void feedInput() {
+        int index = mCodec.dequeueInputBuffer(TIMEOUT_US);
+        if (index < 0) {
+            return;
+        }
+        ByteBuffer input = mCodec.getInputBuffer(index);
+        int size = input == null ? -1 : mExtractor.readSampleData(input, 0);
+        if (size < 0) {
+            mCodec.queueInputBuffer(index, 0, 0, 0, MediaCodec.BUFFER_FLAG_END_OF_STREAM);
+            mInputDone = true;
+        } else {
+            mCodec.queueInputBuffer(index, 0, size, mExtractor.getSampleTime(), 0);
+            mExtractor.advance();
+        }
+    }
+
+    private void drainOutput() {
+        int index = mCodec.dequeueOutputBuffer(mInfo, TIMEOUT_US);
+        if (index == MediaCodec.INFO_OUTPUT_FORMAT_CHANGED) {
+            // 以解码器实际输出为准
+            MediaFormat format = mCodec.getOutputFormat();
+            mSampleRate = format.getInteger(MediaFormat.KEY_SAMPLE_RATE);
+            mChannelCount = format.getInteger(MediaFormat.KEY_CHANNEL_COUNT);
+            return;
+        }
+        if (index < 0) {
+            return;
+        }
+        if ((mInfo.flags & MediaCodec.BUFFER_FLAG_END_OF_STREAM) != 0) {
+            mOutputDone = true;
+        }
+        ByteBuffer output = mCodec.getOutputBuffer(index);
+        if (output == null || mInfo.size < 2 * mChannelCount) {
+            mCodec.releaseOutputBuffer(index, false);
+            return;
+        }
+        output.position(mInfo.offset);
+        output.limit(mInfo.offset + mInfo.size);
+        mOutputIndex = index;
+        mOutput = output.slice().order(ByteOrder.nativeOrder()).asShortBuffer();
+        if (mSeekTargetUs >= 0) {
+            skipToSeekTarget();
+        }
+    }
+
+    /**
+     * 丢掉当前输出里目标时间之前的帧，整块都在目标之前时直接释放
+     */
+    private void skipToSeekTarget() {
+        long skipFrames = (mSeekTargetUs - mInfo.presentationTimeUs) * mSampleRate / 1000000L;
+        if (skipFrames <= 0) {
+            mSeekTargetUs = -1;
+            return;
+        }
+        long skipSamples = skipFrames * mChannelCount;
+        if (skipSamples + mChannelCount > mOutput.remaining()) {
+            releaseOutput();
+            return;
+        }
+        mOutput.position(mOutput.position() + (int) skipSamples);
+        mSeekTargetUs = -1;
+    }
+
+    private void releaseOutput() {
+        if (mOutputIndex >= 0) {
+            mCodec.releaseOutputBuffer(mOutputIndex, false);
+            mOutputIndex = -1;
+        }
+        mOutput = null;
+    }
+
+    @Override
+    public void close() {
+        try {
+            releaseOutput();
+            mCodec.stop();
+        } catch (IllegalStateException ignored) {
+            // 解码出错后codec可能已经不能stop
+        } finally {
+            mCodec.release();
+            mExtractor.release();
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.demo.recordaudio;
+
+import android.media.AudioFormat;
+import android.media.AudioRecord;
+import android.media.MediaRecorder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * @author : Zach
+ * @desc : 基于AudioRecord的麦克风输入，需要RECORD_AUDIO权限
+ * @date : 2026/10/18 11:12
+ */
+public class MicAudioSource implements AudioSource {
+
+    private static final int DEFAULT_SAMPLE_RATE = 44100;
+    /**
+     * 每次读取约20ms的数据
+     */
+    private static final int BLOCK_MILLISECOND = 20;
+
+    private final int mSampleRate;
+    private final int mChannelCount;
+    private final int mBufferSize;
+    private AudioRecord mAudioRecord;
+
+    public MicAudioSource() {
+        this(DEFAULT_SAMPLE_RATE, 1);
+    }
+
+    public MicAudioSource(int sampleRate, int channelCount) {
+        mSampleRate = sampleRate;
+        mChannelCount = channelCount;
+        int frameSize = 2 * channelCount;
+        mBufferSize = sampleRate * BLOCK_MILLISECOND / 1000 * frameSize;
+    }
+
+    @Override
+    public int getSampleRate() {
+        return mSampleRate;
+    }
+
+    @Override
+    public int getChannelCount() {
+        return mChannelCount;
+    }
+
+    @Override
+    public int getBufferSize() {
+        return mBufferSize;
+    }
+
+    @Override
+    public void start() throws IOException {
+        if (mAudioRecord == null) {
+            int channelConfig = mChannelCount == 1 ? AudioFormat.CHANNEL_IN_MONO : AudioFormat.CHANNEL_IN_STEREO;
+            int minSize = AudioRecord.getMinBufferSize(mSampleRate, channelConfig, AudioFormat.ENCODING_PCM_16BIT);
+            if (minSize <= 0) {
+                throw new IOException("unsupported format, sampleRate=" + mSampleRate + ", channels=" + mChannelCount);
+            }
+            mAudioRecord = new AudioRecord(MediaRecorder.AudioSource.MIC, mSampleRate, channelConfig,
+                    AudioFormat.ENCODING_PCM_16BIT, Math.max(minSize, mBufferSize * 2));
+            if (mAudioRecord.getState() != AudioRecord.STATE_INITIALIZED) {
+                mAudioRecord.release();
+                mAudioRecord = null;
+                throw new IOException("AudioRecord init failed");
+            }
+        }
+        mAudioRecord.startRecording();
+    }
+
+    @Override
+    public int read(ByteBuffer buffer, int size) {
+        if (mAudioRecord == null) {
+            return -1;
+        }
+        return mAudioRecord.read(buffer, size);
+    }
+
+    @Override
+    public void stop() {
+        if (mAudioRecord != null && mAudioRecord.getRecordingState() == AudioRecord.RECORDSTATE_RECORDING) {
+            mAudioRecord.stop();
+        }
+    }
+
+    @Override
+    public void release() {
+        if (mAudioRecord != null) {
+            stop();
+            mAudioRecord.release();
+            mAudioRecord = null;
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.demo.recordaudio;
+
+import java.util.Arrays;
+
+/**
+ * @author : Zach
+ * @desc : 不出声的输出，写入的数据立即算作已播放，不阻塞。可以选择保留写入的数据，
+ * JVM测试里代替AudioTrackSink检查播放引擎输出的PCM和时钟
+ * @date : 2026/10/19 17:05
+ */
+public class NullAudioSink implements AudioSink {
+
+    private final boolean mKeepData;
+    private short[] mData = new short[0];
+    private int mDataLength;
+    private int mChannelCount = 1;
+    private long mPlayedFrames;
+    private boolean mPlaying;
+    private int mFlushCount;
+
+    public NullAudioSink() {
+        this(false);
+    }
+
+    /**
+     * @param keepData 是否保留写入的数据，flush时不清空
+     */
+    public NullAudioSink(boolean keepData) {
+        mKeepData = keepData;
+    }
+
+    @Override
+    public synchronized void open(int sampleRate, int channelCount) {
+        mChannelCount = channelCount;
+        mPlayedFrames = 0;
+        mPlaying = false;
+    }
+
+    @Override
+    public synchronized void play() {
+        mPlaying = true;
+    }
+
+    @Override
+    public synchronized void pause() {
+        mPlaying = false;
+    }
+
+    @Override
+    public synchronized int write(short[] pcm, int offset, int length) {
+        if (mKeepData) {
+            if (mDataLength + length > mData.length) {
+                mData = Arrays.copyOf(mData, Math.max(mData.length * 2, mDataLength + length));
+            }
+            System.arraycopy(pcm, offset, mData, mDataLength, length);
+            mDataLength += length;
+        }
+        mPlayedFrames += length / mChannelCount;
+        return length;
+    }
+
+    @Override
+    public synchronized void flush() {
+        mPlayedFrames = 0;
+        mFlushCount++;
+    }
+
+    @Override
+    public synchronized long getPlayedFrames() {
+        return mPlayedFrames;
+    }
+
+    @Override
+    public void close() {
+    }
+
+    public synchronized boolean isPlaying() {
+        return mPlaying;
+    }
+
+    public synchronized int getFlushCount() {
+        return mFlushCount;
+    }
+
+    /**
+     * 保留的全部数据的拷贝
+     */
+    public synchronized short[] getData() {
+        return Arrays.copyOf(mData, mDataLength);
+    }
+}
@@ -0,0 +1,202 @@
+package com.demo.recordaudio;
+
+import com.demo.audiocore.PcmKernels;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * @author : Zach
+ * @desc : 多线程提取WAV文件的峰值。data块按bin对齐切成互不重叠的字节区间，在ForkJoinPool上分治，
+ * 每个区间单独映射一段MappedByteBuffer，算出的第0级bin直接写到结果数组的对应位置，最后一次性构建金字塔。
+ * 适合打开很长的录音，压缩格式仍然用PeakLoader顺序解码
+ * @date : 2026/10/19 13:20
+ */
+public class ParallelPeakExtractor {
+
+    /**
+     * 每个叶子任务默认最多处理的bin数，256帧一个bin时单声道约8MB
+     */
+    private static final int DEFAULT_LEAF_BINS = 16 * 1024;
+    /**
+     * 叶子任务每次从映射区拷出来的bin数
+     */
+    private static final int COPY_BINS = 64;
+
+    private final ForkJoinPool mPool;
+    private final int mSamplesPerBin;
+    private final int mLeafBins;
+
+    /**
+     * 按CPU核数创建
+     */
+    public ParallelPeakExtractor() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public ParallelPeakExtractor(int parallelism) {
+        this(parallelism, PeakLoader.SAMPLES_PER_BIN);
+    }
+
+    public ParallelPeakExtractor(int parallelism, int samplesPerBin) {
+        this(parallelism, samplesPerBin, DEFAULT_LEAF_BINS);
+    }
+
+    /**
+     * @param leafBins 每个叶子任务最多处理的bin数，测试时调小来覆盖拆分的逻辑
+     */
+    ParallelPeakExtractor(int parallelism, int samplesPerBin, int leafBins) {
+        if (samplesPerBin <= 0) {
+            throw new IllegalArgumentException("samplesPerBin must be > 0, was " + samplesPerBin);
+        }
+        if (leafBins <= 0) {
+            throw new IllegalArgumentException("leafBins must be > 0, was " + leafBins);
+        }
+        mPool = new ForkJoinPool(parallelism);
+        mSamplesPerBin = samplesPerBin;
+        mLeafBins = leafBins;
+    }
+
+    /**
+     * 只支持16bit的WAV
+     */
+    public static boolean canExtract(File file) {
+        return file.getName().toLowerCase().endsWith(".wav");
+    }
+
+    public int getParallelism() {
+        return mPool.getParallelism();
+    }
+
+    /**
+     * 关闭线程池，之后不能再使用
+     */
+    public void shutdown() {
+        mPool.shutdownNow();
+    }
+
+    public PeakPyramid extract(File wav) throws IOException {
+        return extract(wav, null);
+    }
+
+    /**
+     * 提取整个文件的峰值，阻塞到全部完成
+     *
+     * @param signal 取消后extract抛出InterruptedIOException，可以为null
+     */
+    public PeakPyramid extract(File wav, CancelSignal signal) throws IOException {
+        if (signal != null) {
+            signal.throwIfCancelled("peak extraction cancelled");
+        }
+        try (RandomAccessFile file = new RandomAccessFile(wav, "r")) {
+            FileChannel channel = file.getChannel();
+            WavHeader header = WavHeader.read(channel);
+            if (header.bitsPerSample != 16) {
+                throw new IOException("only 16bit wav is supported, was " + header.bitsPerSample);
+            }
+            long frames = header.getFrameCount();
+            long binCount = (frames + mSamplesPerBin - 1) / mSamplesPerBin;
+            if (binCount > Integer.MAX_VALUE) {
+                throw new IOException("too many bins: " + binCount);
+            }
+            short[] mins = new short[(int) binCount];
+            short[] maxs = new short[(int) binCount];
+            RangeTask task = new RangeTask(signal, channel, header, frames, mins, maxs, 0, (int) binCount);
+            try {
+                mPool.invoke(task);
+            } catch (CancellationException e) {
+                throw new InterruptedIOException("peak extraction cancelled");
+            } catch (RuntimeException e) {
+                // 工作线程的IO异常包在RuntimeException里，ForkJoinPool可能还会再包一层
+                for (Throwable cause = e.getCause(); cause != null; cause = cause.getCause()) {
+                    if (cause instanceof IOException) {
+                        throw (IOException) cause;
+                    }
+                }
+                throw e;
+            }
+            PeakPyramid pyramid = new PeakPyramid(mSamplesPerBin);
+            pyramid.appendBins(mins, maxs, 0, mins.length);
+            return pyramid;
+        }
+    }
+
+    /**
+     * 负责[fromBin, toBin)，超过mLeafBins时对半拆开
+     */
+    private class RangeTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final CancelSignal mSignal;
+        private final FileChannel mChannel;
+        private final WavHeader mHeader;
+        private final long mFrames;
+        private final short[] mMins;
+        private final short[] mMaxs;
+        private final int mFromBin;
+        private final int mToBin;
+
+        RangeTask(CancelSignal signal, FileChannel channel, WavHeader header, long frames, short[] mins,
+                  short[] maxs, int fromBin, int toBin) {
+            mSignal = signal;
+            mChannel = channel;
+            mHeader = header;
+            mFrames = frames;
+            mMins = mins;
+            mMaxs = maxs;
+            mFromBin = fromBin;
+            mToBin = toBin;
+        }
+
+        @Override
+        protected void compute() {
+            if (mSignal != null && mSignal.isCancelled()) {
+                throw new CancellationException();
+            }
+            if (mToBin - mFromBin > mLeafBins) {
+                int middle = (mFromBin + mToBin) >>> 1;
+                invokeAll(new RangeTask(mSignal, mChannel, mHeader, mFrames, mMins, mMaxs, mFromBin, middle),
+                        new RangeTask(mSignal, mChannel, mHeader, mFrames, mMins, mMaxs, middle, mToBin));
+                return;
+            }
+            try {
+                reduce();
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        private void reduce() throws IOException {
+            int channels = mHeader.channelCount;
+            int frameSize = mHeader.getFrameSize();
+            long fromFrame = (long) mFromBin * mSamplesPerBin;
+            long toFrame = Math.min((long) mToBin * mSamplesPerBin, mFrames);
+            MappedByteBuffer mapped = mChannel.map(FileChannel.MapMode.READ_ONLY,
+                    mHeader.dataOffset + fromFrame * frameSize, (toFrame - fromFrame) * frameSize);
+            ShortBuffer samples = mapped.order(ByteOrder.LITTLE_ENDIAN).asShortBuffer();
+            int binSamples = mSamplesPerBin * channels;
+            short[] chunk = new short[COPY_BINS * binSamples];
+            int bin = mFromBin;
+            while (samples.hasRemaining()) {
+                int count = Math.min(chunk.length, samples.remaining());
+                samples.get(chunk, 0, count);
+                for (int offset = 0; offset < count; offset += binSamples) {
+                    int packed = PcmKernels.minMax(chunk, offset, Math.min(binSamples, count - offset));
+                    mMins[bin] = PcmKernels.unpackMin(packed);
+                    mMaxs[bin] = PcmKernels.unpackMax(packed);
+                    bin++;
+                }
+            }
+        }
+    }
+}
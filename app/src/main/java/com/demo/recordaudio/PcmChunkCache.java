@@ -0,0 +1,203 @@
+package com.demo.recordaudio;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ShortBuffer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * @author : Zach
+ * @desc : 解码后PCM块的LRU缓存，按(文件, 块起始帧)查找，总大小不超过预算，超出时淘汰最久没用的块。
+ * 数据放在direct ByteBuffer里，不占Java堆，缓存满了也不会让界面线程频繁GC；淘汰的buffer优先给新块复用。
+ * 进程内共用一个{@link #getShared()}，重新打开同一个录音或者来回拖动指示器时不用再解码。
+ * 所有方法都加锁，解码和播放线程可以同时使用，读写时拷贝数据，不会拿到已经被复用的buffer
+ * @date : 2026/10/19 18:20
+ */
+public class PcmChunkCache {
+
+    /**
+     * 共用缓存的预算，16MB大约是立体声44.1kHz的一分半钟
+     */
+    public static final long DEFAULT_BUDGET_BYTES = 16L * 1024 * 1024;
+
+    private static PcmChunkCache sShared;
+
+    private final long mBudgetBytes;
+    private final LinkedHashMap<Key, ByteBuffer> mChunks = new LinkedHashMap<>(16, 0.75f, true);
+    private long mSizeBytes;
+    private long mHitCount;
+    private long mMissCount;
+    private long mEvictionCount;
+
+    public PcmChunkCache(long budgetBytes) {
+        if (budgetBytes <= 0) {
+            throw new IllegalArgumentException("budgetBytes=" + budgetBytes);
+        }
+        mBudgetBytes = budgetBytes;
+    }
+
+    /**
+     * 进程内共用的缓存，各个裁剪界面之间共享
+     */
+    public static synchronized PcmChunkCache getShared() {
+        if (sShared == null) {
+            sShared = new PcmChunkCache(DEFAULT_BUDGET_BYTES);
+        }
+        return sShared;
+    }
+
+    /**
+     * 文件的缓存键，带上长度和修改时间，文件被覆盖后不会读到旧数据
+     */
+    public static String keyOf(File file) {
+        return file.getAbsolutePath() + ':' + file.length() + ':' + file.lastModified();
+    }
+
+    /**
+     * 拷出缓存的块
+     *
+     * @param out        输出的16bit交错PCM，长度不够时只拷出块的开头
+     * @param maxSamples 最多拷出的采样数
+     * @return 拷出的采样数，没有缓存时返回-1
+     */
+    public synchronized int read(String file, long chunkFrame, short[] out, int offset, int maxSamples) {
+        ByteBuffer chunk = mChunks.get(new Key(file, chunkFrame));
+        if (chunk == null) {
+            mMissCount++;
+            return -1;
+        }
+        mHitCount++;
+        ShortBuffer samples = chunk.asShortBuffer();
+        int count = Math.min(samples.remaining(), maxSamples);
+        samples.get(out, offset, count);
+        return count;
+    }
+
+    /**
+     * 缓存一块数据，已有同一块时替换。单块超过整个预算时不缓存
+     *
+     * @param length 采样数
+     */
+    public synchronized void put(String file, long chunkFrame, short[] pcm, int offset, int length) {
+        int bytes = length * 2;
+        if (length <= 0 || bytes > mBudgetBytes) {
+            return;
+        }
+        Key key = new Key(file, chunkFrame);
+        ByteBuffer old = mChunks.remove(key);
+        if (old != null) {
+            mSizeBytes -= old.capacity();
+        }
+        ByteBuffer reuse = evict(mBudgetBytes - bytes, bytes);
+        if (reuse == null && old != null && old.capacity() == bytes) {
+            reuse = old;
+        }
+        ByteBuffer chunk;
+        if (reuse != null) {
+            chunk = reuse;
+            chunk.clear();
+        } else {
+            chunk = ByteBuffer.allocateDirect(bytes).order(ByteOrder.nativeOrder());
+        }
+        chunk.asShortBuffer().put(pcm, offset, length);
+        chunk.limit(bytes);
+        mChunks.put(key, chunk);
+        mSizeBytes += chunk.capacity();
+    }
+
+    /**
+     * 丢掉一个文件的所有块，比如文件被删除或者重新录制
+     */
+    public synchronized void invalidate(String file) {
+        Iterator<Map.Entry<Key, ByteBuffer>> iterator = mChunks.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Key, ByteBuffer> entry = iterator.next();
+            if (entry.getKey().file.equals(file)) {
+                mSizeBytes -= entry.getValue().capacity();
+                iterator.remove();
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        mChunks.clear();
+        mSizeBytes = 0;
+    }
+
+    /**
+     * 淘汰最久没用的块，直到总大小不超过limit
+     *
+     * @return 淘汰的块里容量正好是reuseBytes的一个，给新块复用；没有时返回null
+     */
+    private ByteBuffer evict(long limit, int reuseBytes) {
+        ByteBuffer reuse = null;
+        Iterator<ByteBuffer> iterator = mChunks.values().iterator();
+        while (mSizeBytes > limit && iterator.hasNext()) {
+            ByteBuffer chunk = iterator.next();
+            iterator.remove();
+            mSizeBytes -= chunk.capacity();
+            mEvictionCount++;
+            if (reuse == null && chunk.capacity() == reuseBytes) {
+                reuse = chunk;
+            }
+        }
+        return reuse;
+    }
+
+    public long getBudgetBytes() {
+        return mBudgetBytes;
+    }
+
+    /**
+     * 缓存占用的direct内存
+     */
+    public synchronized long getSizeBytes() {
+        return mSizeBytes;
+    }
+
+    public synchronized int getChunkCount() {
+        return mChunks.size();
+    }
+
+    public synchronized long getHitCount() {
+        return mHitCount;
+    }
+
+    public synchronized long getMissCount() {
+        return mMissCount;
+    }
+
+    public synchronized long getEvictionCount() {
+        return mEvictionCount;
+    }
+
+    private static final class Key {
+        final String file;
+        final long frame;
+
+        Key(String file, long frame) {
+            this.file = file;
+            this.frame = frame;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return frame == key.frame && file.equals(key.file);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * file.hashCode() + (int) (frame ^ (frame >>> 32));
+        }
+    }
+}
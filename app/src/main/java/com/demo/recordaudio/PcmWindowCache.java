@@ -0,0 +1,115 @@
+package com.demo.recordaudio;
+
+/**
+ * @author : Zach
+ * @desc : 指示器附近已解码PCM的窗口，连续的[start, end)帧存在环形数组里，追加超出容量时丢掉最旧的帧。
+ * 播放引擎往前解码时追加，已经播过的几秒留在窗口里，来回拖动指示器时直接从内存读，不用让解码器重新seek。
+ * 不加锁，只在播放线程使用
+ * @date : 2026/10/19 17:20
+ */
+public class PcmWindowCache {
+
+    private final int mChannelCount;
+    private final short[] mData;
+    private final int mCapacityFrames;
+    /**
+     * 窗口第一帧的序号，和它在环形数组里的位置
+     */
+    private long mStartFrame;
+    private int mStartIndex;
+    private int mFrameCount;
+
+    /**
+     * @param capacityFrames 最多保留的帧数
+     */
+    public PcmWindowCache(int capacityFrames, int channelCount) {
+        if (capacityFrames <= 0 || channelCount <= 0) {
+            throw new IllegalArgumentException("capacityFrames=" + capacityFrames + ", channelCount=" + channelCount);
+        }
+        mChannelCount = channelCount;
+        mCapacityFrames = capacityFrames;
+        mData = new short[capacityFrames * channelCount];
+    }
+
+    public int getChannelCount() {
+        return mChannelCount;
+    }
+
+    public int getCapacityFrames() {
+        return mCapacityFrames;
+    }
+
+    /**
+     * 清空，下一次追加的数据从startFrame开始
+     */
+    public void reset(long startFrame) {
+        mStartFrame = startFrame;
+        mStartIndex = 0;
+        mFrameCount = 0;
+    }
+
+    public long getStartFrame() {
+        return mStartFrame;
+    }
+
+    /**
+     * 窗口最后一帧的下一帧，也是下一次追加的位置
+     */
+    public long getEndFrame() {
+        return mStartFrame + mFrameCount;
+    }
+
+    /**
+     * frame是否在窗口里
+     */
+    public boolean contains(long frame) {
+        return frame >= mStartFrame && frame < getEndFrame();
+    }
+
+    /**
+     * 追加解码出来的帧，超出容量时丢掉最旧的
+     */
+    public void append(short[] pcm, int offset, int frames) {
+        if (frames >= mCapacityFrames) {
+            //比整个窗口还长，只留最后的部分
+            long end = getEndFrame() + frames;
+            offset += (frames - mCapacityFrames) * mChannelCount;
+            frames = mCapacityFrames;
+            mStartFrame = end - frames;
+            mStartIndex = 0;
+            mFrameCount = 0;
+        }
+        int overflow = mFrameCount + frames - mCapacityFrames;
+        if (overflow > 0) {
+            mStartFrame += overflow;
+            mStartIndex = (mStartIndex + overflow) % mCapacityFrames;
+            mFrameCount -= overflow;
+        }
+        int writeIndex = (mStartIndex + mFrameCount) % mCapacityFrames;
+        int first = Math.min(frames, mCapacityFrames - writeIndex);
+        System.arraycopy(pcm, offset, mData, writeIndex * mChannelCount, first * mChannelCount);
+        if (first < frames) {
+            System.arraycopy(pcm, offset + first * mChannelCount, mData, 0, (frames - first) * mChannelCount);
+        }
+        mFrameCount += frames;
+    }
+
+    /**
+     * 从frame开始拷出最多maxFrames帧
+     *
+     * @return 拷出的帧数，frame不在窗口里时返回0
+     */
+    public int read(long frame, short[] out, int outOffset, int maxFrames) {
+        if (frame < mStartFrame || frame >= getEndFrame()) {
+            return 0;
+        }
+        int frames = (int) Math.min(maxFrames, getEndFrame() - frame);
+        int readIndex = (int) ((mStartIndex + (frame - mStartFrame)) % mCapacityFrames);
+        int first = Math.min(frames, mCapacityFrames - readIndex);
+        System.arraycopy(mData, readIndex * mChannelCount, out, outOffset, first * mChannelCount);
+        if (first < frames) {
+            System.arraycopy(mData, 0, out, outOffset + first * mChannelCount, (frames - first) * mChannelCount);
+        }
+        return frames;
+    }
+}
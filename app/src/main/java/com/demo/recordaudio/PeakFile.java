@@ -0,0 +1,114 @@
+package com.demo.recordaudio;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**
+ * @author : Zach
+ * @desc : 峰值缓存文件，和录音放在一起，打开录音时不需要重新解码。小端格式：
+ * <pre>
+ * 0   int   magic "RAPK"
+ * 4   short version
+ * 6   short levelCount
+ * 8   int   sampleRate
+ * 12  int   channelCount
+ * 16  int   samplesPerBin
+ * 20  int   reserved
+ * 24  long  binCount 第0级的bin个数
+ * 32  每级16字节：long offset, long count
+ * ... 每级count个bin，每个bin依次是short min、short max
+ * </pre>
+ * @date : 2026/10/18 16:02
+ */
+public final class PeakFile {
+
+    public static final int MAGIC = 0x4B504152;
+    public static final int VERSION = 1;
+    public static final int HEADER_SIZE = 32;
+    public static final int LEVEL_ENTRY_SIZE = 16;
+    public static final int BIN_SIZE = 4;
+    public static final String SUFFIX = ".peak";
+
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+
+    private PeakFile() {
+    }
+
+    /**
+     * 录音文件对应的峰值文件，record_xxx.wav -> record_xxx.peak
+     */
+    public static File forAudio(File audioFile) {
+        String name = audioFile.getName();
+        int dot = name.lastIndexOf('.');
+        if (dot > 0) {
+            name = name.substring(0, dot);
+        }
+        return new File(audioFile.getParentFile(), name + SUFFIX);
+    }
+
+    /**
+     * 把金字塔写入文件，先写临时文件再重命名，避免留下不完整的文件。
+     * 每次写入用各自的临时文件，录音收尾和裁剪界面同时写同一个峰值文件时不会互相覆盖
+     */
+    public static void write(File file, PeakPyramid pyramid, int sampleRate, int channelCount) throws IOException {
+        File tmp = File.createTempFile(file.getName(), ".tmp", file.getAbsoluteFile().getParentFile());
+        boolean written = false;
+        try {
+            writeTo(tmp, pyramid, sampleRate, channelCount);
+            written = tmp.renameTo(file);
+        } finally {
+            if (!written) {
+                tmp.delete();
+            }
+        }
+        if (!written) {
+            throw new IOException("rename " + tmp + " to " + file + " failed");
+        }
+    }
+
+    private static void writeTo(File tmp, PeakPyramid pyramid, int sampleRate, int channelCount) throws IOException {
+        long binCount = pyramid.getBinCount();
+        int levelCount = pyramid.getLevelCount();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        try (RandomAccessFile raf = new RandomAccessFile(tmp, "rw"); FileChannel channel = raf.getChannel()) {
+            buffer.putInt(MAGIC);
+            buffer.putShort((short) VERSION);
+            buffer.putShort((short) levelCount);
+            buffer.putInt(sampleRate);
+            buffer.putInt(channelCount);
+            buffer.putInt(pyramid.getSamplesPerBin());
+            buffer.putInt(0);
+            buffer.putLong(binCount);
+            long offset = HEADER_SIZE + (long) LEVEL_ENTRY_SIZE * levelCount;
+            for (int level = 0; level < levelCount; level++) {
+                long count = binCount >> level;
+                buffer.putLong(offset);
+                buffer.putLong(count);
+                offset += count * BIN_SIZE;
+            }
+            for (int level = 0; level < levelCount; level++) {
+                long count = binCount >> level;
+                for (long i = 0; i < count; i++) {
+                    if (buffer.remaining() < BIN_SIZE) {
+                        flush(channel, buffer);
+                    }
+                    buffer.putShort(pyramid.getMin(level, i));
+                    buffer.putShort(pyramid.getMax(level, i));
+                }
+            }
+            flush(channel, buffer);
+        }
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
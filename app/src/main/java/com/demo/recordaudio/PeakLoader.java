@@ -0,0 +1,96 @@
+package com.demo.recordaudio;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * @author : Zach
+ * @desc : 把音频文件解码成峰值金字塔。解码器每输出一块PCM就直接归并成min/max，不保留PCM；
+ * 金字塔允许边写边查，解码过程中定期回调进度，界面可以从左到右逐步显示波形。
+ * 在调用线程同步执行，需要放到后台线程
+ * @date : 2026/10/19 11:40
+ */
+public class PeakLoader {
+
+    /**
+     * 每个bin的帧数，和录音时生成的峰值文件一致
+     */
+    public static final int SAMPLES_PER_BIN = 256;
+    /**
+     * 每次从解码器读取的采样数
+     */
+    private static final int CHUNK_SAMPLES = 16 * 1024;
+    /**
+     * 回调进度的最小间隔
+     */
+    private static final long PROGRESS_INTERVAL_NANOS = 100000000L;
+
+    private final short[] mChunk = new short[CHUNK_SAMPLES];
+
+    /**
+     * 按扩展名选择解码器，WAV直接读PCM，其它格式交给MediaCodec
+     */
+    public static AudioDecoder openDecoder(File file) throws IOException {
+        if (file.getName().toLowerCase().endsWith(".wav")) {
+            return new WavDecoder(file);
+        }
+        return new MediaCodecDecoder(file);
+    }
+
+    public PeakPyramid load(AudioDecoder decoder, Listener listener) throws IOException {
+        return load(decoder, listener, null);
+    }
+
+    /**
+     * 解码全部数据，不负责关闭decoder
+     *
+     * @param listener 在当前线程回调，可以为null
+     * @param signal   取消后load抛出InterruptedIOException，可以为null
+     * @return 完整的峰值数据，最后不满一个bin的数据也已经写入
+     */
+    public PeakPyramid load(AudioDecoder decoder, Listener listener, CancelSignal signal) throws IOException {
+        PeakPyramid peaks = new PeakPyramid(SAMPLES_PER_BIN);
+        long lastProgress = System.nanoTime();
+        while (true) {
+            if (signal != null) {
+                signal.throwIfCancelled("peak loading cancelled");
+            }
+            int count = decoder.read(mChunk, 0, mChunk.length);
+            if (count < 0) {
+                break;
+            }
+            int channelCount = decoder.getChannelCount();
+            peaks.addFrames(mChunk, 0, count / channelCount, channelCount);
+            long now = System.nanoTime();
+            if (listener != null && now - lastProgress >= PROGRESS_INTERVAL_NANOS) {
+                lastProgress = now;
+                listener.onProgress(peaks, getExpectedBinCount(decoder, peaks));
+            }
+        }
+        peaks.flush();
+        return peaks;
+    }
+
+    /**
+     * 按文件记录的时长估算总bin数，估算值比已解码的少时以已解码的为准
+     */
+    static long getExpectedBinCount(AudioDecoder decoder, PeakPyramid peaks) {
+        long durationUs = decoder.getDurationUs();
+        long decoded = peaks.getBinCount();
+        if (durationUs <= 0) {
+            return decoded;
+        }
+        long frames = durationUs * decoder.getSampleRate() / 1000000L;
+        return Math.max((frames + SAMPLES_PER_BIN - 1) / SAMPLES_PER_BIN, decoded);
+    }
+
+    public interface Listener {
+        /**
+         * 解码进度，在解码线程回调
+         *
+         * @param peaks        已解码的部分，其它线程可以同时查询
+         * @param expectedBins 估计的总bin数，界面按它决定已解码部分的显示宽度
+         */
+        void onProgress(PeakPyramid peaks, long expectedBins);
+    }
+}
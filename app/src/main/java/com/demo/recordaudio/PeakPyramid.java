@@ -0,0 +1,316 @@
+package com.demo.recordaudio;
+
+import com.demo.audiocore.PcmKernels;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * @author : Zach
+ * @desc : 多分辨率峰值金字塔，第k级的每个bin是第0级2^k个bin的min/max，随数据到来增量构建。
+ * 任意缩放下每列的查询代价是O(log n)，和列覆盖的采样数无关。
+ * 只允许一个线程写入，其他线程可以同时查询
+ * @date : 2026/10/18 15:12
+ */
+public class PeakPyramid implements PeakSource {
+
+    private static final int MAX_LEVELS = 40;
+    private static final int INITIAL_CAPACITY = 256;
+
+    /**
+     * 每个bin包含的采样数，addSamples使用
+     */
+    private final int mSamplesPerBin;
+    private final short[][] mMin = new short[MAX_LEVELS][];
+    private final short[][] mMax = new short[MAX_LEVELS][];
+    /**
+     * 第0级的bin个数，第k级的个数是mCount >> k。数据写完后才更新，读线程先读它再读数组
+     */
+    private volatile long mCount;
+
+    /**
+     * 正在累积的bin
+     */
+    private int mPendingMin = Short.MAX_VALUE;
+    private int mPendingMax = Short.MIN_VALUE;
+    private int mPendingSamples;
+
+    public PeakPyramid() {
+        this(1);
+    }
+
+    /**
+     * @param samplesPerBin 通过addSamples添加数据时每个bin包含的采样数
+     */
+    public PeakPyramid(int samplesPerBin) {
+        if (samplesPerBin <= 0) {
+            throw new IllegalArgumentException("samplesPerBin must be > 0, was " + samplesPerBin);
+        }
+        mSamplesPerBin = samplesPerBin;
+    }
+
+    public int getSamplesPerBin() {
+        return mSamplesPerBin;
+    }
+
+    @Override
+    public long getBinCount() {
+        return mCount;
+    }
+
+    /**
+     * 已构建的级数
+     */
+    public int getLevelCount() {
+        long count = mCount;
+        int levels = 0;
+        while (count > 0) {
+            levels++;
+            count >>= 1;
+        }
+        return levels;
+    }
+
+    /**
+     * 添加PCM采样，满samplesPerBin个生成一个bin
+     *
+     * @param stride 采样间隔，多声道交错数据可以传声道数，所有声道合并到一个bin
+     */
+    public void addSamples(short[] samples, int offset, int length, int stride) {
+        if (stride == 1) {
+            addContiguous(samples, offset, length, 1);
+            return;
+        }
+        int min = mPendingMin;
+        int max = mPendingMax;
+        int pending = mPendingSamples;
+        int end = offset + length;
+        for (int i = offset; i < end; i += stride) {
+            int sample = samples[i];
+            if (sample < min) {
+                min = sample;
+            }
+            if (sample > max) {
+                max = sample;
+            }
+            if (++pending == mSamplesPerBin) {
+                append(min, max);
+                min = Short.MAX_VALUE;
+                max = Short.MIN_VALUE;
+                pending = 0;
+            }
+        }
+        mPendingMin = min;
+        mPendingMax = max;
+        mPendingSamples = pending;
+    }
+
+    /**
+     * 添加交错的16bit PCM，多声道合并到一个bin，每samplesPerBin帧生成一个bin
+     *
+     * @param frameCount   帧数
+     * @param channelCount 声道数
+     */
+    public void addFrames(short[] samples, int offset, int frameCount, int channelCount) {
+        addContiguous(samples, offset, frameCount * channelCount, channelCount);
+    }
+
+    /**
+     * 连续数据按bin整段交给PcmKernels.minMax，只有首尾不满的bin需要和pending合并
+     */
+    private void addContiguous(short[] samples, int offset, int length, int channelCount) {
+        int end = offset + length;
+        int i = offset;
+        while (i < end) {
+            int frames = Math.min(mSamplesPerBin - mPendingSamples, (end - i) / channelCount);
+            int packed = PcmKernels.minMax(samples, i, frames * channelCount);
+            int min = Math.min(mPendingMin, PcmKernels.unpackMin(packed));
+            int max = Math.max(mPendingMax, PcmKernels.unpackMax(packed));
+            i += frames * channelCount;
+            if (mPendingSamples + frames == mSamplesPerBin) {
+                append(min, max);
+                mPendingMin = Short.MAX_VALUE;
+                mPendingMax = Short.MIN_VALUE;
+                mPendingSamples = 0;
+            } else {
+                mPendingMin = min;
+                mPendingMax = max;
+                mPendingSamples += frames;
+            }
+        }
+    }
+
+    /**
+     * 添加16bit小端PCM，多声道合并到一个bin
+     *
+     * @param pcm          使用绝对位置读取，不修改position
+     * @param byteOffset   起始字节
+     * @param byteLength   字节数
+     * @param channelCount 声道数
+     */
+    public void addSamples(ByteBuffer pcm, int byteOffset, int byteLength, int channelCount) {
+        int min = mPendingMin;
+        int max = mPendingMax;
+        int pending = mPendingSamples;
+        int frameSize = 2 * channelCount;
+        int end = byteOffset + byteLength - frameSize;
+        for (int i = byteOffset; i <= end; i += frameSize) {
+            for (int c = 0; c < frameSize; c += 2) {
+                int sample = pcm.getShort(i + c);
+                if (sample < min) {
+                    min = sample;
+                }
+                if (sample > max) {
+                    max = sample;
+                }
+            }
+            if (++pending == mSamplesPerBin) {
+                append(min, max);
+                min = Short.MAX_VALUE;
+                max = Short.MIN_VALUE;
+                pending = 0;
+            }
+        }
+        mPendingMin = min;
+        mPendingMax = max;
+        mPendingSamples = pending;
+    }
+
+    /**
+     * 把未满的bin也写入，数据结束时调用
+     */
+    public void flush() {
+        if (mPendingSamples > 0) {
+            append(mPendingMin, mPendingMax);
+            mPendingMin = Short.MAX_VALUE;
+            mPendingMax = Short.MIN_VALUE;
+            mPendingSamples = 0;
+        }
+    }
+
+    /**
+     * 批量追加第0级的bin，比如多线程算好的结果
+     */
+    public void appendBins(short[] mins, short[] maxs, int offset, int count) {
+        for (int i = offset; i < offset + count; i++) {
+            append(mins[i], maxs[i]);
+        }
+    }
+
+    /**
+     * 直接追加一个bin，逐级合并出上层的bin
+     */
+    public void append(int min, int max) {
+        long index = mCount;
+        put(0, index, min, max);
+        int level = 0;
+        // 当前级凑够一对时合并到上一级
+        while ((index & 1) == 1 && level + 1 < MAX_LEVELS) {
+            int pos = (int) index;
+            int mergedMin = Math.min(mMin[level][pos - 1], mMin[level][pos]);
+            int mergedMax = Math.max(mMax[level][pos - 1], mMax[level][pos]);
+            level++;
+            index >>= 1;
+            put(level, index, mergedMin, mergedMax);
+        }
+        mCount++;
+    }
+
+    private void put(int level, long index, int min, int max) {
+        short[] mins = mMin[level];
+        short[] maxs = mMax[level];
+        int pos = (int) index;
+        if (mins == null || pos >= mins.length) {
+            int capacity = mins == null ? INITIAL_CAPACITY : mins.length * 2;
+            mins = mins == null ? new short[capacity] : Arrays.copyOf(mins, capacity);
+            maxs = maxs == null ? new short[capacity] : Arrays.copyOf(maxs, capacity);
+        }
+        mins[pos] = (short) min;
+        maxs[pos] = (short) max;
+        mMin[level] = mins;
+        mMax[level] = maxs;
+    }
+
+    /**
+     * 清空数据，保留已分配的数组
+     */
+    public void clear() {
+        mCount = 0;
+        mPendingMin = Short.MAX_VALUE;
+        mPendingMax = Short.MIN_VALUE;
+        mPendingSamples = 0;
+    }
+
+    /**
+     * 读取某一级的bin，用于序列化
+     */
+    public short getMin(int level, long index) {
+        return mMin[level][(int) index];
+    }
+
+    public short getMax(int level, long index) {
+        return mMax[level][(int) index];
+    }
+
+    @Override
+    public int query(long startBin, long endBin, int columns, short[] outMin, short[] outMax) {
+        long count = mCount;
+        if (startBin < 0) {
+            startBin = 0;
+        }
+        if (endBin > count) {
+            endBin = count;
+        }
+        if (columns <= 0 || startBin >= endBin) {
+            return 0;
+        }
+        long span = endBin - startBin;
+        for (int c = 0; c < columns; c++) {
+            long from = startBin + span * c / columns;
+            long to = startBin + span * (c + 1) / columns;
+            if (to <= from) {
+                to = from + 1;
+            }
+            rangeMinMax(from, Math.min(to, endBin), outMin, outMax, c);
+        }
+        return columns;
+    }
+
+    /**
+     * 和线段树一样自底向上，两端不对齐的bin在当前级取，对齐的部分交给上一级
+     */
+    private void rangeMinMax(long from, long to, short[] outMin, short[] outMax, int column) {
+        int min = Short.MAX_VALUE;
+        int max = Short.MIN_VALUE;
+        int level = 0;
+        while (from < to) {
+            short[] mins = mMin[level];
+            short[] maxs = mMax[level];
+            if ((from & 1) == 1) {
+                min = Math.min(min, mins[(int) from]);
+                max = Math.max(max, maxs[(int) from]);
+                from++;
+            }
+            if ((to & 1) == 1) {
+                to--;
+                min = Math.min(min, mins[(int) to]);
+                max = Math.max(max, maxs[(int) to]);
+            }
+            if (from >= to) {
+                break;
+            }
+            if (level + 1 >= MAX_LEVELS) {
+                for (long i = from; i < to; i++) {
+                    min = Math.min(min, mins[(int) i]);
+                    max = Math.max(max, maxs[(int) i]);
+                }
+                break;
+            }
+            from >>= 1;
+            to >>= 1;
+            level++;
+        }
+        outMin[column] = (short) min;
+        outMax[column] = (short) max;
+    }
+}
@@ -0,0 +1,26 @@
+package com.demo.recordaudio;
+
+/**
+ * @author : Zach
+ * @desc : 波形峰值数据源，按bin提供min/max，视图只按需要显示的列数查询
+ * @date : 2026/10/18 15:05
+ */
+public interface PeakSource {
+
+    /**
+     * 最细一级的bin个数
+     */
+    long getBinCount();
+
+    /**
+     * 把[startBin, endBin)均匀分成columns列，每列取min/max
+     *
+     * @param startBin 起始bin，包含
+     * @param endBin   结束bin，不包含
+     * @param columns  列数
+     * @param outMin   每列的最小值
+     * @param outMax   每列的最大值
+     * @return 实际填充的列数
+     */
+    int query(long startBin, long endBin, int columns, short[] outMin, short[] outMax);
+}
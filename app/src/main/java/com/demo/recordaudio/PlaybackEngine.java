@@ -0,0 +1,399 @@
+package com.demo.recordaudio;
+
+import java.io.IOException;
+
+/**
+ * @author : Zach
+ * @desc : 裁剪界面的播放引擎，在自己的线程里解码、写入AudioSink，只播放选中的区间。
+ * 播放位置按输出实际播放出去的帧数计算，界面每帧读{@link #getPositionMs()}移动指示器，不用定时器估算。
+ * 解码结果先放进指示器附近的PcmWindowCache，拖动指示器到窗口内时只需要flush输出，
+ * 解码器不用seek，下一块数据立即写出去；窗口外才让解码器seek，并从目标前一点开始解码，往回拖也能命中。
+ * 除了回调，公开方法都可以在任意线程调用
+ * @date : 2026/10/19 17:30
+ */
+public class PlaybackEngine {
+
+    /**
+     * 每次写入输出的时长，越短seek后越快听到新位置
+     */
+    private static final int WRITE_MILLISECOND = 10;
+    /**
+     * 每次从解码器读取的采样数
+     */
+    private static final int DECODE_SAMPLES = 8 * 1024;
+    /**
+     * 窗口长度，以及播放位置前面预先解码的长度，剩下的是已经播过、往回拖时能命中的部分
+     */
+    private static final int WINDOW_MILLISECOND = 10000;
+    private static final int AHEAD_MILLISECOND = 2000;
+    /**
+     * 没命中时从目标之前多少开始解码
+     */
+    private static final int BEHIND_MILLISECOND = 1000;
+    /**
+     * 区间播完后等输出把缓冲区播完的最长时间
+     */
+    private static final long DRAIN_TIMEOUT_NANOS = 500000000L;
+
+    private final AudioSink mSink;
+    private final Object mLock = new Object();
+    /**
+     * 控制命令，持有mLock读写
+     */
+    private boolean mPlaying;
+    private long mPendingSeekMs = -1;
+    private long mSeekRequestNanos;
+    private long mRangeStartMs;
+    private long mRangeEndMs = Long.MAX_VALUE;
+    private boolean mReleased;
+
+    /**
+     * 音频时钟：最近一次seek的帧，加上输出从那之后播放的帧数；不超过已写入的帧
+     */
+    private volatile int mSampleRate;
+    private volatile long mBaseFrame;
+    private volatile long mWrittenFrame;
+    private volatile long mSeekLatencyNanos = -1;
+    private volatile long mCacheHits;
+    private volatile long mCacheMisses;
+    private volatile Listener mListener;
+
+    private Thread mThread;
+    /**
+     * 以下只在播放线程使用
+     */
+    private AudioDecoder mDecoder;
+    private PcmWindowCache mWindow;
+    private short[] mDecodeBuffer;
+    private short[] mWriteBuffer;
+    private long mReadFrame;
+    private boolean mDecoderEnded;
+    private boolean mSinkPlaying;
+    private long mSeekStartNanos;
+
+    public PlaybackEngine(AudioSink sink) {
+        mSink = sink;
+    }
+
+    public void setListener(Listener listener) {
+        mListener = listener;
+    }
+
+    /**
+     * 打开音频，启动播放线程并预先解码开头的数据。解码器由引擎负责关闭，只能打开一次
+     */
+    public void open(AudioDecoder decoder) {
+        synchronized (mLock) {
+            if (mThread != null) {
+                throw new IllegalStateException("already opened");
+            }
+            mDecoder = decoder;
+            mThread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    loop();
+                }
+            }, "clip-playback");
+            mThread.start();
+        }
+    }
+
+    /**
+     * 设置播放的区间，播放位置不在区间内时下次播放从开始处播
+     */
+    public void setRange(long startMs, long endMs) {
+        synchronized (mLock) {
+            mRangeStartMs = Math.max(0, startMs);
+            mRangeEndMs = Math.max(mRangeStartMs, endMs);
+            mLock.notifyAll();
+        }
+    }
+
+    public void play() {
+        synchronized (mLock) {
+            mPlaying = true;
+            mLock.notifyAll();
+        }
+    }
+
+    public void pause() {
+        synchronized (mLock) {
+            mPlaying = false;
+            mLock.notifyAll();
+        }
+    }
+
+    public boolean isPlaying() {
+        synchronized (mLock) {
+            return mPlaying;
+        }
+    }
+
+    /**
+     * 跳到指定位置，播放状态不变。连续调用时只处理最后一次
+     */
+    public void seekTo(long ms) {
+        synchronized (mLock) {
+            mPendingSeekMs = Math.max(0, ms);
+            mSeekRequestNanos = System.nanoTime();
+            mLock.notifyAll();
+        }
+    }
+
+    /**
+     * 当前播放位置，按输出实际播放的帧数计算；seek还没处理完时返回目标位置
+     */
+    public long getPositionMs() {
+        synchronized (mLock) {
+            if (mPendingSeekMs >= 0) {
+                return mPendingSeekMs;
+            }
+        }
+        int sampleRate = mSampleRate;
+        if (sampleRate <= 0) {
+            return 0;
+        }
+        long frame = Math.min(mBaseFrame + mSink.getPlayedFrames(), mWrittenFrame);
+        return frame * 1000 / sampleRate;
+    }
+
+    /**
+     * 最近一次播放中seek，从调用seekTo到新位置的数据写入输出的耗时，没有时返回-1
+     */
+    public long getLastSeekLatencyNanos() {
+        return mSeekLatencyNanos;
+    }
+
+    /**
+     * seek时命中和没命中解码窗口的次数
+     */
+    public long getCacheHitCount() {
+        return mCacheHits;
+    }
+
+    public long getCacheMissCount() {
+        return mCacheMisses;
+    }
+
+    /**
+     * 停止播放线程，关闭输出和解码器，阻塞到线程退出
+     */
+    public void release() {
+        Thread thread;
+        synchronized (mLock) {
+            mReleased = true;
+            mLock.notifyAll();
+            thread = mThread;
+        }
+        if (thread != null) {
+            boolean interrupted = false;
+            while (thread.isAlive()) {
+                try {
+                    thread.join();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void loop() {
+        try {
+            while (true) {
+                long seekMs;
+                boolean playing;
+                long startMs;
+                long endMs;
+                synchronized (mLock) {
+                    while (!mReleased && !mPlaying && mPendingSeekMs < 0 && !needPrefill()) {
+                        mLock.wait();
+                    }
+                    if (mReleased) {
+                        return;
+                    }
+                    seekMs = mPendingSeekMs;
+                    playing = mPlaying;
+                    startMs = mRangeStartMs;
+                    endMs = mRangeEndMs;
+                    if (seekMs >= 0) {
+                        mSeekStartNanos = playing ? mSeekRequestNanos : 0;
+                    }
+                }
+                if (mWindow == null) {
+                    openFormat();
+                }
+                if (seekMs >= 0) {
+                    seekInternal(msToFrame(seekMs));
+                    synchronized (mLock) {
+                        //处理期间又有新的seek时留给下一轮
+                        if (mPendingSeekMs == seekMs) {
+                            mPendingSeekMs = -1;
+                        }
+                    }
+                }
+                if (!playing) {
+                    if (mSinkPlaying) {
+                        mSink.pause();
+                        mSinkPlaying = false;
+                    }
+                    if (needPrefill()) {
+                        decodeChunk();
+                    }
+                    continue;
+                }
+                playChunk(msToFrame(startMs), msToFrame(endMs));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            synchronized (mLock) {
+                mPlaying = false;
+            }
+            Listener listener = mListener;
+            if (listener != null) {
+                listener.onError(e);
+            }
+        } finally {
+            mSink.close();
+            try {
+                mDecoder.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    /**
+     * 暂停时也把播放位置前面的数据解码好，按下播放后立即有数据。持有mLock或在播放线程调用
+     */
+    private boolean needPrefill() {
+        return mWindow == null
+                || (!mDecoderEnded && mWindow.getEndFrame() < mReadFrame + msToFrame(AHEAD_MILLISECOND));
+    }
+
+    /**
+     * 先解码一块确定实际的格式(压缩格式在解码后才知道真实采样率)，再打开输出
+     */
+    private void openFormat() throws IOException {
+        mDecodeBuffer = new short[DECODE_SAMPLES];
+        int count = mDecoder.read(mDecodeBuffer, 0, mDecodeBuffer.length);
+        int channelCount = mDecoder.getChannelCount();
+        int sampleRate = mDecoder.getSampleRate();
+        mWindow = new PcmWindowCache((int) ((long) sampleRate * WINDOW_MILLISECOND / 1000), channelCount);
+        mWindow.reset(0);
+        mWriteBuffer = new short[Math.max(1, sampleRate * WRITE_MILLISECOND / 1000) * channelCount];
+        mSampleRate = sampleRate;
+        if (count < 0) {
+            mDecoderEnded = true;
+        } else {
+            mWindow.append(mDecodeBuffer, 0, count / channelCount);
+        }
+        mSink.open(sampleRate, channelCount);
+    }
+
+    private long msToFrame(long ms) {
+        if (ms == Long.MAX_VALUE) {
+            return Long.MAX_VALUE;
+        }
+        return ms * mSampleRate / 1000;
+    }
+
+    /**
+     * 丢掉输出里还没播放的数据，目标在窗口里时解码器不动，否则从目标前一点重新解码
+     */
+    private void seekInternal(long frame) throws IOException {
+        mSink.flush();
+        mBaseFrame = frame;
+        mWrittenFrame = frame;
+        mReadFrame = frame;
+        if (mWindow.contains(frame)) {
+            mCacheHits++;
+            return;
+        }
+        mCacheMisses++;
+        long start = Math.max(0, frame - msToFrame(BEHIND_MILLISECOND));
+        mDecoder.seekTo(start);
+        mDecoderEnded = false;
+        mWindow.reset(start);
+    }
+
+    private void decodeChunk() throws IOException {
+        int count = mDecoder.read(mDecodeBuffer, 0, mDecodeBuffer.length);
+        if (count < 0) {
+            mDecoderEnded = true;
+            return;
+        }
+        mWindow.append(mDecodeBuffer, 0, count / mWindow.getChannelCount());
+    }
+
+    /**
+     * 写一小块数据到输出，播到区间结尾时结束
+     */
+    private void playChunk(long startFrame, long endFrame) throws IOException, InterruptedException {
+        if (mReadFrame < startFrame || mReadFrame >= endFrame) {
+            seekInternal(startFrame);
+        }
+        if (!mSinkPlaying) {
+            mSink.play();
+            mSinkPlaying = true;
+        }
+        while (mWindow.getEndFrame() <= mReadFrame && !mDecoderEnded) {
+            decodeChunk();
+        }
+        int channelCount = mWindow.getChannelCount();
+        int maxFrames = (int) Math.min(mWriteBuffer.length / channelCount, endFrame - mReadFrame);
+        int frames = mWindow.read(mReadFrame, mWriteBuffer, 0, maxFrames);
+        if (frames > 0) {
+            if (mSink.write(mWriteBuffer, 0, frames * channelCount) < 0) {
+                throw new IOException("audio sink write failed");
+            }
+            if (mSeekStartNanos != 0) {
+                mSeekLatencyNanos = System.nanoTime() - mSeekStartNanos;
+                mSeekStartNanos = 0;
+            }
+            mReadFrame += frames;
+            mWrittenFrame = mReadFrame;
+        }
+        if (frames <= 0 || mReadFrame >= endFrame) {
+            complete(startFrame);
+            return;
+        }
+        if (needPrefill()) {
+            decodeChunk();
+        }
+    }
+
+    /**
+     * 区间播完：等输出播完缓冲区，暂停并回到区间开始
+     */
+    private void complete(long startFrame) throws IOException, InterruptedException {
+        long deadline = System.nanoTime() + DRAIN_TIMEOUT_NANOS;
+        while (mBaseFrame + mSink.getPlayedFrames() < mWrittenFrame && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        synchronized (mLock) {
+            mPlaying = false;
+        }
+        mSink.pause();
+        mSinkPlaying = false;
+        seekInternal(startFrame);
+        Listener listener = mListener;
+        if (listener != null) {
+            listener.onCompletion();
+        }
+    }
+
+    public interface Listener {
+        /**
+         * 选中的区间播完，位置已经回到区间开始，在播放线程回调
+         */
+        void onCompletion();
+
+        /**
+         * 解码或输出出错，播放线程已经退出
+         */
+        void onError(IOException e);
+    }
+}
@@ -1,19 +1,51 @@
 package com.demo.recordaudio;
 
+import android.Manifest;
+import android.content.pm.PackageManager;
 import android.os.Bundle;
+import android.util.Log;
 import android.widget.CheckBox;
 import android.widget.ImageView;
 import android.widget.TextView;
 
+import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.core.app.ActivityCompat;
+import androidx.core.content.ContextCompat;
+
+import java.io.File;
+import java.io.IOException;
 
 public class RecordActivity extends AppCompatActivity {
 
+    private static final String TAG = "RecordActivity";
+    private static final int REQUEST_RECORD_AUDIO = 1;
+
     private CheckBox cb_record;
     private AudioRecordView record_view;
     private TextView tv_time;
     private ImageView iv_reset;
 
+    /**
+     * 录音会话，旋转屏幕和退到后台时不受影响
+     */
+    private RecordSession mSession;
+    /**
+     * 只在debug包里收集，每个录音文件结束时导出到同目录
+     */
+    private HistogramRecordMetrics mMetrics;
+    /**
+     * 按会话状态更新界面时不触发录音操作
+     */
+    private boolean mSyncingState;
+
+    private final RecordSession.Listener mSessionListener = new RecordSession.Listener() {
+        @Override
+        public void onStateChanged(RecordSession.State state) {
+            syncState(state);
+        }
+    };
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -22,14 +54,110 @@ public class RecordActivity extends AppCompatActivity {
         record_view = findViewById(R.id.record_view);
         tv_time = findViewById(R.id.tv_time);
         iv_reset = findViewById(R.id.iv_reset);
+        mSession = RecordSession.get(this);
+        //接上会话的波形，重建后第一帧就能画出之前的内容
+        record_view.setWaveform(mSession.getWaveform());
+        record_view.setLevelMeter(mSession.getLevelMeter());
+        if (BuildConfig.DEBUG) {
+            mMetrics = new HistogramRecordMetrics();
+            record_view.setMetrics(mMetrics);
+        }
         cb_record.setOnCheckedChangeListener((buttonView, isChecked) -> {
+            if (mSyncingState) {
+                return;
+            }
             if (isChecked) {
-                record_view.start();
+                if (hasRecordPermission()) {
+                    startRecord();
+                } else {
+                    buttonView.setChecked(false);
+                    ActivityCompat.requestPermissions(this, new String[]{Manifest.permission.RECORD_AUDIO}, REQUEST_RECORD_AUDIO);
+                }
             } else {
-                record_view.stop();
+                mSession.pause();
             }
         });
-        record_view.setOnRecordListener(time -> tv_time.setText(time));
-        iv_reset.setOnClickListener(v -> record_view.reset());
+        record_view.setOnRecordListener((time, length) -> tv_time.setText(time, 0, length));
+        iv_reset.setOnClickListener(v -> {
+            finishRecord();
+            record_view.reset();
+        });
+        mSession.addListener(mSessionListener);
+        syncState(mSession.getState());
+    }
+
+    @Override
+    public void onRequestPermissionsResult(int requestCode, @NonNull String[] permissions, @NonNull int[] grantResults) {
+        super.onRequestPermissionsResult(requestCode, permissions, grantResults);
+        if (requestCode == REQUEST_RECORD_AUDIO && grantResults.length > 0
+                && grantResults[0] == PackageManager.PERMISSION_GRANTED) {
+            cb_record.setChecked(true);
+        }
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        mSession.removeListener(mSessionListener);
+        //旋转屏幕时会话继续录音，真正退出界面时才结束文件
+        if (isFinishing()) {
+            finishRecord();
+        }
+    }
+
+    private boolean hasRecordPermission() {
+        return ContextCompat.checkSelfPermission(this, Manifest.permission.RECORD_AUDIO)
+                == PackageManager.PERMISSION_GRANTED;
+    }
+
+    private void startRecord() {
+        try {
+            mSession.start();
+        } catch (IOException | IllegalStateException e) {
+            Log.e(TAG, "start record failed", e);
+            syncState(mSession.getState());
+        }
+    }
+
+    /**
+     * 按会话状态更新按钮和波形
+     */
+    private void syncState(RecordSession.State state) {
+        mSyncingState = true;
+        cb_record.setChecked(state == RecordSession.State.RECORDING);
+        cb_record.setEnabled(state != RecordSession.State.FINALIZING);
+        mSyncingState = false;
+        if (state == RecordSession.State.RECORDING) {
+            record_view.start();
+        } else {
+            record_view.stop();
+        }
+    }
+
+    /**
+     * 结束当前文件，下次开始录制时写新文件
+     */
+    private void finishRecord() {
+        RecordSession.State state = mSession.getState();
+        if (state == RecordSession.State.RECORDING || state == RecordSession.State.PAUSED) {
+            mSession.finish();
+            dumpMetrics(mSession.getFile());
+        }
+    }
+
+    /**
+     * 把这次录音的帧耗时和刷新抖动导出成文本，方便对比不同机型和版本
+     */
+    private void dumpMetrics(File audio) {
+        if (mMetrics == null || audio == null) {
+            return;
+        }
+        File file = new File(audio.getParentFile(), audio.getName().replace(".wav", ".metrics.txt"));
+        try {
+            mMetrics.dumpTo(file);
+        } catch (IOException e) {
+            Log.w(TAG, "dump metrics failed: " + file, e);
+        }
+        mMetrics.reset();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,79 @@
+package com.demo.recordaudio;
+
+import android.content.Context;
+import android.os.Environment;
+
+import java.io.File;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+
+/**
+ * @author : Zach
+ * @desc : 录音文件的存放位置和命名
+ * @date : 2026/10/18 14:02
+ */
+public final class RecordFiles {
+
+    private static final String RECORD_PREFIX = "record_";
+    private static final String RECORD_SUFFIX = ".wav";
+    private static final String CLIP_PREFIX = "clip_";
+
+    private RecordFiles() {
+    }
+
+    /**
+     * 录音目录，优先使用应用的外部存储目录
+     */
+    public static File getRecordDir(Context context) {
+        File dir = context.getExternalFilesDir(Environment.DIRECTORY_MUSIC);
+        if (dir == null) {
+            dir = new File(context.getFilesDir(), "records");
+        }
+        if (!dir.exists()) {
+            dir.mkdirs();
+        }
+        return dir;
+    }
+
+    /**
+     * 最新的录音文件
+     *
+     * @return 没有录音时返回null
+     */
+    public static File getLatestRecord(Context context) {
+        File[] files = getRecordDir(context).listFiles();
+        File latest = null;
+        if (files != null) {
+            for (File file : files) {
+                String name = file.getName();
+                if (name.startsWith(RECORD_PREFIX) && name.endsWith(RECORD_SUFFIX)
+                        && (latest == null || name.compareTo(latest.getName()) > 0)) {
+                    latest = file;
+                }
+            }
+        }
+        return latest;
+    }
+
+    /**
+     * 裁剪导出的文件，和源文件放在同一目录，clip_前缀不会被当成录音
+     */
+    public static File newClipFile(File source) {
+        String name = source.getName();
+        int dot = name.lastIndexOf('.');
+        if (dot > 0) {
+            name = name.substring(0, dot);
+        }
+        String time = new SimpleDateFormat("HHmmss", Locale.US).format(new Date());
+        return new File(source.getParentFile(), CLIP_PREFIX + name + "_" + time + RECORD_SUFFIX);
+    }
+
+    /**
+     * 按当前时间生成新的录音文件
+     */
+    public static File newRecordFile(Context context) {
+        String name = new SimpleDateFormat("yyyyMMdd_HHmmss", Locale.US).format(new Date());
+        return new File(getRecordDir(context), RECORD_PREFIX + name + RECORD_SUFFIX);
+    }
+}
@@ -0,0 +1,44 @@
+package com.demo.recordaudio;
+
+/**
+ * @author : Zach
+ * @desc : 录音界面热点路径的指标回调，实现必须不分配对象、不阻塞
+ * @date : 2026/10/18 18:20
+ */
+public interface RecordMetrics {
+
+    /**
+     * 不记录任何数据
+     */
+    RecordMetrics NONE = new RecordMetrics() {
+        @Override
+        public void onFrameDrawn(long drawNanos, long frameIntervalNanos) {
+        }
+
+        @Override
+        public void onTick(long jitterNanos) {
+        }
+
+        @Override
+        public void onWaveBufferSize(int size) {
+        }
+    };
+
+    /**
+     * 渲染线程画完一帧
+     *
+     * @param drawNanos          绘制耗时
+     * @param frameIntervalNanos 屏幕刷新间隔，超过它的部分算作掉帧
+     */
+    void onFrameDrawn(long drawNanos, long frameIntervalNanos);
+
+    /**
+     * 定时刷新的实际间隔和预期间隔的偏差
+     */
+    void onTick(long jitterNanos);
+
+    /**
+     * 波形缓冲区当前的数据量
+     */
+    void onWaveBufferSize(int size);
+}
@@ -0,0 +1,53 @@
+package com.demo.recordaudio;
+
+import android.app.Notification;
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
+import android.app.PendingIntent;
+import android.app.Service;
+import android.content.Intent;
+import android.os.Build;
+import android.os.IBinder;
+
+import androidx.core.app.NotificationCompat;
+
+/**
+ * @author : Zach
+ * @desc : 录音期间的前台服务，只负责显示通知，让进程退到后台后还能继续使用麦克风。
+ * 录音本身由{@link RecordSession}完成
+ * @date : 2026/10/18 23:20
+ */
+public class RecordService extends Service {
+
+    private static final String CHANNEL_ID = "record";
+    private static final int NOTIFICATION_ID = 1;
+
+    @Override
+    public int onStartCommand(Intent intent, int flags, int startId) {
+        startForeground(NOTIFICATION_ID, buildNotification());
+        return START_NOT_STICKY;
+    }
+
+    @Override
+    public IBinder onBind(Intent intent) {
+        return null;
+    }
+
+    private Notification buildNotification() {
+        Intent intent = new Intent(this, RecordActivity.class);
+        intent.addFlags(Intent.FLAG_ACTIVITY_SINGLE_TOP);
+        PendingIntent contentIntent = PendingIntent.getActivity(this, 0, intent, PendingIntent.FLAG_UPDATE_CURRENT);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            NotificationManager manager = getSystemService(NotificationManager.class);
+            manager.createNotificationChannel(new NotificationChannel(CHANNEL_ID,
+                    getString(R.string.record_channel_name), NotificationManager.IMPORTANCE_LOW));
+        }
+        return new NotificationCompat.Builder(this, CHANNEL_ID)
+                .setSmallIcon(R.mipmap.ic_launcher)
+                .setContentTitle(getString(R.string.app_name))
+                .setContentText(getString(R.string.record_notification_text))
+                .setContentIntent(contentIntent)
+                .setOngoing(true)
+                .build();
+    }
+}
@@ -0,0 +1,223 @@
+package com.demo.recordaudio;
+
+import android.content.Context;
+import android.content.Intent;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.annotation.MainThread;
+import androidx.core.content.ContextCompat;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * @author : Zach
+ * @desc : 录音会话，持有采集、写文件和波形状态，生命周期和进程一致，不随Activity重建。
+ * 状态：空闲 -> 录音 <-> 暂停 -> 收尾 -> 空闲。录音和暂停期间由前台服务保证退到后台后不被停掉。
+ * 除特别说明外，方法都在主线程调用
+ * @date : 2026/10/18 22:50
+ */
+public class RecordSession {
+
+    private static final String TAG = "RecordSession";
+    /**
+     * 写文件缓冲区个数，20ms一块，约能容忍2.5秒的磁盘卡顿
+     */
+    private static final int WAV_BUFFER_COUNT = 128;
+    /**
+     * 没有界面时取电平的间隔，ms
+     */
+    private static final int DRAIN_INTERVAL = 100;
+    /**
+     * 波形历史的瓦片文件，每次新录音时清空
+     */
+    private static final String HISTORY_FILE = "record_wave.tiles";
+
+    public enum State {
+        /**
+         * 没有打开的文件
+         */
+        IDLE,
+        RECORDING,
+        /**
+         * 文件还开着，继续录音会接着写
+         */
+        PAUSED,
+        /**
+         * 正在回填文件头和写峰值文件，结束后回到空闲，这之后录音旁边的峰值文件才完整
+         */
+        FINALIZING
+    }
+
+    private static RecordSession sInstance;
+
+    private final Context mContext;
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    private final LevelQueue mLevelQueue = new LevelQueue(256);
+    private final MicAudioSource mAudioSource = new MicAudioSource();
+    private final AudioCaptureEngine mCaptureEngine;
+    private final WavRecorder mWavRecorder;
+    private final RecordWaveform mWaveform;
+    private final LevelMeter mLevelMeter;
+    private final ExecutorService mFinalizeExecutor = Executors.newSingleThreadExecutor();
+    private final List<Listener> mListeners = new ArrayList<>();
+    private State mState = State.IDLE;
+
+    /**
+     * 界面不在时电平队列没人取，由会话定时取，保证波形历史完整
+     */
+    private final Runnable mDrainTask = new Runnable() {
+        @Override
+        public void run() {
+            mWaveform.drainLevels();
+            mMainHandler.postDelayed(this, DRAIN_INTERVAL);
+        }
+    };
+
+    public static synchronized RecordSession get(Context context) {
+        if (sInstance == null) {
+            sInstance = new RecordSession(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    private RecordSession(Context context) {
+        mContext = context;
+        mWaveform = new RecordWaveform(new File(context.getCacheDir(), HISTORY_FILE));
+        mCaptureEngine = new AudioCaptureEngine(mAudioSource, mLevelQueue);
+        mWavRecorder = new WavRecorder(mAudioSource.getBufferSize(), WAV_BUFFER_COUNT);
+        mCaptureEngine.setBlockListener(mWavRecorder);
+        mLevelMeter = new LevelMeter(mAudioSource.getSampleRate(), mAudioSource.getChannelCount());
+        mCaptureEngine.setLevelMeter(mLevelMeter);
+        mWaveform.setLevelQueue(mLevelQueue);
+    }
+
+    public State getState() {
+        return mState;
+    }
+
+    public RecordWaveform getWaveform() {
+        return mWaveform;
+    }
+
+    public LevelMeter getLevelMeter() {
+        return mLevelMeter;
+    }
+
+    /**
+     * 当前或者最近一次录音的文件
+     */
+    public File getFile() {
+        return mWavRecorder.getFile();
+    }
+
+    /**
+     * 开始录音，空闲时新建文件，暂停时接着写
+     *
+     * @throws IOException           新建文件失败
+     * @throws IllegalStateException 正在收尾
+     */
+    @MainThread
+    public void start() throws IOException {
+        switch (mState) {
+            case RECORDING:
+                return;
+            case FINALIZING:
+                throw new IllegalStateException("previous record is finalizing");
+            case IDLE:
+                mWaveform.reset();
+                mWavRecorder.start(RecordFiles.newRecordFile(mContext), mAudioSource.getSampleRate(),
+                        mAudioSource.getChannelCount());
+                ContextCompat.startForegroundService(mContext, new Intent(mContext, RecordService.class));
+                break;
+            default:
+                break;
+        }
+        mCaptureEngine.start();
+        mWaveform.start(System.nanoTime());
+        mMainHandler.removeCallbacks(mDrainTask);
+        mMainHandler.post(mDrainTask);
+        setState(State.RECORDING);
+    }
+
+    /**
+     * 暂停，回填文件头，已录的部分可以直接播放
+     */
+    @MainThread
+    public void pause() {
+        if (mState != State.RECORDING) {
+            return;
+        }
+        stopCapture();
+        mWavRecorder.pause();
+        setState(State.PAUSED);
+    }
+
+    /**
+     * 结束当前文件，在后台线程收尾，完成后回到空闲
+     */
+    @MainThread
+    public void finish() {
+        if (mState != State.RECORDING && mState != State.PAUSED) {
+            return;
+        }
+        stopCapture();
+        setState(State.FINALIZING);
+        mFinalizeExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    mWavRecorder.stop();
+                    //峰值文件写完才算收尾结束，裁剪界面在这之前不会自己再写一份
+                    mWavRecorder.awaitPeakFile();
+                } catch (IOException e) {
+                    Log.e(TAG, "finish record file failed", e);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                mMainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        mContext.stopService(new Intent(mContext, RecordService.class));
+                        setState(State.IDLE);
+                    }
+                });
+            }
+        });
+    }
+
+    private void stopCapture() {
+        mCaptureEngine.stop();
+        mWaveform.pause(System.nanoTime());
+        mMainHandler.removeCallbacks(mDrainTask);
+        //取出停止前最后的电平
+        mWaveform.drainLevels();
+        //采集线程已经退出，电平表回到静音
+        mLevelMeter.reset();
+    }
+
+    public void addListener(Listener listener) {
+        mListeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        mListeners.remove(listener);
+    }
+
+    private void setState(State state) {
+        mState = state;
+        for (int i = mListeners.size() - 1; i >= 0; i--) {
+            mListeners.get(i).onStateChanged(state);
+        }
+    }
+
+    public interface Listener {
+        void onStateChanged(State state);
+    }
+}
@@ -0,0 +1,200 @@
+package com.demo.recordaudio;
+
+import java.io.File;
+
+/**
+ * @author : Zach
+ * @desc : 录音波形的状态：最近的波形列、整个过程的波形历史和滚动时钟。
+ * 波形存的是量化分贝(见DecibelHeightTable)，和屏幕尺寸无关，由界面查表转成高度。
+ * 由录音会话持有，界面重建后新的AudioRecordView直接接上，不丢失也不用重新计算历史数据。
+ * 所有方法都用对象锁同步，需要同时读多个值时调用方可以对这个对象加锁
+ * @date : 2026/10/18 22:20
+ */
+public class RecordWaveform {
+
+    /**
+     * 每列波形的时长
+     */
+    public static final long COLUMN_NANOS = 100000000L;
+    /**
+     * 默认保留的波形个数，100ms一个，约1分钟
+     */
+    private static final int DEFAULT_CAPACITY = 600;
+
+    private final WaveRingBuffer mWave = new WaveRingBuffer(DEFAULT_CAPACITY);
+    private final WaveTileStore mHistory;
+    private final ScrollClock mClock = new ScrollClock();
+    /**
+     * 追加过的波形总数
+     */
+    private long mAppended;
+    /**
+     * 第一个电平的时间戳，之后的时间都相对它计算，-1表示还没收到
+     */
+    private long mTimeBase = -1;
+    /**
+     * 还在累积的那一列的序号和最大RMS
+     */
+    private long mOpenColumn = -1;
+    private float mOpenRms;
+    /**
+     * 每次清空加1，界面用来判断缓存的绘制结果是否还有效
+     */
+    private int mGeneration;
+
+    private LevelQueue mLevelQueue;
+    private final LevelQueue.Consumer mLevelConsumer = new LevelQueue.Consumer() {
+        @Override
+        public void onLevel(float rms, float peak, long timeNanos) {
+            onLevelSample(rms, timeNanos);
+        }
+    };
+
+    /**
+     * 历史全部留在内存
+     */
+    public RecordWaveform() {
+        this(null);
+    }
+
+    /**
+     * @param historyFile 历史波形写满一个瓦片就存到这个文件，内存里只留最近用到的部分
+     */
+    public RecordWaveform(File historyFile) {
+        mHistory = new WaveTileStore(historyFile);
+    }
+
+    /**
+     * RMS电平转成分贝，以16bit的1个量化单位为0dB，范围0~90dB
+     *
+     * @param rms 0~1
+     */
+    public static double rmsToDecibel(float rms) {
+        double amplitude = rms * 32768d;
+        if (amplitude < 1) {
+            return 0;
+        }
+        return 20 * Math.log10(amplitude);
+    }
+
+    /**
+     * 设置电平来源，取数据时按时间戳归到各列
+     *
+     * @param levelQueue 为null时只能通过{@link #appendDecibel(double)}追加
+     */
+    public synchronized void setLevelQueue(LevelQueue levelQueue) {
+        mLevelQueue = levelQueue;
+    }
+
+    /**
+     * 取出采集线程的电平。渲染线程和UI线程都会调用，由锁保证同一时间只有一个消费者
+     */
+    public synchronized void drainLevels() {
+        if (mLevelQueue != null) {
+            mLevelQueue.drain(mLevelConsumer);
+        }
+    }
+
+    /**
+     * 直接追加一列
+     */
+    public synchronized void appendDecibel(double decibel) {
+        short quantized = DecibelHeightTable.quantize(decibel);
+        mWave.add(quantized);
+        mAppended++;
+        mHistory.append(quantized);
+    }
+
+    /**
+     * 按时间戳归到对应的列，一列的时间过去后才追加，中间丢失的数据补静音
+     */
+    private void onLevelSample(float rms, long timeNanos) {
+        if (mTimeBase < 0) {
+            mTimeBase = timeNanos;
+        }
+        long time = timeNanos - mTimeBase;
+        mClock.sync(time, System.nanoTime());
+        long column = time / COLUMN_NANOS;
+        if (mOpenColumn < 0) {
+            mOpenColumn = column;
+            mOpenRms = rms;
+        } else if (column > mOpenColumn) {
+            appendDecibel(rmsToDecibel(mOpenRms));
+            long gap = Math.min(column - mOpenColumn - 1, mWave.capacity());
+            for (long i = 0; i < gap; i++) {
+                appendDecibel(0);
+            }
+            mOpenColumn = column;
+            mOpenRms = rms;
+        } else if (rms > mOpenRms) {
+            mOpenRms = rms;
+        }
+    }
+
+    public synchronized void start(long nowNanos) {
+        mClock.start(nowNanos);
+    }
+
+    public synchronized void pause(long nowNanos) {
+        mClock.pause(nowNanos);
+    }
+
+    public synchronized boolean isRunning() {
+        return mClock.isRunning();
+    }
+
+    /**
+     * 清空数据，时钟回到0，运行状态不变
+     */
+    public synchronized void reset() {
+        boolean running = mClock.isRunning();
+        mWave.clear();
+        mHistory.clear();
+        mAppended = 0;
+        mGeneration++;
+        mTimeBase = -1;
+        mOpenColumn = -1;
+        mClock.reset();
+        if (running) {
+            mClock.start(System.nanoTime());
+        }
+    }
+
+    /**
+     * 中轴线对应的录音时间
+     */
+    public synchronized long getPosition(long nowNanos) {
+        return mClock.getPosition(nowNanos);
+    }
+
+    public synchronized int getGeneration() {
+        return mGeneration;
+    }
+
+    public synchronized long getAppended() {
+        return mAppended;
+    }
+
+    /**
+     * 最近的波形，值是量化分贝，读写都需要对这个对象加锁
+     */
+    public WaveRingBuffer getWave() {
+        return mWave;
+    }
+
+    /**
+     * 整个过程的波形，值是量化分贝，追加都在这个对象的锁里进行
+     */
+    public WaveTileStore getHistory() {
+        return mHistory;
+    }
+
+    /**
+     * 调整保留的波形个数，只会扩大，多个界面先后接入时不会丢掉另一个需要的数据
+     */
+    public synchronized void ensureCapacity(int capacity) {
+        if (capacity > mWave.capacity()) {
+            mWave.resize(capacity);
+        }
+    }
+}
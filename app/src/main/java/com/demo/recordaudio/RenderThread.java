@@ -0,0 +1,129 @@
+package com.demo.recordaudio;
+
+import android.graphics.Canvas;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+import android.view.Choreographer;
+import android.view.TextureView;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * @author : Zach
+ * @desc : TextureView的渲染线程，由Choreographer的vsync回调驱动，lockCanvas和绘制都不在UI线程
+ * @date : 2026/10/18 14:30
+ */
+public class RenderThread extends HandlerThread implements Choreographer.FrameCallback {
+
+    private final TextureView mTextureView;
+    private final Renderer mRenderer;
+    /**
+     * 是否已经请求了下一帧，多次请求合并成一帧
+     */
+    private final AtomicBoolean mFrameScheduled = new AtomicBoolean();
+    private volatile boolean mContinuous;
+    private volatile boolean mQuit;
+    private Handler mHandler;
+    private Choreographer mChoreographer;
+
+    private final Runnable mScheduleFrame = new Runnable() {
+        @Override
+        public void run() {
+            if (mQuit) {
+                return;
+            }
+            if (mChoreographer == null) {
+                mChoreographer = Choreographer.getInstance();
+            }
+            mChoreographer.postFrameCallback(RenderThread.this);
+        }
+    };
+
+    public RenderThread(TextureView textureView, Renderer renderer) {
+        super("wave-render", Process.THREAD_PRIORITY_DISPLAY);
+        mTextureView = textureView;
+        mRenderer = renderer;
+    }
+
+    @Override
+    public synchronized void start() {
+        super.start();
+        mHandler = new Handler(getLooper());
+    }
+
+    /**
+     * 请求在下一个vsync绘制一帧，任意线程可调用，不会阻塞
+     */
+    public void requestRender() {
+        if (mQuit || mHandler == null) {
+            return;
+        }
+        if (mFrameScheduled.compareAndSet(false, true)) {
+            mHandler.post(mScheduleFrame);
+        }
+    }
+
+    /**
+     * 连续渲染模式下每个vsync都会绘制
+     */
+    public void setContinuous(boolean continuous) {
+        mContinuous = continuous;
+        if (continuous) {
+            requestRender();
+        }
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        mFrameScheduled.set(false);
+        if (mQuit) {
+            return;
+        }
+        if (mContinuous) {
+            requestRender();
+        }
+        Canvas canvas = mTextureView.lockCanvas();
+        if (canvas == null) {
+            return;
+        }
+        try {
+            mRenderer.onDrawFrame(canvas, frameTimeNanos);
+        } finally {
+            mTextureView.unlockCanvasAndPost(canvas);
+        }
+    }
+
+    /**
+     * 停止渲染并等待线程退出，Surface销毁前调用
+     */
+    public void quitAndWait() {
+        mQuit = true;
+        if (mHandler != null) {
+            mHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    if (mChoreographer != null) {
+                        mChoreographer.removeFrameCallback(RenderThread.this);
+                    }
+                }
+            });
+        }
+        quitSafely();
+        try {
+            join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public interface Renderer {
+        /**
+         * 在渲染线程绘制一帧
+         *
+         * @param canvas         TextureView的画布
+         * @param frameTimeNanos vsync时间
+         */
+        void onDrawFrame(Canvas canvas, long frameTimeNanos);
+    }
+}
@@ -0,0 +1,179 @@
+package com.demo.recordaudio;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+
+/**
+ * @author : Zach
+ * @desc : 刻度和时间标签的离屏缓存。每个瓦片画{@link #TICKS_PER_TILE}个刻度，按瓦片序号（也就是时间段）缓存，
+ * 滚动时只平移贴图，每帧只画一两张位图，和录音时长无关。超出容量时淘汰最久没用的瓦片并复用它的位图。
+ * 只在渲染线程使用
+ * @date : 2026/10/18 19:50
+ */
+public class RulerTileCache {
+
+    /**
+     * 每个瓦片的刻度个数，10个刻度一个大刻度
+     */
+    public static final int TICKS_PER_TILE = 100;
+    private static final int MAJOR_TICK = 10;
+
+    private final Paint mRulerPaint;
+    private final Paint mTextPaint;
+    private final int mItemWidth;
+    private final float mTextSize;
+    private final float mRulerHeightBig;
+    private final float mRulerHeightSmall;
+    private final int mTileWidth;
+    private final int mTileHeight;
+    private final int mColumnsPerTick;
+
+    private final int[] mTileIndex;
+    private final Bitmap[] mTiles;
+    private final long[] mLastUsed;
+    private long mUseCounter;
+    private int mTileCount;
+    private int mRenderCount;
+
+    private final Canvas mTileCanvas = new Canvas();
+    private final TimecodeFormatter mTimecodeFormatter = new TimecodeFormatter();
+    private final char[] mLabelChars = new char[TimecodeFormatter.MAX_LENGTH];
+
+    /**
+     * @param itemWidth 两个刻度之间的像素
+     * @param capacity  最多缓存的瓦片数，至少要能覆盖一屏
+     */
+    public RulerTileCache(Paint rulerPaint, Paint textPaint, int itemWidth, float textSize,
+                          float rulerHeightBig, float rulerHeightSmall, int capacity) {
+        this(rulerPaint, textPaint, itemWidth, textSize, rulerHeightBig, rulerHeightSmall, capacity, 1);
+    }
+
+    /**
+     * @param columnsPerTick 每个刻度代表的100ms个数，缩放后大于1，只影响时间标签
+     */
+    public RulerTileCache(Paint rulerPaint, Paint textPaint, int itemWidth, float textSize,
+                          float rulerHeightBig, float rulerHeightSmall, int capacity, int columnsPerTick) {
+        if (columnsPerTick <= 0) {
+            throw new IllegalArgumentException("columnsPerTick must be > 0, was " + columnsPerTick);
+        }
+        if (itemWidth <= 0 || capacity <= 0) {
+            throw new IllegalArgumentException("itemWidth=" + itemWidth + ", capacity=" + capacity);
+        }
+        mRulerPaint = rulerPaint;
+        mTextPaint = textPaint;
+        mItemWidth = itemWidth;
+        mTextSize = textSize;
+        mRulerHeightBig = rulerHeightBig;
+        mRulerHeightSmall = rulerHeightSmall;
+        mTileWidth = itemWidth * TICKS_PER_TILE;
+        mTileHeight = (int) Math.ceil(textSize * 1.5f + rulerHeightBig) + 1;
+        mTileIndex = new int[capacity];
+        mTiles = new Bitmap[capacity];
+        mLastUsed = new long[capacity];
+        mColumnsPerTick = columnsPerTick;
+    }
+
+    /**
+     * 画可见范围内的刻度
+     *
+     * @param pixOffset 第0个刻度的x坐标，取整到像素，滚动时不会模糊
+     * @param viewWidth 可见宽度
+     */
+    public void draw(Canvas canvas, long pixOffset, int viewWidth) {
+        int first = (int) Math.max(0, floorDiv(-pixOffset, mTileWidth));
+        int last = (int) floorDiv(viewWidth - pixOffset, mTileWidth);
+        for (int tile = first; tile <= last; tile++) {
+            long left = pixOffset + (long) tile * mTileWidth;
+            canvas.drawBitmap(getTile(tile), left, 0, null);
+        }
+    }
+
+    private static long floorDiv(long x, long y) {
+        long div = x / y;
+        return (x % y != 0 && (x < 0) != (y < 0)) ? div - 1 : div;
+    }
+
+    /**
+     * 取瓦片，没有缓存时渲染
+     */
+    private Bitmap getTile(int tile) {
+        int slot = -1;
+        for (int i = 0; i < mTileCount; i++) {
+            if (mTileIndex[i] == tile) {
+                slot = i;
+                break;
+            }
+        }
+        if (slot < 0) {
+            slot = obtainSlot();
+            mTileIndex[slot] = tile;
+            renderTile(tile, mTiles[slot]);
+        }
+        mLastUsed[slot] = ++mUseCounter;
+        return mTiles[slot];
+    }
+
+    /**
+     * 有空位时分配新位图，否则淘汰最久没用的瓦片，复用它的位图
+     */
+    private int obtainSlot() {
+        if (mTileCount < mTiles.length) {
+            mTiles[mTileCount] = Bitmap.createBitmap(mTileWidth, mTileHeight, Bitmap.Config.ARGB_8888);
+            return mTileCount++;
+        }
+        int oldest = 0;
+        for (int i = 1; i < mTileCount; i++) {
+            if (mLastUsed[i] < mLastUsed[oldest]) {
+                oldest = i;
+            }
+        }
+        return oldest;
+    }
+
+    private void renderTile(int tile, Bitmap bitmap) {
+        mRenderCount++;
+        bitmap.eraseColor(Color.TRANSPARENT);
+        mTileCanvas.setBitmap(bitmap);
+        int firstIndex = tile * TICKS_PER_TILE;
+        //多画两侧相邻的刻度和标签，跨瓦片的部分由位图边界裁剪，拼起来是完整的
+        int from = Math.max(0, firstIndex - MAJOR_TICK);
+        int to = firstIndex + TICKS_PER_TILE + MAJOR_TICK;
+        float bottom = mTextSize * 1.5f + mRulerHeightBig;
+        for (int index = from; index <= to; index++) {
+            float x = (index - firstIndex) * mItemWidth;
+            if (index % MAJOR_TICK == 0) {
+                mTileCanvas.drawLine(x, bottom, x, mTextSize * 1.5f, mRulerPaint);
+                int length = TimecodeFormatter.formatShort((int) ((long) index * mColumnsPerTick / 10), mLabelChars);
+                float width = mTimecodeFormatter.measure(mTextPaint, mLabelChars, length);
+                mTileCanvas.drawText(mLabelChars, 0, length, x - width / 2, mTextSize, mTextPaint);
+            } else {
+                mTileCanvas.drawLine(x, bottom, x, bottom - mRulerHeightSmall, mRulerPaint);
+            }
+        }
+        mTileCanvas.setBitmap(null);
+    }
+
+    /**
+     * 已渲染的瓦片次数，缓存命中时不增加
+     */
+    public int getRenderCount() {
+        return mRenderCount;
+    }
+
+    public int getTileCount() {
+        return mTileCount;
+    }
+
+    /**
+     * 释放所有位图，Surface销毁时调用
+     */
+    public void release() {
+        for (int i = 0; i < mTileCount; i++) {
+            mTiles[i].recycle();
+            mTiles[i] = null;
+        }
+        mTileCount = 0;
+    }
+}
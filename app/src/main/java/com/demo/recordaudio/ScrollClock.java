@@ -0,0 +1,92 @@
+package com.demo.recordaudio;
+
+/**
+ * @author : Zach
+ * @desc : 波形滚动用的时钟。按单调时钟连续走，收到带时间戳的数据时慢慢向数据时间靠拢，
+ * 屏幕刷新率和数据到达频率互不影响；返回值不会倒退。不是线程安全的，由调用方加锁
+ * @date : 2026/10/18 21:30
+ */
+public class ScrollClock {
+
+    /**
+     * 误差超过这个值直接跳过去，否则每次只修正一部分，避免画面抖动
+     */
+    private static final long SNAP_THRESHOLD_NANOS = 1000000000L;
+    private static final int SLEW_DIVISOR = 8;
+
+    private boolean mRunning;
+    /**
+     * 本次开始的单调时钟时间
+     */
+    private long mStartNanos;
+    /**
+     * 之前各段累计的时长
+     */
+    private long mBaseNanos;
+    /**
+     * 对齐数据时间的修正量
+     */
+    private long mOffsetNanos;
+    /**
+     * 上一次返回的位置，保证不倒退
+     */
+    private long mLastPosition;
+
+    public void start(long nowNanos) {
+        if (mRunning) {
+            return;
+        }
+        mRunning = true;
+        mStartNanos = nowNanos;
+    }
+
+    public void pause(long nowNanos) {
+        if (!mRunning) {
+            return;
+        }
+        mBaseNanos += nowNanos - mStartNanos;
+        mRunning = false;
+    }
+
+    public void reset() {
+        mRunning = false;
+        mBaseNanos = 0;
+        mOffsetNanos = 0;
+        mLastPosition = 0;
+    }
+
+    public boolean isRunning() {
+        return mRunning;
+    }
+
+    /**
+     * 用数据的时间戳校正
+     *
+     * @param mediaNanos 数据在nowNanos时刻对应的时间
+     */
+    public void sync(long mediaNanos, long nowNanos) {
+        long error = mediaNanos - rawPosition(nowNanos);
+        if (Math.abs(error) >= SNAP_THRESHOLD_NANOS) {
+            mOffsetNanos += error;
+        } else {
+            mOffsetNanos += error / SLEW_DIVISOR;
+        }
+    }
+
+    /**
+     * 当前位置，单调不减
+     */
+    public long getPosition(long nowNanos) {
+        long position = rawPosition(nowNanos);
+        if (position < mLastPosition) {
+            return mLastPosition;
+        }
+        mLastPosition = position;
+        return position;
+    }
+
+    private long rawPosition(long nowNanos) {
+        long elapsed = mBaseNanos + (mRunning ? nowNanos - mStartNanos : 0);
+        return Math.max(0, elapsed + mOffsetNanos);
+    }
+}
@@ -0,0 +1,200 @@
+package com.demo.recordaudio;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * @author : Zach
+ * @desc : 合并AudioClipView的滑动回调。触摸移动时只记下最新的时间和位置，不分配对象也不回调；
+ * 每帧调用一次{@link #flush()}，把两次分发之间的所有移动合并成一次，交给设置的Executor回调。
+ * 回调用的ScrollInfo由这个对象持有并复用，只在回调期间有效，需要保存时自行拷贝。
+ * 同一时间只有一次分发在执行，分发期间到来的移动由同一个任务接着分发
+ * @date : 2026/10/19 16:10
+ */
+public class ScrollEventCoalescer {
+
+    /**
+     * 在调用flush的线程直接分发
+     */
+    public static final Executor DIRECT_EXECUTOR = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+
+    private static final int LEFT = 0;
+    private static final int RIGHT = 1;
+
+    private final Object mLock = new Object();
+    /**
+     * 待分发的最新值，持有mLock读写
+     */
+    private final boolean[] mThumbPending = new boolean[2];
+    private final int[] mThumbTime = new int[2];
+    private final float[] mThumbPosition = new float[2];
+    private boolean mCursorPending;
+    private int mCursorTime;
+    private float mCursorPosition;
+    private boolean mCursorFromUser;
+    /**
+     * 已经提交了分发任务还没结束
+     */
+    private boolean mScheduled;
+    private long mOfferCount;
+    private long mDispatchCount;
+
+    /**
+     * 只在分发任务里使用
+     */
+    private final AudioClipView.ScrollInfo[] mThumbInfo = {
+            new AudioClipView.ScrollInfo(), new AudioClipView.ScrollInfo()};
+    private final AudioClipView.ScrollInfo mCursorInfo = new AudioClipView.ScrollInfo();
+    private final boolean[] mThumbDispatch = new boolean[2];
+
+    private volatile Executor mExecutor = DIRECT_EXECUTOR;
+    private volatile AudioClipView.OnScrollListener mListener;
+
+    private final Runnable mDispatchTask = new Runnable() {
+        @Override
+        public void run() {
+            dispatch();
+        }
+    };
+
+    public void setListener(AudioClipView.OnScrollListener listener) {
+        mListener = listener;
+    }
+
+    /**
+     * 设置分发回调的线程
+     *
+     * @param executor 为null时在调用flush的线程直接分发
+     */
+    public void setExecutor(Executor executor) {
+        mExecutor = executor == null ? DIRECT_EXECUTOR : executor;
+    }
+
+    /**
+     * 记录滑块移动，覆盖还没分发的同一滑块的值
+     */
+    public void offerThumb(boolean isLeftThumb, int time, float position) {
+        int index = isLeftThumb ? LEFT : RIGHT;
+        synchronized (mLock) {
+            mThumbPending[index] = true;
+            mThumbTime[index] = time;
+            mThumbPosition[index] = position;
+            mOfferCount++;
+        }
+    }
+
+    /**
+     * 记录手动拖动指示器
+     */
+    public void offerCursor(int time, float position) {
+        offerCursor(time, position, true);
+    }
+
+    /**
+     * 记录指示器移动，覆盖还没分发的值；还没分发的手动拖动不会被非手动的移动覆盖，拖动的位置不会丢
+     *
+     * @param fromUser 是否由手指拖动产生
+     */
+    public void offerCursor(int time, float position, boolean fromUser) {
+        synchronized (mLock) {
+            if (!fromUser && mCursorPending && mCursorFromUser) {
+                mOfferCount++;
+                return;
+            }
+            mCursorPending = true;
+            mCursorTime = time;
+            mCursorPosition = position;
+            mCursorFromUser = fromUser;
+            mOfferCount++;
+        }
+    }
+
+    /**
+     * 有待分发的移动时提交一次分发，已经在分发时不重复提交
+     */
+    public void flush() {
+        synchronized (mLock) {
+            if (mScheduled || !hasPendingLocked()) {
+                return;
+            }
+            mScheduled = true;
+        }
+        try {
+            mExecutor.execute(mDispatchTask);
+        } catch (RejectedExecutionException e) {
+            //Executor已经关闭，丢掉这次分发，之后换了Executor还能继续
+            synchronized (mLock) {
+                mScheduled = false;
+            }
+        }
+    }
+
+    /**
+     * 记录过的移动次数
+     */
+    public long getOfferCount() {
+        synchronized (mLock) {
+            return mOfferCount;
+        }
+    }
+
+    /**
+     * 实际分发的次数，每次分发可能包含滑块和指示器的回调
+     */
+    public long getDispatchCount() {
+        synchronized (mLock) {
+            return mDispatchCount;
+        }
+    }
+
+    private boolean hasPendingLocked() {
+        return mCursorPending || mThumbPending[LEFT] || mThumbPending[RIGHT];
+    }
+
+    private void dispatch() {
+        while (true) {
+            boolean cursor;
+            synchronized (mLock) {
+                if (!hasPendingLocked()) {
+                    mScheduled = false;
+                    return;
+                }
+                for (int i = LEFT; i <= RIGHT; i++) {
+                    mThumbDispatch[i] = mThumbPending[i];
+                    if (mThumbPending[i]) {
+                        mThumbInfo[i].setTime(mThumbTime[i]);
+                        mThumbInfo[i].setPosition(mThumbPosition[i]);
+                        mThumbPending[i] = false;
+                    }
+                }
+                cursor = mCursorPending;
+                if (cursor) {
+                    mCursorInfo.setTime(mCursorTime);
+                    mCursorInfo.setPosition(mCursorPosition);
+                    mCursorInfo.setFromUser(mCursorFromUser);
+                    mCursorPending = false;
+                }
+                mDispatchCount++;
+            }
+            //和原来一样先回调滑块再回调指示器，回调时不持锁，触摸线程可以继续记录
+            AudioClipView.OnScrollListener listener = mListener;
+            if (listener == null) {
+                continue;
+            }
+            if (mThumbDispatch[LEFT]) {
+                listener.onScrollThumb(true, mThumbInfo[LEFT]);
+            }
+            if (mThumbDispatch[RIGHT]) {
+                listener.onScrollThumb(false, mThumbInfo[RIGHT]);
+            }
+            if (cursor) {
+                listener.onScrollCursor(mCursorInfo);
+            }
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.demo.recordaudio;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @author : Zach
+ * @desc : 单生产者单消费者的无锁对象队列，用于在线程之间传递复用的缓冲区，入队出队都不分配内存
+ * @date : 2026/10/18 13:05
+ */
+public class SpscQueue<T> {
+
+    private final int mMask;
+    private final Object[] mItems;
+    private final AtomicLong mHead = new AtomicLong();
+    private final AtomicLong mTail = new AtomicLong();
+
+    /**
+     * @param capacity 容量，向上取整到2的幂
+     */
+    public SpscQueue(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be > 0, was " + capacity);
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        mMask = size - 1;
+        mItems = new Object[size];
+    }
+
+    /**
+     * 生产者调用，队列满时返回false
+     */
+    public boolean offer(T item) {
+        long tail = mTail.get();
+        if (tail - mHead.get() > mMask) {
+            return false;
+        }
+        mItems[(int) tail & mMask] = item;
+        mTail.lazySet(tail + 1);
+        return true;
+    }
+
+    /**
+     * 消费者调用，队列为空时返回null
+     */
+    @SuppressWarnings("unchecked")
+    public T poll() {
+        long head = mHead.get();
+        if (head >= mTail.get()) {
+            return null;
+        }
+        int index = (int) head & mMask;
+        T item = (T) mItems[index];
+        mItems[index] = null;
+        mHead.lazySet(head + 1);
+        return item;
+    }
+
+    public boolean isEmpty() {
+        return mHead.get() >= mTail.get();
+    }
+
+    public int size() {
+        return (int) (mTail.get() - mHead.get());
+    }
+}
@@ -0,0 +1,111 @@
+package com.demo.recordaudio;
+
+import android.graphics.Paint;
+
+/**
+ * @author : Zach
+ * @desc : 时间码格式化，写入复用的char[]，不创建String。
+ * 标签宽度按长度缓存：默认字体的数字是等宽的，同样长度的时间码宽度相同
+ * @date : 2026/10/18 19:10
+ */
+public class TimecodeFormatter {
+
+    /**
+     * HH:mm:ss最长的长度，小时超过两位时按实际位数输出
+     */
+    public static final int MAX_LENGTH = 16;
+
+    private final float[] mWidths = new float[MAX_LENGTH + 1];
+    private float mWidthTextSize = -1;
+
+    /**
+     * 格式化成mm:ss，满1小时后是HH:mm:ss
+     *
+     * @param seconds 秒数，小于0按0处理
+     * @param out     长度至少为{@link #MAX_LENGTH}
+     * @return 写入的字符数
+     */
+    public static int formatShort(int seconds, char[] out) {
+        if (seconds < 0) {
+            seconds = 0;
+        }
+        if (seconds < 3600) {
+            return formatMinutes(seconds, out);
+        }
+        return formatLong(seconds, out);
+    }
+
+    /**
+     * 格式化成HH:mm:ss
+     *
+     * @param seconds 秒数，小于0按0处理
+     * @param out     长度至少为{@link #MAX_LENGTH}
+     * @return 写入的字符数
+     */
+    public static int formatLong(int seconds, char[] out) {
+        if (seconds < 0) {
+            seconds = 0;
+        }
+        int pos = writeTwoDigits(seconds / 3600, out, 0);
+        out[pos++] = ':';
+        pos = writeTwoDigits(seconds / 60 % 60, out, pos);
+        out[pos++] = ':';
+        return writeTwoDigits(seconds % 60, out, pos);
+    }
+
+    /**
+     * 格式化成mm:ss，分钟不进位到小时
+     *
+     * @param seconds 秒数，小于0按0处理
+     * @param out     长度至少为{@link #MAX_LENGTH}
+     * @return 写入的字符数
+     */
+    public static int formatMinutes(int seconds, char[] out) {
+        if (seconds < 0) {
+            seconds = 0;
+        }
+        int pos = writeTwoDigits(seconds / 60, out, 0);
+        out[pos++] = ':';
+        return writeTwoDigits(seconds % 60, out, pos);
+    }
+
+    /**
+     * 写入至少两位的数字，不足两位补0
+     *
+     * @return 写完后的位置
+     */
+    private static int writeTwoDigits(int value, char[] out, int pos) {
+        if (value < 10) {
+            out[pos++] = '0';
+            out[pos++] = (char) ('0' + value);
+            return pos;
+        }
+        int digits = 0;
+        for (int v = value; v > 0; v /= 10) {
+            digits++;
+        }
+        for (int i = pos + digits - 1; i >= pos; i--) {
+            out[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+        return pos + digits;
+    }
+
+    /**
+     * 测量时间码宽度，同一字号下每种长度只调用一次measureText
+     */
+    public float measure(Paint paint, char[] text, int length) {
+        if (paint.getTextSize() != mWidthTextSize) {
+            mWidthTextSize = paint.getTextSize();
+            for (int i = 0; i < mWidths.length; i++) {
+                mWidths[i] = -1;
+            }
+        }
+        float width = mWidths[length];
+        if (width < 0) {
+            width = paint.measureText(text, 0, length);
+            mWidths[length] = width;
+        }
+        return width;
+    }
+}
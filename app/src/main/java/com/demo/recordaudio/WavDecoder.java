@@ -0,0 +1,99 @@
+package com.demo.recordaudio;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * @author : Zach
+ * @desc : 16bit PCM的WAV文件按块读取，不依赖Android，JVM测试里代替MediaCodecDecoder
+ * @date : 2026/10/19 11:10
+ */
+public class WavDecoder implements AudioDecoder {
+
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+    private final RandomAccessFile mFile;
+    private final FileChannel mChannel;
+    private final WavHeader mHeader;
+    private final ByteBuffer mBuffer = ByteBuffer.allocateDirect(READ_BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+    private final ShortBuffer mShorts = mBuffer.asShortBuffer();
+    /**
+     * 下一次读取在data块里的位置
+     */
+    private long mPosition;
+
+    public WavDecoder(File file) throws IOException {
+        mFile = new RandomAccessFile(file, "r");
+        try {
+            mChannel = mFile.getChannel();
+            mHeader = WavHeader.read(mChannel);
+            if (mHeader.bitsPerSample != 16) {
+                throw new IOException("only 16bit wav is supported, was " + mHeader.bitsPerSample);
+            }
+        } catch (IOException | RuntimeException e) {
+            mFile.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public int getSampleRate() {
+        return mHeader.sampleRate;
+    }
+
+    @Override
+    public int getChannelCount() {
+        return mHeader.channelCount;
+    }
+
+    @Override
+    public long getDurationUs() {
+        return mHeader.getFrameCount() * 1000000L / mHeader.sampleRate;
+    }
+
+    @Override
+    public int read(short[] buffer, int offset, int length) throws IOException {
+        int frameSize = mHeader.getFrameSize();
+        long remaining = (mHeader.dataSize - mPosition) / frameSize * frameSize;
+        if (remaining <= 0) {
+            return -1;
+        }
+        int bytes = (int) Math.min(remaining, Math.min(mBuffer.capacity(), (long) length * 2));
+        bytes = bytes / frameSize * frameSize;
+        if (bytes <= 0) {
+            throw new IllegalArgumentException("length must hold at least one frame, was " + length);
+        }
+        mBuffer.clear();
+        mBuffer.limit(bytes);
+        while (mBuffer.hasRemaining()) {
+            int read = mChannel.read(mBuffer, mHeader.dataOffset + mPosition + mBuffer.position());
+            if (read < 0) {
+                break;
+            }
+        }
+        int count = mBuffer.position() / frameSize * frameSize / 2;
+        if (count == 0) {
+            return -1;
+        }
+        mPosition += count * 2L;
+        mShorts.clear();
+        mShorts.get(buffer, offset, count);
+        return count;
+    }
+
+    @Override
+    public void seekTo(long frame) {
+        long position = Math.max(0, frame) * mHeader.getFrameSize();
+        mPosition = Math.min(position, mHeader.dataSize);
+    }
+
+    @Override
+    public void close() throws IOException {
+        mFile.close();
+    }
+}
@@ -0,0 +1,111 @@
+package com.demo.recordaudio;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**
+ * @author : Zach
+ * @desc : 16bit PCM的WAV文件写入，数据通过FileChannel追加，RIFF头里的长度只在updateHeader时回填
+ * @date : 2026/10/18 13:20
+ */
+public class WavFileWriter implements Closeable {
+
+    public static final int HEADER_SIZE = 44;
+
+    private final RandomAccessFile mFile;
+    private final FileChannel mChannel;
+    private final ByteBuffer mHeader;
+    private final ByteBuffer mLength;
+    private long mDataSize;
+
+    public WavFileWriter(File file, int sampleRate, int channelCount) throws IOException {
+        mFile = new RandomAccessFile(file, "rw");
+        mChannel = mFile.getChannel();
+        mChannel.truncate(0);
+        mHeader = ByteBuffer.allocateDirect(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        mLength = ByteBuffer.allocateDirect(4).order(ByteOrder.LITTLE_ENDIAN);
+        writeHeader(mHeader, sampleRate, channelCount, 0);
+        writeFully(mHeader, 0);
+        mChannel.position(HEADER_SIZE);
+    }
+
+    /**
+     * 填充44字节的WAV头
+     *
+     * @param header   至少44字节，小端
+     * @param dataSize data块的字节数
+     */
+    public static void writeHeader(ByteBuffer header, int sampleRate, int channelCount, long dataSize) {
+        int blockAlign = channelCount * 2;
+        header.clear();
+        header.putInt(0x46464952);// "RIFF"
+        header.putInt(riffSize(dataSize));
+        header.putInt(0x45564157);// "WAVE"
+        header.putInt(0x20746d66);// "fmt "
+        header.putInt(16);
+        header.putShort((short) 1);// PCM
+        header.putShort((short) channelCount);
+        header.putInt(sampleRate);
+        header.putInt(sampleRate * blockAlign);
+        header.putShort((short) blockAlign);
+        header.putShort((short) 16);
+        header.putInt(0x61746164);// "data"
+        header.putInt(dataSize(dataSize));
+        header.flip();
+    }
+
+    private static int riffSize(long dataSize) {
+        return (int) Math.min(dataSize + HEADER_SIZE - 8, 0xFFFFFFFFL);
+    }
+
+    private static int dataSize(long dataSize) {
+        return (int) Math.min(dataSize, 0xFFFFFFFFL);
+    }
+
+    /**
+     * 追加PCM数据，写入buffer从position到limit的部分
+     */
+    public void write(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            mDataSize += mChannel.write(buffer);
+        }
+    }
+
+    /**
+     * 回填RIFF和data块的长度，不移动追加位置
+     */
+    public void updateHeader() throws IOException {
+        mLength.clear();
+        mLength.putInt(riffSize(mDataSize));
+        mLength.flip();
+        writeFully(mLength, 4);
+        mLength.clear();
+        mLength.putInt(dataSize(mDataSize));
+        mLength.flip();
+        writeFully(mLength, 40);
+    }
+
+    private void writeFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += mChannel.write(buffer, position);
+        }
+    }
+
+    public long getDataSize() {
+        return mDataSize;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            updateHeader();
+        } finally {
+            mFile.close();
+        }
+    }
+}
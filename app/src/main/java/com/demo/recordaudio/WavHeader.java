@@ -0,0 +1,107 @@
+package com.demo.recordaudio;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**
+ * @author : Zach
+ * @desc : 解析WAV文件头，按块查找fmt和data，兼容data前面有LIST等其它块的文件
+ * @date : 2026/10/18 17:05
+ */
+public class WavHeader {
+
+    private static final int RIFF = 0x46464952;
+    private static final int WAVE = 0x45564157;
+    private static final int FMT = 0x20746d66;
+    private static final int DATA = 0x61746164;
+
+    public final int sampleRate;
+    public final int channelCount;
+    public final int bitsPerSample;
+    /**
+     * data块数据在文件中的起始位置
+     */
+    public final long dataOffset;
+    /**
+     * data块的字节数，已按文件实际长度修正
+     */
+    public final long dataSize;
+
+    private WavHeader(int sampleRate, int channelCount, int bitsPerSample, long dataOffset, long dataSize) {
+        this.sampleRate = sampleRate;
+        this.channelCount = channelCount;
+        this.bitsPerSample = bitsPerSample;
+        this.dataOffset = dataOffset;
+        this.dataSize = dataSize;
+    }
+
+    public int getFrameSize() {
+        return channelCount * bitsPerSample / 8;
+    }
+
+    public long getFrameCount() {
+        return dataSize / getFrameSize();
+    }
+
+    public long getDurationMs() {
+        return getFrameCount() * 1000 / sampleRate;
+    }
+
+    /**
+     * 读取文件头，不改变channel的position
+     */
+    public static WavHeader read(FileChannel channel) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(12).order(ByteOrder.LITTLE_ENDIAN);
+        readFully(channel, buffer, 0);
+        if (buffer.getInt(0) != RIFF || buffer.getInt(8) != WAVE) {
+            throw new IOException("not a wav file");
+        }
+        long fileSize = channel.size();
+        long position = 12;
+        int sampleRate = 0;
+        int channelCount = 0;
+        int bitsPerSample = 0;
+        ByteBuffer chunk = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+        while (position + 8 <= fileSize) {
+            readFully(channel, chunk, position);
+            int id = chunk.getInt(0);
+            long size = chunk.getInt(4) & 0xFFFFFFFFL;
+            long body = position + 8;
+            if (id == FMT) {
+                ByteBuffer fmt = ByteBuffer.allocate(16).order(ByteOrder.LITTLE_ENDIAN);
+                readFully(channel, fmt, body);
+                int format = fmt.getShort(0) & 0xFFFF;
+                // 1是PCM，0xFFFE是WAVE_FORMAT_EXTENSIBLE
+                if (format != 1 && format != 0xFFFE) {
+                    throw new IOException("unsupported wav format " + format);
+                }
+                channelCount = fmt.getShort(2);
+                sampleRate = fmt.getInt(4);
+                bitsPerSample = fmt.getShort(14);
+            } else if (id == DATA) {
+                if (sampleRate == 0) {
+                    throw new IOException("data chunk before fmt chunk");
+                }
+                // 录制中断的文件长度可能没有回填，以文件实际长度为准
+                long dataSize = size == 0 || body + size > fileSize ? fileSize - body : size;
+                return new WavHeader(sampleRate, channelCount, bitsPerSample, body, dataSize);
+            }
+            position = body + size + (size & 1);
+        }
+        throw new IOException("no data chunk");
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        buffer.clear();
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new IOException("unexpected end of wav header");
+            }
+            position += read;
+        }
+        buffer.flip();
+    }
+}
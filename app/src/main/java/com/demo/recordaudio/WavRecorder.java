@@ -0,0 +1,272 @@
+package com.demo.recordaudio;
+
+import android.os.Process;
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * @author : Zach
+ * @desc : 流式WAV录制。采集线程只把数据拷到池化的direct buffer里入队，由写线程通过FileChannel落盘，
+ * 池子用完时丢弃数据而不是等待，保证采集线程不会被磁盘IO阻塞
+ * @date : 2026/10/18 13:40
+ */
+public class WavRecorder implements AudioCaptureEngine.BlockListener {
+
+    private static final String TAG = "WavRecorder";
+    /**
+     * 写线程空闲时的等待时间
+     */
+    private static final long IDLE_PARK_NANOS = 2000000L;
+    /**
+     * 峰值文件每个bin的帧数，44.1kHz下约172个bin每秒
+     */
+    private static final int PEAK_SAMPLES_PER_BIN = 256;
+    /**
+     * 停止后在这里写峰值文件，长录音的峰值有几MB，不能让调用stop的线程等
+     */
+    private static final ExecutorService PEAK_EXECUTOR = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "wav-peaks");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    private final int mBufferSize;
+    private final int mBufferCount;
+    /**
+     * 空闲的缓冲区，写线程归还，采集线程取用
+     */
+    private final SpscQueue<ByteBuffer> mFreeBuffers;
+    /**
+     * 待写入的缓冲区，采集线程放入，写线程取出
+     */
+    private final SpscQueue<ByteBuffer> mFilledBuffers;
+
+    private WavFileWriter mWriter;
+    /**
+     * 写线程边写边构建峰值，停止时交给PEAK_EXECUTOR写入峰值文件，每次录制用新的对象
+     */
+    private PeakPyramid mPeaks;
+    private Future<?> mPeakTask;
+    private int mSampleRate;
+    private int mChannelCount;
+    private Thread mWriteThread;
+    private volatile boolean mRunning;
+    private volatile boolean mFlushRequested;
+    private volatile long mDroppedBlocks;
+    private volatile IOException mError;
+    private File mFile;
+
+    /**
+     * @param bufferSize  单个缓冲区大小，不小于采集块大小
+     * @param bufferCount 缓冲区个数，决定了能容忍多长时间的磁盘卡顿
+     */
+    public WavRecorder(int bufferSize, int bufferCount) {
+        mBufferSize = bufferSize;
+        mBufferCount = bufferCount;
+        mFreeBuffers = new SpscQueue<>(bufferCount);
+        mFilledBuffers = new SpscQueue<>(bufferCount);
+        for (int i = 0; i < bufferCount; i++) {
+            //WAV是小端，峰值按小端读取
+            mFreeBuffers.offer(ByteBuffer.allocateDirect(bufferSize).order(ByteOrder.LITTLE_ENDIAN));
+        }
+    }
+
+    /**
+     * 开始录制到新文件
+     */
+    public synchronized void start(File file, int sampleRate, int channelCount) throws IOException {
+        if (mRunning) {
+            throw new IllegalStateException("recorder already started: " + mFile);
+        }
+        mWriter = new WavFileWriter(file, sampleRate, channelCount);
+        mFile = file;
+        mSampleRate = sampleRate;
+        mChannelCount = channelCount;
+        mPeaks = new PeakPyramid(PEAK_SAMPLES_PER_BIN);
+        mError = null;
+        mDroppedBlocks = 0;
+        mRunning = true;
+        mWriteThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                writeLoop();
+            }
+        }, "wav-writer");
+        mWriteThread.start();
+    }
+
+    @Override
+    public void onBlock(ByteBuffer pcm, int size, long timeNanos) {
+        write(pcm, size);
+    }
+
+    /**
+     * 采集线程调用，不阻塞
+     *
+     * @param pcm  数据从position 0开始，会修改它的position和limit
+     * @param size 字节数
+     * @return false表示缓冲区不够用，这一块被丢弃
+     */
+    public boolean write(ByteBuffer pcm, int size) {
+        if (!mRunning) {
+            return false;
+        }
+        ByteBuffer buffer = size > mBufferSize ? null : mFreeBuffers.poll();
+        if (buffer == null) {
+            mDroppedBlocks++;
+            return false;
+        }
+        pcm.limit(size);
+        pcm.position(0);
+        buffer.clear();
+        buffer.put(pcm);
+        buffer.flip();
+        mFilledBuffers.offer(buffer);
+        return true;
+    }
+
+    /**
+     * 暂停时回填文件头，让已写入的部分成为完整的WAV文件，不等待写线程
+     */
+    public void pause() {
+        mFlushRequested = true;
+        LockSupport.unpark(mWriteThread);
+    }
+
+    /**
+     * 停止录制，等待剩余数据写完并关闭文件
+     *
+     * @return 录制的文件
+     */
+    public synchronized File stop() throws IOException {
+        if (!mRunning) {
+            return mFile;
+        }
+        mRunning = false;
+        LockSupport.unpark(mWriteThread);
+        try {
+            mWriteThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        mWriteThread = null;
+        try {
+            mWriter.close();
+        } finally {
+            mWriter = null;
+        }
+        if (mError != null) {
+            throw mError;
+        }
+        final PeakPyramid peaks = mPeaks;
+        final File peakFile = PeakFile.forAudio(mFile);
+        final int sampleRate = mSampleRate;
+        final int channelCount = mChannelCount;
+        mPeakTask = PEAK_EXECUTOR.submit(new Runnable() {
+            @Override
+            public void run() {
+                peaks.flush();
+                try {
+                    PeakFile.write(peakFile, peaks, sampleRate, channelCount);
+                } catch (IOException e) {
+                    //没有峰值文件时裁剪界面会重新解码
+                    Log.e(TAG, "write " + peakFile + " failed", e);
+                }
+            }
+        });
+        return mFile;
+    }
+
+    /**
+     * 等待最近一次停止后的峰值文件写完
+     */
+    void awaitPeakFile() throws InterruptedException {
+        Future<?> task;
+        synchronized (this) {
+            task = mPeakTask;
+        }
+        if (task == null) {
+            return;
+        }
+        try {
+            task.get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private void writeLoop() {
+        while (true) {
+            ByteBuffer buffer = mFilledBuffers.poll();
+            if (buffer != null) {
+                if (mError == null) {
+                    try {
+                        mPeaks.addSamples(buffer, 0, buffer.limit(), mChannelCount);
+                        mWriter.write(buffer);
+                    } catch (IOException e) {
+                        Log.e(TAG, "write " + mFile + " failed", e);
+                        mError = e;
+                    }
+                }
+                mFreeBuffers.offer(buffer);
+                continue;
+            }
+            if (mFlushRequested) {
+                mFlushRequested = false;
+                if (mError == null) {
+                    try {
+                        mWriter.updateHeader();
+                    } catch (IOException e) {
+                        Log.e(TAG, "update header of " + mFile + " failed", e);
+                        mError = e;
+                    }
+                }
+            }
+            if (!mRunning && mFilledBuffers.isEmpty()) {
+                break;
+            }
+            LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+        }
+    }
+
+    public boolean isRecording() {
+        return mRunning;
+    }
+
+    public File getFile() {
+        return mFile;
+    }
+
+    /**
+     * 已落盘的PCM字节数
+     */
+    public long getDataSize() {
+        WavFileWriter writer = mWriter;
+        return writer == null ? 0 : writer.getDataSize();
+    }
+
+    public long getDroppedBlocks() {
+        return mDroppedBlocks;
+    }
+
+    /**
+     * 缓冲池占用的内存，录制期间固定不变
+     */
+    public long getPoolMemory() {
+        return (long) mBufferSize * mBufferCount;
+    }
+}
@@ -0,0 +1,103 @@
+package com.demo.recordaudio;
+
+/**
+ * @author : Zach
+ * @desc : 波形振幅的定长环形缓冲区，追加为O(1)，不装箱、不扩容
+ * @date : 2026/10/18 10:12
+ */
+public class WaveRingBuffer {
+
+    /**
+     * 振幅数据
+     */
+    private short[] mData;
+    /**
+     * 下一个写入位置
+     */
+    private int mHead;
+    /**
+     * 当前有效数据个数
+     */
+    private int mSize;
+
+    public WaveRingBuffer(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be > 0, was " + capacity);
+        }
+        mData = new short[capacity];
+    }
+
+    /**
+     * 追加一个振幅，缓冲区满时覆盖最旧的数据
+     *
+     * @param value 振幅
+     */
+    public void add(int value) {
+        if (value > Short.MAX_VALUE) {
+            value = Short.MAX_VALUE;
+        } else if (value < Short.MIN_VALUE) {
+            value = Short.MIN_VALUE;
+        }
+        mData[mHead] = (short) value;
+        mHead++;
+        if (mHead == mData.length) {
+            mHead = 0;
+        }
+        if (mSize < mData.length) {
+            mSize++;
+        }
+    }
+
+    /**
+     * 按从新到旧的顺序取数据
+     *
+     * @param index 0表示最新的数据
+     * @return 振幅
+     */
+    public int get(int index) {
+        if (index < 0 || index >= mSize) {
+            throw new IndexOutOfBoundsException("index=" + index + ", size=" + mSize);
+        }
+        int pos = mHead - 1 - index;
+        if (pos < 0) {
+            pos += mData.length;
+        }
+        return mData[pos];
+    }
+
+    public int size() {
+        return mSize;
+    }
+
+    public int capacity() {
+        return mData.length;
+    }
+
+    public void clear() {
+        mHead = 0;
+        mSize = 0;
+    }
+
+    /**
+     * 调整容量，保留最新的数据。只在视图尺寸变化时调用，容量不变时不分配内存
+     *
+     * @param capacity 新容量
+     */
+    public void resize(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be > 0, was " + capacity);
+        }
+        if (capacity == mData.length) {
+            return;
+        }
+        short[] data = new short[capacity];
+        int size = Math.min(mSize, capacity);
+        // 从旧到新依次拷贝，新数组的写入位置正好是size
+        for (int i = 0; i < size; i++) {
+            data[i] = (short) get(size - 1 - i);
+        }
+        mData = data;
+        mSize = size;
+        mHead = size == capacity ? 0 : size;
+    }
+}
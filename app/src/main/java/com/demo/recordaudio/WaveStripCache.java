@@ -0,0 +1,184 @@
+package com.demo.recordaudio;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+
+/**
+ * @author : Zach
+ * @desc : 录音波形的离屏环形缓存。位图按列循环使用，新数据只画新露出来的几列，
+ * 旧的列不重画；显示时按当前头部位置分两段贴到屏幕上。只在渲染线程使用
+ * @date : 2026/10/18 20:40
+ */
+public class WaveStripCache {
+
+    private final int mSpace;
+    private final Paint mWavePaint;
+    private final Paint mClearPaint = new Paint();
+    private final Canvas mRingCanvas = new Canvas();
+    private final Rect mSrc = new Rect();
+    private final Rect mDst = new Rect();
+
+    private Bitmap mRing;
+    private int mRingWidth;
+    /**
+     * 最新一列在屏幕上的x坐标
+     */
+    private int mCenterX;
+    private int mTop;
+    private int mBottom;
+    private float mCenterY;
+    /**
+     * 中轴线右边要显示的宽度，容纳最新一列的笔宽
+     */
+    private int mPad;
+    /**
+     * 已经画进位图的数据总数
+     */
+    private long mAppended;
+    /**
+     * 累计画过的列数，用来衡量每帧的绘制量
+     */
+    private long mDrawnColumns;
+
+    /**
+     * @param space      相邻两列的像素间隔
+     * @param background 波形区域背景色
+     */
+    public WaveStripCache(int space, int background, Paint wavePaint) {
+        if (space <= 0) {
+            throw new IllegalArgumentException("space must be > 0, was " + space);
+        }
+        mSpace = space;
+        mWavePaint = wavePaint;
+        mClearPaint.setColor(background);
+    }
+
+    /**
+     * 设置显示区域，尺寸变化时重新分配位图并清空
+     *
+     * @param centerX 最新一列的x坐标
+     * @param top     波形区域上边
+     * @param bottom  波形区域下边
+     * @param centerY 波形中线的y坐标
+     * @return 是否重新分配了位图，是的话需要重新追加可见的数据
+     */
+    public boolean setArea(int centerX, int top, int bottom, float centerY) {
+        int pad = (int) Math.ceil(mWavePaint.getStrokeWidth() / 2) + 1;
+        int ringWidth = (centerX / mSpace + 2) * mSpace;
+        if (mRing != null && centerX == mCenterX && top == mTop && bottom == mBottom
+                && centerY == mCenterY && pad == mPad) {
+            return false;
+        }
+        release();
+        mCenterX = centerX;
+        mTop = top;
+        mBottom = bottom;
+        mCenterY = centerY;
+        mPad = pad;
+        mRingWidth = ringWidth;
+        if (bottom > top && ringWidth > 0) {
+            mRing = Bitmap.createBitmap(ringWidth, bottom - top, Bitmap.Config.ARGB_8888);
+            mRingCanvas.setBitmap(mRing);
+        }
+        reset();
+        return true;
+    }
+
+    /**
+     * 清空，之后需要重新追加可见的数据
+     */
+    public void reset() {
+        mAppended = 0;
+        if (mRing != null) {
+            mRing.eraseColor(mClearPaint.getColor());
+        }
+    }
+
+    public long getAppended() {
+        return mAppended;
+    }
+
+    public long getDrawnColumns() {
+        return mDrawnColumns;
+    }
+
+    /**
+     * 追加数据，只画这几列
+     *
+     * @param values   振幅，从旧到新
+     * @param count    个数
+     * @param appended 追加后的数据总数，用来确定每一列在环里的位置
+     */
+    public void append(short[] values, int count, long appended) {
+        mAppended = appended;
+        if (mRing == null) {
+            return;
+        }
+        float centerY = mCenterY - mTop;
+        float half = mSpace / 2f;
+        for (int j = 0; j < count; j++) {
+            int x = ringX(appended - count + j);
+            float y = values[j];
+            //相邻的旧数据可能跨过环的边界，左右各画一次，超出位图的部分自动裁掉
+            for (int k = -1; k <= 1; k++) {
+                float cx = x + k * mRingWidth;
+                if (cx + half < 0 || cx - half > mRingWidth) {
+                    continue;
+                }
+                mRingCanvas.drawRect(cx - half, 0, cx + half, mRing.getHeight(), mClearPaint);
+                mRingCanvas.drawLine(cx, centerY - y, cx, centerY + y, mWavePaint);
+            }
+        }
+        mDrawnColumns += count;
+    }
+
+    /**
+     * 把可见部分贴到屏幕上，最多两次drawBitmap
+     *
+     * @param shift 最新一列离中轴线向左的像素，滚动时钟走在数据前面时大于0
+     */
+    public void draw(Canvas canvas, int shift) {
+        if (mRing == null) {
+            return;
+        }
+        //最新一列右边的环里是很早以前的数据，只显示到它自己的笔宽为止
+        int width = mCenterX - shift + mPad;
+        if (width <= 0) {
+            return;
+        }
+        int start = floorMod(ringX(mAppended - 1) - mCenterX + shift, mRingWidth);
+        int first = Math.min(width, mRingWidth - start);
+        mSrc.set(start, 0, start + first, mRing.getHeight());
+        mDst.set(0, mTop, first, mBottom);
+        canvas.drawBitmap(mRing, mSrc, mDst, null);
+        if (first < width) {
+            mSrc.set(0, 0, width - first, mRing.getHeight());
+            mDst.set(first, mTop, width, mBottom);
+            canvas.drawBitmap(mRing, mSrc, mDst, null);
+        }
+    }
+
+    public void release() {
+        mRingCanvas.setBitmap(null);
+        if (mRing != null) {
+            mRing.recycle();
+            mRing = null;
+        }
+    }
+
+    private int ringX(long number) {
+        return (int) floorMod(number * mSpace, mRingWidth);
+    }
+
+    private static long floorMod(long x, long y) {
+        long mod = x % y;
+        return mod < 0 ? mod + y : mod;
+    }
+
+    private static int floorMod(int x, int y) {
+        int mod = x % y;
+        return mod < 0 ? mod + y : mod;
+    }
+}
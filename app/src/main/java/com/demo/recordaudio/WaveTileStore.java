@@ -0,0 +1,452 @@
+package com.demo.recordaudio;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * @author : Zach
+ * @desc : 整个录音过程的波形历史，值是量化分贝，每{@link #TILE_COLUMNS}列一个瓦片。
+ * 正在写的瓦片常驻内存，写满后交给IO线程追加到磁盘文件，内存里只按LRU保留最近用到的几个瓦片，
+ * 查到不在内存的瓦片时先按静音返回，同时在IO线程加载，加载完回调{@link Listener}让界面重画。
+ * 另外每{@link #SUMMARY_COLUMNS}列保留一个最大值常驻内存，缩小到一列覆盖很多数据时直接查它，不用读盘。
+ * 追加只写内存，磁盘读写都不在调用线程，录音不会因为翻看历史卡住。
+ * 没有指定文件时所有瓦片都留在内存。方法都用对象锁同步
+ * @date : 2026/10/19 14:30
+ */
+public class WaveTileStore implements PeakSource {
+
+    /**
+     * 每个瓦片的列数，100ms一列时约102秒，2KB
+     */
+    public static final int TILE_COLUMNS = 1024;
+    private static final int TILE_SHIFT = 10;
+    private static final int TILE_MASK = TILE_COLUMNS - 1;
+    /**
+     * 摘要的粒度，每16列保留一个最大值，10小时约45KB
+     */
+    public static final int SUMMARY_COLUMNS = 16;
+    private static final int SUMMARY_SHIFT = 4;
+    /**
+     * 默认缓存的瓦片数，最大缩放前一屏用不到4个
+     */
+    private static final int DEFAULT_CACHE_TILES = 8;
+    /**
+     * 还没加载出来的数据按最小分贝返回
+     */
+    public static final short MISSING = DecibelHeightTable.quantize(DecibelHeightTable.MIN_DB);
+
+    /**
+     * 槽位的状态：空、和磁盘一致可以淘汰、等待写盘、正在加载、只在内存(没有文件或者写盘失败)
+     */
+    private static final byte SLOT_EMPTY = 0;
+    private static final byte SLOT_READY = 1;
+    private static final byte SLOT_DIRTY = 2;
+    private static final byte SLOT_LOADING = 3;
+    private static final byte SLOT_PINNED = 4;
+
+    /**
+     * 所有实例共用一个IO线程，按提交顺序执行，加载一定排在同一瓦片的写入之后
+     */
+    private static final ExecutorService IO_EXECUTOR = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "wave-tiles");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    private final File mFile;
+    private final int mCacheTiles;
+
+    private short[] mHead = new short[TILE_COLUMNS];
+    private short[] mSummary = new short[256];
+    private long mCount;
+
+    private int mSlotCount;
+    private int[] mSlotTile = new int[0];
+    private short[][] mSlotData = new short[0][];
+    private byte[] mSlotState = new byte[0];
+    private long[] mSlotUsed = new long[0];
+    private long mUseCounter;
+    /**
+     * 每次清空加1，IO线程完成时据此丢掉过期的结果
+     */
+    private int mGeneration;
+
+    private volatile Listener mListener;
+
+    /**
+     * IO线程使用
+     */
+    private RandomAccessFile mRandomAccessFile;
+    private final ByteBuffer mIoBuffer = ByteBuffer.allocate(TILE_COLUMNS * 2).order(ByteOrder.LITTLE_ENDIAN);
+
+    /**
+     * @param file 写满的瓦片存放的文件，为null时全部留在内存
+     */
+    public WaveTileStore(File file) {
+        this(file, DEFAULT_CACHE_TILES);
+    }
+
+    /**
+     * @param cacheTiles 内存里最多保留的已写盘瓦片数，测试时调小来覆盖淘汰和加载
+     */
+    WaveTileStore(File file, int cacheTiles) {
+        if (cacheTiles <= 0) {
+            throw new IllegalArgumentException("cacheTiles must be > 0, was " + cacheTiles);
+        }
+        mFile = file;
+        mCacheTiles = cacheTiles;
+    }
+
+    /**
+     * 设置瓦片加载完成的回调，在IO线程调用
+     */
+    public void setListener(Listener listener) {
+        mListener = listener;
+    }
+
+    @Override
+    public synchronized long getBinCount() {
+        return mCount;
+    }
+
+    /**
+     * 追加一列，只写内存
+     */
+    public synchronized void append(short value) {
+        int offset = (int) (mCount & TILE_MASK);
+        mHead[offset] = value;
+        int summary = (int) (mCount >> SUMMARY_SHIFT);
+        if (summary >= mSummary.length) {
+            mSummary = Arrays.copyOf(mSummary, mSummary.length * 2);
+        }
+        if ((mCount & (SUMMARY_COLUMNS - 1)) == 0 || value > mSummary[summary]) {
+            mSummary[summary] = value;
+        }
+        mCount++;
+        if (offset == TILE_MASK) {
+            spillHead((int) ((mCount - 1) >> TILE_SHIFT));
+        }
+    }
+
+    /**
+     * 清空所有数据，磁盘文件在IO线程截断
+     */
+    public synchronized void clear() {
+        mCount = 0;
+        mGeneration++;
+        for (int i = 0; i < mSlotCount; i++) {
+            if (mSlotState[i] == SLOT_LOADING) {
+                //IO线程还在往这个数组里读，不能再用
+                mSlotData[i] = null;
+            }
+            mSlotState[i] = SLOT_EMPTY;
+            mSlotTile[i] = -1;
+        }
+        if (mFile != null) {
+            IO_EXECUTOR.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        openFile().setLength(0);
+                    } catch (IOException e) {
+                        closeFile();
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * 内存里的瓦片数，不含正在写的瓦片
+     */
+    public synchronized int getResidentTileCount() {
+        int count = 0;
+        for (int i = 0; i < mSlotCount; i++) {
+            if (mSlotState[i] != SLOT_EMPTY && mSlotState[i] != SLOT_LOADING) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 每列取最大值，min和max填同样的值。不在内存的数据按{@link #MISSING}填充并在后台加载
+     */
+    @Override
+    public synchronized int query(long startBin, long endBin, int columns, short[] outMin, short[] outMax) {
+        endBin = Math.min(endBin, mCount);
+        startBin = Math.max(startBin, 0);
+        if (columns <= 0 || endBin <= startBin) {
+            return 0;
+        }
+        long span = endBin - startBin;
+        columns = (int) Math.min(columns, span);
+        boolean summary = span / columns >= SUMMARY_COLUMNS;
+        for (int c = 0; c < columns; c++) {
+            long from = startBin + span * c / columns;
+            long to = startBin + span * (c + 1) / columns;
+            short value = summary ? summaryMax(from, to) : tileMax(from, to);
+            outMin[c] = value;
+            outMax[c] = value;
+        }
+        return columns;
+    }
+
+    private short summaryMax(long from, long to) {
+        int first = (int) (from >> SUMMARY_SHIFT);
+        int last = (int) ((to - 1) >> SUMMARY_SHIFT);
+        int max = mSummary[first];
+        for (int i = first + 1; i <= last; i++) {
+            if (mSummary[i] > max) {
+                max = mSummary[i];
+            }
+        }
+        return (short) max;
+    }
+
+    private short tileMax(long from, long to) {
+        int max = Short.MIN_VALUE;
+        long column = from;
+        while (column < to) {
+            int offset = (int) (column & TILE_MASK);
+            int end = (int) Math.min(TILE_COLUMNS, offset + (to - column));
+            short[] data = tileData((int) (column >> TILE_SHIFT));
+            if (data == null) {
+                if (MISSING > max) {
+                    max = MISSING;
+                }
+            } else {
+                for (int i = offset; i < end; i++) {
+                    if (data[i] > max) {
+                        max = data[i];
+                    }
+                }
+            }
+            column += end - offset;
+        }
+        return (short) max;
+    }
+
+    /**
+     * 瓦片数据，不在内存时发起加载并返回null
+     */
+    private short[] tileData(int tile) {
+        if (tile == (int) (mCount >> TILE_SHIFT)) {
+            return mHead;
+        }
+        for (int i = 0; i < mSlotCount; i++) {
+            if (mSlotTile[i] == tile) {
+                if (mSlotState[i] == SLOT_LOADING) {
+                    return null;
+                }
+                mSlotUsed[i] = ++mUseCounter;
+                return mSlotData[i];
+            }
+        }
+        requestLoad(tile);
+        return null;
+    }
+
+    /**
+     * 正在写的瓦片满了，换到槽位里等待写盘，空出来的数组接着写
+     */
+    private void spillHead(int tile) {
+        int slot = obtainSlot();
+        short[] full = mHead;
+        mHead = mSlotData[slot] != null ? mSlotData[slot] : new short[TILE_COLUMNS];
+        mSlotData[slot] = full;
+        mSlotTile[slot] = tile;
+        mSlotUsed[slot] = ++mUseCounter;
+        if (mFile == null) {
+            mSlotState[slot] = SLOT_PINNED;
+            return;
+        }
+        mSlotState[slot] = SLOT_DIRTY;
+        final int generation = mGeneration;
+        final int t = tile;
+        final short[] data = full;
+        IO_EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                boolean written;
+                try {
+                    writeTile(t, data);
+                    written = true;
+                } catch (IOException e) {
+                    closeFile();
+                    written = false;
+                }
+                onWritten(t, data, generation, written);
+            }
+        });
+    }
+
+    private synchronized void onWritten(int tile, short[] data, int generation, boolean written) {
+        if (generation != mGeneration) {
+            return;
+        }
+        for (int i = 0; i < mSlotCount; i++) {
+            if (mSlotTile[i] == tile && mSlotData[i] == data && mSlotState[i] == SLOT_DIRTY) {
+                //写盘失败的留在内存，不会再被淘汰
+                mSlotState[i] = written ? SLOT_READY : SLOT_PINNED;
+                trimCache();
+                return;
+            }
+        }
+    }
+
+    /**
+     * 已写盘的瓦片超出缓存容量时释放最久没用的，录音一直往前写时内存不会随时长增长
+     */
+    private void trimCache() {
+        while (true) {
+            int ready = 0;
+            int oldest = -1;
+            for (int i = 0; i < mSlotCount; i++) {
+                if (mSlotState[i] == SLOT_READY) {
+                    ready++;
+                    if (oldest < 0 || mSlotUsed[i] < mSlotUsed[oldest]) {
+                        oldest = i;
+                    }
+                }
+            }
+            if (ready <= mCacheTiles) {
+                return;
+            }
+            mSlotTile[oldest] = -1;
+            mSlotState[oldest] = SLOT_EMPTY;
+            mSlotData[oldest] = null;
+        }
+    }
+
+    private void requestLoad(int tile) {
+        if (mFile == null) {
+            return;
+        }
+        int slot = obtainSlot();
+        if (mSlotData[slot] == null) {
+            mSlotData[slot] = new short[TILE_COLUMNS];
+        }
+        mSlotTile[slot] = tile;
+        mSlotState[slot] = SLOT_LOADING;
+        mSlotUsed[slot] = ++mUseCounter;
+        final int generation = mGeneration;
+        final int t = tile;
+        final short[] data = mSlotData[slot];
+        IO_EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    readTile(t, data);
+                } catch (IOException e) {
+                    //读不出来的按静音显示，不反复重试
+                    closeFile();
+                    Arrays.fill(data, MISSING);
+                }
+                if (onLoaded(t, data, generation)) {
+                    Listener listener = mListener;
+                    if (listener != null) {
+                        listener.onTileLoaded();
+                    }
+                }
+            }
+        });
+    }
+
+    private synchronized boolean onLoaded(int tile, short[] data, int generation) {
+        if (generation != mGeneration) {
+            return false;
+        }
+        for (int i = 0; i < mSlotCount; i++) {
+            if (mSlotTile[i] == tile && mSlotData[i] == data && mSlotState[i] == SLOT_LOADING) {
+                mSlotState[i] = SLOT_READY;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 有空位时直接用，缓存满了淘汰最久没用的已写盘瓦片，都不能淘汰时扩容
+     */
+    private int obtainSlot() {
+        int ready = 0;
+        int oldest = -1;
+        for (int i = 0; i < mSlotCount; i++) {
+            byte state = mSlotState[i];
+            if (state == SLOT_EMPTY) {
+                return i;
+            }
+            if (state == SLOT_READY) {
+                ready++;
+                if (oldest < 0 || mSlotUsed[i] < mSlotUsed[oldest]) {
+                    oldest = i;
+                }
+            }
+        }
+        if (oldest >= 0 && ready >= mCacheTiles) {
+            mSlotTile[oldest] = -1;
+            mSlotState[oldest] = SLOT_EMPTY;
+            return oldest;
+        }
+        if (mSlotCount == mSlotTile.length) {
+            int capacity = Math.max(mSlotCount * 2, 4);
+            mSlotTile = Arrays.copyOf(mSlotTile, capacity);
+            mSlotData = Arrays.copyOf(mSlotData, capacity);
+            mSlotState = Arrays.copyOf(mSlotState, capacity);
+            mSlotUsed = Arrays.copyOf(mSlotUsed, capacity);
+        }
+        mSlotTile[mSlotCount] = -1;
+        return mSlotCount++;
+    }
+
+    private RandomAccessFile openFile() throws IOException {
+        if (mRandomAccessFile == null) {
+            mRandomAccessFile = new RandomAccessFile(mFile, "rw");
+        }
+        return mRandomAccessFile;
+    }
+
+    private void closeFile() {
+        if (mRandomAccessFile != null) {
+            try {
+                mRandomAccessFile.close();
+            } catch (IOException ignored) {
+            }
+            mRandomAccessFile = null;
+        }
+    }
+
+    private void writeTile(int tile, short[] data) throws IOException {
+        mIoBuffer.clear();
+        mIoBuffer.asShortBuffer().put(data);
+        RandomAccessFile file = openFile();
+        file.seek((long) tile * TILE_COLUMNS * 2);
+        file.write(mIoBuffer.array(), 0, TILE_COLUMNS * 2);
+    }
+
+    private void readTile(int tile, short[] data) throws IOException {
+        RandomAccessFile file = openFile();
+        file.seek((long) tile * TILE_COLUMNS * 2);
+        file.readFully(mIoBuffer.array(), 0, TILE_COLUMNS * 2);
+        mIoBuffer.clear();
+        mIoBuffer.asShortBuffer().get(data);
+    }
+
+    public interface Listener {
+        /**
+         * 有瓦片从磁盘加载完成，在IO线程回调
+         */
+        void onTileLoaded();
+    }
+}
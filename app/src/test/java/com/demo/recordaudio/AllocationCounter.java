@@ -0,0 +1,24 @@
+package com.demo.recordaudio;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * @author : Zach
+ * @desc : 统计当前线程分配的字节数，依赖HotSpot的ThreadMXBean
+ * @date : 2026/10/18 10:40
+ */
+public final class AllocationCounter {
+
+    private static final com.sun.management.ThreadMXBean THREAD_BEAN =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private AllocationCounter() {
+    }
+
+    /**
+     * 当前线程累计分配的字节数
+     */
+    public static long allocatedBytes() {
+        return THREAD_BEAN.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
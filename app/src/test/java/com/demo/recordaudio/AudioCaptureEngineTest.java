@@ -0,0 +1,53 @@
+package com.demo.recordaudio;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class AudioCaptureEngineTest {
+
+    @Test
+    public void sineSource_reportsRmsAndPeak() throws InterruptedException {
+        SyntheticAudioSource source = new SyntheticAudioSource(48000, 1, 1000, 0.5, 48000);
+        LevelQueue queue = new LevelQueue(256);
+        AudioCaptureEngine engine = new AudioCaptureEngine(source, queue);
+        engine.start();
+        waitUntilStopped(engine);
+
+        final float[] rmsSum = {0};
+        final float[] maxPeak = {0};
+        final long[] lastTime = {-1};
+        int count = queue.drain((rms, peak, timeNanos) -> {
+            rmsSum[0] += rms;
+            maxPeak[0] = Math.max(maxPeak[0], peak);
+            assertTrue(timeNanos > lastTime[0]);
+            lastTime[0] = timeNanos;
+        });
+        // 1秒数据，每块10ms
+        assertEquals(100, count);
+        assertEquals(0.5 / Math.sqrt(2), rmsSum[0] / count, 0.001);
+        assertEquals(0.5, maxPeak[0], 0.001);
+        assertEquals(990000000L, lastTime[0]);
+        assertEquals(1000000000L, engine.getPositionNanos());
+    }
+
+    @Test
+    public void release_releasesSource() throws InterruptedException {
+        SyntheticAudioSource source = new SyntheticAudioSource(8000, 2, 440, 0.1, -1);
+        AudioCaptureEngine engine = new AudioCaptureEngine(source, new LevelQueue(16));
+        engine.start();
+        Thread.sleep(20);
+        engine.release();
+        assertTrue(source.isReleased());
+        assertEquals(1, source.getStartCount());
+    }
+
+    private static void waitUntilStopped(AudioCaptureEngine engine) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (engine.isRunning() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        engine.stop();
+    }
+}
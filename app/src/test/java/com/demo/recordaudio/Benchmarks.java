@@ -0,0 +1,22 @@
+package com.demo.recordaudio;
+
+import org.junit.Assume;
+
+/**
+ * @author : Zach
+ * @desc : JVM单元测试里的吞吐量基准默认跳过，只有./gradlew test -Pbenchmark时才跑并打印结果，
+ * 不拖慢平时的测试，也不把计时结果混进测试输出
+ * @date : 2026/10/19 19:30
+ */
+public final class Benchmarks {
+
+    private Benchmarks() {
+    }
+
+    /**
+     * 没有打开基准时跳过当前测试
+     */
+    public static void assumeEnabled() {
+        Assume.assumeTrue("benchmark disabled, run with -Pbenchmark", Boolean.getBoolean("benchmark"));
+    }
+}
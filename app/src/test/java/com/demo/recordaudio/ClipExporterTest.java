@@ -0,0 +1,134 @@
+package com.demo.recordaudio;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ClipExporterTest {
+
+    private static final int SAMPLE_RATE = 8000;
+
+    private File mSource;
+    private File mTarget;
+
+    @Before
+    public void setUp() throws IOException {
+        mSource = File.createTempFile("source", ".wav");
+        mTarget = File.createTempFile("clip", ".wav");
+        mTarget.delete();
+    }
+
+    @After
+    public void tearDown() {
+        mSource.delete();
+        mTarget.delete();
+    }
+
+    @Test
+    public void export_copiesSelectedFramesWithFades() throws IOException {
+        // 2声道，10秒，每帧的值是帧序号
+        int frames = SAMPLE_RATE * 10;
+        WavFixtures.writeRamp(mSource, SAMPLE_RATE, frames, 2);
+        final long[] progress = {0, 0};
+        long size = new ClipExporter(10).export(mSource, mTarget, 2000, 5000, (done, total) -> {
+            assertTrue(done >= progress[0]);
+            progress[0] = done;
+            progress[1] = total;
+        });
+
+        int expectedFrames = 3 * SAMPLE_RATE;
+        assertEquals(expectedFrames * 4L, size);
+        assertEquals(size, progress[0]);
+        assertEquals(size, progress[1]);
+        try (RandomAccessFile raf = new RandomAccessFile(mTarget, "r"); FileChannel channel = raf.getChannel()) {
+            WavHeader header = WavHeader.read(channel);
+            assertEquals(SAMPLE_RATE, header.sampleRate);
+            assertEquals(2, header.channelCount);
+            assertEquals(expectedFrames, header.getFrameCount());
+            ByteBuffer data = ByteBuffer.allocate((int) header.dataSize).order(ByteOrder.LITTLE_ENDIAN);
+            channel.read(data, header.dataOffset);
+            int fadeFrames = SAMPLE_RATE / 100;
+            // 切点处从0开始淡入，淡出到0
+            assertEquals(0, data.getShort(0));
+            assertEquals(0, data.getShort((expectedFrames - 1) * 4));
+            // 中间部分和源文件逐帧一致，第一帧是第2秒
+            for (int i = fadeFrames; i < expectedFrames - fadeFrames; i++) {
+                assertEquals((short) (2 * SAMPLE_RATE + i), data.getShort(i * 4));
+                assertEquals((short) -(2 * SAMPLE_RATE + i), data.getShort(i * 4 + 2));
+            }
+            // 淡入过程中不超过原始值
+            for (int i = 1; i < fadeFrames; i++) {
+                assertTrue(Math.abs(data.getShort(i * 4)) <= (short) (2 * SAMPLE_RATE + i));
+            }
+        }
+    }
+
+    @Test
+    public void export_clampsRangeToSource() throws IOException {
+        WavFixtures.writeRamp(mSource, SAMPLE_RATE, SAMPLE_RATE, 1);
+        long size = new ClipExporter(0).export(mSource, mTarget, -100, 60000, null);
+        assertEquals(SAMPLE_RATE * 2L, size);
+        assertEquals(WavFileWriter.HEADER_SIZE + size, mTarget.length());
+    }
+
+    @Test
+    public void cancel_deletesPartialOutput() throws IOException {
+        WavFixtures.writeRamp(mSource, SAMPLE_RATE, SAMPLE_RATE * 2000, 1);
+        final CancelSignal signal = new CancelSignal();
+        try {
+            new ClipExporter().export(mSource, mTarget, 0, Long.MAX_VALUE, (done, total) -> signal.cancel(), signal);
+            fail("export should be cancelled");
+        } catch (InterruptedIOException expected) {
+            assertFalse(mTarget.exists());
+            assertFalse(new File(mTarget.getPath() + ".tmp").exists());
+        }
+    }
+
+    @Test
+    public void cancelledBeforeStart_writesNothing() throws IOException {
+        WavFixtures.writeRamp(mSource, SAMPLE_RATE, SAMPLE_RATE, 1);
+        // 导出还在队列里时界面就关闭了，开始后不能把取消清掉
+        CancelSignal signal = new CancelSignal();
+        signal.cancel();
+        try {
+            new ClipExporter().export(mSource, mTarget, 0, Long.MAX_VALUE, null, signal);
+            fail("export should be cancelled");
+        } catch (InterruptedIOException expected) {
+            assertFalse(mTarget.exists());
+            assertFalse(new File(mTarget.getPath() + ".tmp").exists());
+        }
+    }
+
+    /**
+     * 300MB的源文件导出时堆内存分配和文件大小无关
+     */
+    @Test
+    public void largeSource_usesConstantMemory() throws IOException {
+        long dataSize = 300L * 1024 * 1024;
+        try (RandomAccessFile raf = new RandomAccessFile(mSource, "rw"); FileChannel channel = raf.getChannel()) {
+            ByteBuffer header = ByteBuffer.allocate(WavFileWriter.HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            WavFileWriter.writeHeader(header, 48000, 2, dataSize);
+            channel.write(header, 0);
+            raf.setLength(WavFileWriter.HEADER_SIZE + dataSize);
+        }
+        long before = AllocationCounter.allocatedBytes();
+        long size = new ClipExporter().export(mSource, mTarget, 0, Long.MAX_VALUE, null);
+        long allocated = AllocationCounter.allocatedBytes() - before;
+        assertEquals(dataSize, size);
+        assertEquals(WavFileWriter.HEADER_SIZE + dataSize, mTarget.length());
+        assertTrue("allocated " + allocated + " bytes", allocated < 1024 * 1024);
+    }
+}
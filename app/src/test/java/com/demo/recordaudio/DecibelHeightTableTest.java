@@ -0,0 +1,48 @@
+package com.demo.recordaudio;
+
+import com.demo.audiocore.PcmKernels;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class DecibelHeightTableTest {
+
+    @Test
+    public void heightOf_matchesRippleAlgorithm() {
+        DecibelHeightTable table = new DecibelHeightTable();
+        assertTrue(table.update(390));
+        for (double decibel = -30; decibel <= 160; decibel += 0.1) {
+            short quantized = DecibelHeightTable.quantize(decibel);
+            float clamped = (float) Math.max(DecibelHeightTable.MIN_DB,
+                    Math.min(DecibelHeightTable.MAX_DB, DecibelHeightTable.dequantize(quantized)));
+            assertEquals((int) PcmKernels.rippleHeight(clamped, 390), table.heightOf(quantized));
+        }
+        assertEquals(1, table.heightOf(DecibelHeightTable.quantize(0)));
+        assertEquals(390, table.heightOf(DecibelHeightTable.quantize(200)));
+    }
+
+    @Test
+    public void quantize_roundsToTenthOfDecibel() {
+        assertEquals(456, DecibelHeightTable.quantize(45.57));
+        assertEquals(45.6, DecibelHeightTable.dequantize(456), 1e-9);
+        assertEquals(DecibelHeightTable.MIN_DB * DecibelHeightTable.STEPS_PER_DB, DecibelHeightTable.quantize(-1000));
+        assertEquals(DecibelHeightTable.MAX_DB * DecibelHeightTable.STEPS_PER_DB, DecibelHeightTable.quantize(1000));
+    }
+
+    @Test
+    public void update_rebuildsOnlyWhenMaxHeightChanges() {
+        DecibelHeightTable table = new DecibelHeightTable();
+        assertTrue(table.update(200));
+        assertFalse(table.update(200));
+        int before = table.heightOf(DecibelHeightTable.quantize(100));
+        assertEquals(200, before);
+        assertTrue(table.update(100));
+        assertEquals(100, table.heightOf(DecibelHeightTable.quantize(100)));
+        // 视图还没布局时高度可能是负的
+        assertTrue(table.update(-5));
+        assertEquals(1, table.heightOf(DecibelHeightTable.quantize(100)));
+    }
+}
@@ -0,0 +1,95 @@
+package com.demo.recordaudio;
+
+import org.junit.Test;
+
+import java.io.StringWriter;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void buckets_areContiguous() {
+        long expected = 0;
+        for (int i = 0; i < 900; i++) {
+            assertEquals(expected, LatencyHistogram.lowestValueAt(i));
+            assertEquals(i, LatencyHistogram.indexOf(LatencyHistogram.lowestValueAt(i)));
+            assertEquals(i, LatencyHistogram.indexOf(LatencyHistogram.highestValueAt(i) - 1));
+            expected = LatencyHistogram.highestValueAt(i);
+        }
+        LatencyHistogram.indexOf(Long.MAX_VALUE);
+    }
+
+    @Test
+    public void percentiles_withinRelativeError() {
+        LatencyHistogram histogram = new LatencyHistogram("test");
+        for (long v = 1; v <= 10000; v++) {
+            histogram.record(v * 1000);
+        }
+        assertEquals(10000, histogram.getCount());
+        assertEquals(10000000, histogram.getMax());
+        assertEquals(5000500, histogram.getMean(), 1);
+        assertNear(5000000, histogram.getValueAtPercentile(50));
+        assertNear(9900000, histogram.getValueAtPercentile(99));
+        assertEquals(10000000, histogram.getValueAtPercentile(100));
+    }
+
+    @Test
+    public void reset_clearsAll() {
+        LatencyHistogram histogram = new LatencyHistogram("test");
+        histogram.record(123);
+        histogram.record(-5);
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMax());
+        assertEquals(0, histogram.getValueAtPercentile(99));
+    }
+
+    @Test
+    public void record_doesNotAllocate() {
+        LatencyHistogram histogram = new LatencyHistogram("test");
+        Random random = new Random(1);
+        long[] values = new long[100000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = (long) (random.nextDouble() * 50000000);
+        }
+        //预热，让JIT编译完
+        for (long value : values) {
+            histogram.record(value);
+        }
+        long before = AllocationCounter.allocatedBytes();
+        for (long value : values) {
+            histogram.record(value);
+        }
+        long allocated = AllocationCounter.allocatedBytes() - before;
+        assertTrue("allocated " + allocated + " bytes", allocated < 1024);
+    }
+
+    @Test
+    public void metrics_countDroppedFramesAndDump() throws Exception {
+        HistogramRecordMetrics metrics = new HistogramRecordMetrics();
+        long interval = 16666666;
+        metrics.onFrameDrawn(2000000, interval);
+        metrics.onFrameDrawn(20000000, interval);
+        metrics.onFrameDrawn(40000000, interval);
+        metrics.onTick(-3000000);
+        metrics.onWaveBufferSize(600);
+        assertEquals(3, metrics.getDroppedFrames());
+        assertEquals(3, metrics.getFrameTime().getCount());
+        assertEquals(3000000, metrics.getTickJitter().getMax());
+
+        StringWriter writer = new StringWriter();
+        metrics.dump(writer);
+        String dump = writer.toString();
+        assertTrue(dump, dump.startsWith("dropped_frames 3\n"));
+        assertTrue(dump, dump.contains("frame_draw count=3"));
+        assertTrue(dump, dump.contains("wave_buffer_size count=1"));
+    }
+
+    private static void assertNear(long expected, long actual) {
+        assertTrue("expected ~" + expected + " but was " + actual,
+                Math.abs(actual - expected) <= expected / 16);
+    }
+}
@@ -0,0 +1,156 @@
+package com.demo.recordaudio;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LevelMeterTest {
+
+    private static final int SAMPLE_RATE = 48000;
+    /**
+     * 20ms一块
+     */
+    private static final int BLOCK_FRAMES = 960;
+
+    private final LevelMeter.Snapshot mSnapshot = new LevelMeter.Snapshot();
+
+    @Test
+    public void sine_peakAndRmsMatchAmplitude() {
+        LevelMeter meter = new LevelMeter(SAMPLE_RATE, 1);
+        feedSine(meter, 1, 997, 0.5, 0, 50);
+        meter.read(mSnapshot);
+        assertEquals(-6.02, mSnapshot.peakDb, 0.05);
+        assertEquals(-6.02, mSnapshot.truePeakDb, 0.1);
+        assertEquals(-9.03, mSnapshot.rmsDb, 0.05);
+        assertEquals(-9.03, mSnapshot.levelDb, 0.05);
+    }
+
+    @Test
+    public void stereo_averagesChannelPower() {
+        LevelMeter meter = new LevelMeter(SAMPLE_RATE, 2);
+        ByteBuffer block = ByteBuffer.allocate(BLOCK_FRAMES * 4).order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < BLOCK_FRAMES; i++) {
+            short left = (short) Math.round(16384 * Math.sin(2 * Math.PI * 1000 * i / SAMPLE_RATE));
+            block.putShort(i * 4, left);
+            block.putShort(i * 4 + 2, (short) 0);
+        }
+        meter.process(block, block.capacity());
+        meter.read(mSnapshot);
+        // 一个声道-9.03dB，另一个静音，平均功率再低3dB
+        assertEquals(-12.04, mSnapshot.rmsDb, 0.05);
+        assertEquals(-6.02, mSnapshot.peakDb, 0.05);
+    }
+
+    @Test
+    public void truePeak_findsInterSamplePeak() {
+        LevelMeter meter = new LevelMeter(SAMPLE_RATE, 1);
+        // fs/4、相位45度的正弦，采样点都落在0.707处，真实峰值在两个采样之间
+        feedSine(meter, 1, SAMPLE_RATE / 4.0, 0.99, Math.PI / 4, 20);
+        meter.read(mSnapshot);
+        assertEquals(-3.1, mSnapshot.peakDb, 0.1);
+        assertTrue("true peak " + mSnapshot.truePeakDb, mSnapshot.truePeakDb > -0.6);
+    }
+
+    @Test
+    public void noise_rmsMatchesUniformDistribution() {
+        LevelMeter meter = new LevelMeter(SAMPLE_RATE, 1);
+        Random random = new Random(7);
+        ByteBuffer block = ByteBuffer.allocate(BLOCK_FRAMES * 2).order(ByteOrder.LITTLE_ENDIAN);
+        for (int n = 0; n < 10; n++) {
+            for (int i = 0; i < BLOCK_FRAMES; i++) {
+                block.putShort(i * 2, (short) Math.round((random.nextDouble() * 2 - 1) * 16384));
+            }
+            meter.process(block, block.capacity());
+        }
+        meter.read(mSnapshot);
+        // 幅度0.5的均匀分布，RMS = 0.5 / sqrt(3)
+        assertEquals(20 * Math.log10(0.5 / Math.sqrt(3)), mSnapshot.rmsDb, 0.3);
+    }
+
+    @Test
+    public void aWeighting_matchesStandardResponse() {
+        LevelMeter meter = new LevelMeter(SAMPLE_RATE, 1);
+        assertEquals(0, gainDb(meter.magnitudeAt(1000)), 0.01);
+        assertEquals(-19.1, gainDb(meter.magnitudeAt(100)), 0.3);
+        assertEquals(-2.5, gainDb(meter.magnitudeAt(10000)), 0.7);
+
+        meter.setAWeighting(true);
+        feedSine(meter, 1, 100, 0.5, 0, 50);
+        meter.read(mSnapshot);
+        assertEquals(-9.03 - 19.1, mSnapshot.rmsDb, 0.4);
+        // 峰值不计权
+        assertEquals(-6.02, mSnapshot.peakDb, 0.05);
+    }
+
+    @Test
+    public void hold_keepsPeakThenDecays() {
+        LevelMeter meter = new LevelMeter(SAMPLE_RATE, 1);
+        feedSine(meter, 1, 1000, 1, 0, 5);
+        feedSine(meter, 1, 1000, 0.01, 0, 50);
+        meter.read(mSnapshot);
+        // 1秒后仍然保持
+        assertEquals(0, mSnapshot.holdDb, 0.1);
+        // 电平按20dB/s回落
+        assertEquals(-23, mSnapshot.levelDb, 0.1);
+        feedSine(meter, 1, 1000, 0.01, 0, 50);
+        meter.read(mSnapshot);
+        // 又过了1秒，保持时间1.5秒后按20dB/s回落
+        assertEquals(-10, mSnapshot.holdDb, 0.5);
+        // 不低于当前的RMS
+        assertEquals(-43, mSnapshot.levelDb, 0.1);
+
+        meter.reset();
+        meter.read(mSnapshot);
+        assertEquals(LevelMeter.FLOOR_DB, mSnapshot.holdDb, 0);
+        assertEquals(LevelMeter.FLOOR_DB, mSnapshot.levelDb, 0);
+    }
+
+    @Test
+    public void process_doesNotAllocate() {
+        LevelMeter meter = new LevelMeter(SAMPLE_RATE, 2);
+        meter.setAWeighting(true);
+        ByteBuffer block = ByteBuffer.allocateDirect(BLOCK_FRAMES * 4).order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < 2000; i++) {
+            meter.process(block, block.capacity());
+            meter.read(mSnapshot);
+        }
+        long before = AllocationCounter.allocatedBytes();
+        for (int i = 0; i < 2000; i++) {
+            meter.process(block, block.capacity());
+            meter.read(mSnapshot);
+        }
+        long allocated = AllocationCounter.allocatedBytes() - before;
+        assertTrue("allocated " + allocated + " bytes", allocated < 1024);
+    }
+
+    /**
+     * 按块输入正弦波
+     *
+     * @param amplitude 0~1
+     * @param blocks    块数，20ms一块
+     */
+    private static void feedSine(LevelMeter meter, int channels, double frequency, double amplitude,
+                                 double phase, int blocks) {
+        ByteBuffer block = ByteBuffer.allocate(BLOCK_FRAMES * 2 * channels).order(ByteOrder.LITTLE_ENDIAN);
+        long frame = 0;
+        for (int n = 0; n < blocks; n++) {
+            for (int i = 0; i < BLOCK_FRAMES; i++, frame++) {
+                double value = amplitude * Math.sin(2 * Math.PI * frequency * frame / SAMPLE_RATE + phase);
+                short sample = (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, Math.round(value * 32768)));
+                for (int c = 0; c < channels; c++) {
+                    block.putShort((i * channels + c) * 2, sample);
+                }
+            }
+            meter.process(block, block.capacity());
+        }
+    }
+
+    private static double gainDb(double magnitude) {
+        return 20 * Math.log10(magnitude);
+    }
+}
@@ -0,0 +1,63 @@
+package com.demo.recordaudio;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class LevelQueueTest {
+
+    @Test
+    public void capacity_roundsUpToPowerOfTwo() {
+        assertEquals(8, new LevelQueue(5).capacity());
+        assertEquals(8, new LevelQueue(8).capacity());
+    }
+
+    @Test
+    public void offer_dropsWhenFull() {
+        LevelQueue queue = new LevelQueue(2);
+        assertTrue(queue.offer(0.1f, 0.2f, 1));
+        assertTrue(queue.offer(0.3f, 0.4f, 2));
+        assertFalse(queue.offer(0.5f, 0.6f, 3));
+        assertEquals(1, queue.getDroppedCount());
+
+        final long[] times = new long[2];
+        final int[] index = {0};
+        int count = queue.drain((rms, peak, timeNanos) -> times[index[0]++] = timeNanos);
+        assertEquals(2, count);
+        assertEquals(1, times[0]);
+        assertEquals(2, times[1]);
+        assertEquals(0, queue.size());
+    }
+
+    @Test
+    public void producerAndConsumerThreads_keepOrder() throws InterruptedException {
+        final LevelQueue queue = new LevelQueue(64);
+        final int total = 200000;
+        Thread producer = new Thread(() -> {
+            for (int i = 0; i < total; i++) {
+                while (!queue.offer(i, i, i)) {
+                    Thread.yield();
+                }
+            }
+        });
+        producer.start();
+        final long[] expected = {0};
+        final boolean[] ordered = {true};
+        LevelQueue.Consumer consumer = (rms, peak, timeNanos) -> {
+            if (timeNanos != expected[0] || rms != (float) timeNanos) {
+                ordered[0] = false;
+            }
+            expected[0]++;
+        };
+        while (expected[0] < total) {
+            if (queue.drain(consumer) == 0) {
+                Thread.yield();
+            }
+        }
+        producer.join();
+        assertTrue(ordered[0]);
+        assertEquals(total, expected[0]);
+    }
+}
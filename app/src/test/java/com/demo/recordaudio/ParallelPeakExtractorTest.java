@@ -0,0 +1,111 @@
+package com.demo.recordaudio;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class ParallelPeakExtractorTest {
+
+    private static final int SAMPLE_RATE = 48000;
+
+    private File mFile;
+
+    @Before
+    public void setUp() throws IOException {
+        mFile = File.createTempFile("extract", ".wav");
+    }
+
+    @After
+    public void tearDown() {
+        mFile.delete();
+    }
+
+    @Test
+    public void extract_matchesSequentialLoader() throws IOException {
+        // 最后一个bin不满，叶子任务的边界也不和文件末尾对齐
+        WavFixtures.writeRandom(mFile, SAMPLE_RATE, PeakLoader.SAMPLES_PER_BIN * 1000 + 33, 2);
+        PeakPyramid expected;
+        try (WavDecoder decoder = new WavDecoder(mFile)) {
+            expected = new PeakLoader().load(decoder, null);
+        }
+        for (int parallelism : new int[]{1, 3}) {
+            ParallelPeakExtractor extractor = new ParallelPeakExtractor(parallelism, PeakLoader.SAMPLES_PER_BIN, 37);
+            try {
+                PeakPyramid actual = extractor.extract(mFile);
+                assertEquals(expected.getBinCount(), actual.getBinCount());
+                assertEquals(expected.getLevelCount(), actual.getLevelCount());
+                for (int level = 0; level < expected.getLevelCount(); level++) {
+                    for (long i = 0; i < expected.getBinCount() >> level; i++) {
+                        assertEquals(expected.getMin(level, i), actual.getMin(level, i));
+                        assertEquals(expected.getMax(level, i), actual.getMax(level, i));
+                    }
+                }
+            } finally {
+                extractor.shutdown();
+            }
+        }
+    }
+
+    @Test
+    public void extract_cancelledBeforeStartThrows() throws IOException {
+        WavFixtures.writeRandom(mFile, SAMPLE_RATE, PeakLoader.SAMPLES_PER_BIN * 100, 1);
+        // 任务还在队列里时界面就关闭了，开始后不能把取消清掉
+        CancelSignal signal = new CancelSignal();
+        signal.cancel();
+        ParallelPeakExtractor extractor = new ParallelPeakExtractor(2, PeakLoader.SAMPLES_PER_BIN, 10);
+        try {
+            extractor.extract(mFile, signal);
+            fail("expected cancellation");
+        } catch (InterruptedIOException expected) {
+        } finally {
+            extractor.shutdown();
+        }
+    }
+
+    /**
+     * 1/2/4/8个线程处理同一个合成的PCM文件，默认64MB，只在./gradlew test -Pbenchmark时跑，
+     * 加上-PpeakBenchmarkMb=1024跑1GB
+     */
+    @Test
+    public void benchmark_workerScaling() throws IOException {
+        Benchmarks.assumeEnabled();
+        long megabytes = Long.parseLong(System.getProperty("peak.benchmark.mb", "64"));
+        File file = File.createTempFile("extract_benchmark", ".wav");
+        try {
+            WavFixtures.writeSynthetic(file, SAMPLE_RATE, megabytes * 1024 * 1024);
+            long bins = -1;
+            for (int workers : new int[]{1, 2, 4, 8}) {
+                ParallelPeakExtractor extractor = new ParallelPeakExtractor(workers);
+                try {
+                    //第一次让文件进页缓存、让JIT编译，取后两次里最快的
+                    long best = Long.MAX_VALUE;
+                    for (int round = 0; round < 3; round++) {
+                        long start = System.nanoTime();
+                        PeakPyramid peaks = extractor.extract(file);
+                        long elapsed = System.nanoTime() - start;
+                        if (round > 0) {
+                            best = Math.min(best, elapsed);
+                        }
+                        if (bins >= 0) {
+                            assertEquals(bins, peaks.getBinCount());
+                        }
+                        bins = peaks.getBinCount();
+                    }
+                    System.out.printf("ParallelPeakExtractor %dMB, %d workers: %.0f MB/s%n",
+                            megabytes, workers, megabytes * 1e9 / best);
+                } finally {
+                    extractor.shutdown();
+                }
+            }
+        } finally {
+            file.delete();
+        }
+    }
+}
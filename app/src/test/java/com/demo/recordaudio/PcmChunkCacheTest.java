@@ -0,0 +1,264 @@
+package com.demo.recordaudio;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class PcmChunkCacheTest {
+
+    @Test
+    public void put_evictsLeastRecentlyUsedWithinBudget() {
+        // 每块100个采样200字节，预算放得下3块
+        PcmChunkCache cache = new PcmChunkCache(600);
+        cache.put("a", 0, chunk(0), 0, 100);
+        cache.put("a", 100, chunk(1), 0, 100);
+        cache.put("b", 0, chunk(2), 0, 100);
+        short[] out = new short[100];
+        // 访问a:0后它变成最近使用，再放一块时淘汰a:100
+        assertEquals(100, cache.read("a", 0, out, 0, 100));
+        cache.put("b", 100, chunk(3), 0, 100);
+
+        assertEquals(3, cache.getChunkCount());
+        assertEquals(600, cache.getSizeBytes());
+        assertEquals(1, cache.getEvictionCount());
+        assertEquals(-1, cache.read("a", 100, out, 0, 100));
+        assertEquals(100, cache.read("b", 100, out, 0, 100));
+        assertArrayEquals(chunk(3), out);
+        assertEquals(100, cache.read("a", 0, out, 0, 100));
+        assertArrayEquals(chunk(0), out);
+        assertEquals(3, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+
+        cache.invalidate("a");
+        assertEquals(2, cache.getChunkCount());
+        assertEquals(400, cache.getSizeBytes());
+    }
+
+    @Test
+    public void put_largerThanBudgetIsSkipped() {
+        PcmChunkCache cache = new PcmChunkCache(100);
+        cache.put("a", 0, chunk(0), 0, 100);
+        assertEquals(0, cache.getChunkCount());
+        assertEquals(0, cache.getSizeBytes());
+    }
+
+    @Test
+    public void concurrentReadAndPut_staysWithinBudget() throws InterruptedException {
+        final PcmChunkCache cache = new PcmChunkCache(200 * 20);
+        final AtomicInteger corrupted = new AtomicInteger();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            final int seed = t;
+            Thread thread = new Thread(() -> {
+                short[] out = new short[100];
+                for (int i = 0; i < 5000; i++) {
+                    int index = (i * 7 + seed) % 50;
+                    if (cache.read("f", index, out, 0, 100) == 100) {
+                        // 读到的数据必须完整属于同一块，不能读到被复用了一半的buffer
+                        for (short value : out) {
+                            if (value != out[0]) {
+                                corrupted.incrementAndGet();
+                                break;
+                            }
+                        }
+                        if (out[0] != index) {
+                            corrupted.incrementAndGet();
+                        }
+                    } else {
+                        cache.put("f", index, constant(index), 0, 100);
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(0, corrupted.get());
+        assertTrue(cache.getSizeBytes() <= cache.getBudgetBytes());
+        assertEquals(20, cache.getChunkCount());
+        assertTrue(cache.getEvictionCount() > 0);
+        assertEquals(20000, cache.getHitCount() + cache.getMissCount());
+    }
+
+    @Test
+    public void cachingDecoder_secondSessionReadsFromCache() throws IOException {
+        PcmChunkCache cache = new PcmChunkCache(PcmChunkCache.DEFAULT_BUDGET_BYTES);
+        int frames = CachingDecoder.CHUNK_FRAMES * 3 + 100;
+        CountingDecoder first = new CountingDecoder(frames);
+        short[] decoded = readAll(new CachingDecoder(first, cache, "rec"), frames * 2);
+        assertTrue(first.reads > 0);
+        for (int i = 0; i < frames; i++) {
+            assertEquals((short) i, decoded[i * 2]);
+        }
+
+        // 重新打开同一个文件，里面的解码器只解码第一块来确定实际格式，后面都命中缓存
+        CountingDecoder second = new CountingDecoder(frames);
+        CachingDecoder decoder = new CachingDecoder(second, cache, "rec");
+        assertArrayEquals(decoded, readAll(decoder, frames * 2));
+        int reads = second.reads;
+        assertEquals(CachingDecoder.CHUNK_FRAMES, second.mPosition);
+
+        // 往回seek到块中间，也从缓存读
+        decoder.seekTo(CachingDecoder.CHUNK_FRAMES + 5);
+        short[] buffer = new short[8];
+        assertEquals(8, decoder.read(buffer, 0, 8));
+        assertEquals((short) (CachingDecoder.CHUNK_FRAMES + 5), buffer[0]);
+        assertEquals(reads, second.reads);
+        assertEquals(0, second.seeks);
+    }
+
+    @Test
+    public void cachingDecoder_laysOutChunksByDecodedFormat() throws IOException {
+        // HE-AAC/PS：文件里写的是单声道，解码出来是立体声
+        PcmChunkCache cache = new PcmChunkCache(PcmChunkCache.DEFAULT_BUDGET_BYTES);
+        int frames = CachingDecoder.CHUNK_FRAMES * 2 + 10;
+        CountingDecoder inner = new CountingDecoder(frames);
+        inner.channelsBeforeRead = 1;
+        CachingDecoder decoder = new CachingDecoder(inner, cache, "rec");
+        short[] decoded = readAll(decoder, frames * 2);
+        assertEquals(2, decoder.getChannelCount());
+        for (int i = 0; i < frames; i++) {
+            assertEquals((short) i, decoded[i * 2]);
+            assertEquals((short) -i, decoded[i * 2 + 1]);
+        }
+        // 缓存里的第一块按立体声存满一块
+        short[] chunk = new short[CachingDecoder.CHUNK_FRAMES * 2];
+        assertEquals(chunk.length, cache.read("rec", 0, chunk, 0, chunk.length));
+        assertEquals((short) -(CachingDecoder.CHUNK_FRAMES - 1), chunk[chunk.length - 1]);
+    }
+
+    @Test
+    public void cachingDecoder_retriesChunkAfterDecodeError() throws IOException {
+        PcmChunkCache cache = new PcmChunkCache(PcmChunkCache.DEFAULT_BUDGET_BYTES);
+        CountingDecoder inner = new CountingDecoder(CachingDecoder.CHUNK_FRAMES * 2);
+        CachingDecoder decoder = new CachingDecoder(inner, cache, "rec");
+        short[] buffer = new short[8];
+        // 块解码到一半出错，不能把没填完的块当成已加载
+        inner.failAfter = 1;
+        try {
+            decoder.read(buffer, 0, 8);
+            fail("expected decode error");
+        } catch (IOException expected) {
+        }
+        assertEquals(0, cache.getChunkCount());
+
+        assertEquals(8, decoder.read(buffer, 0, 8));
+        for (int i = 0; i < 4; i++) {
+            assertEquals((short) i, buffer[i * 2]);
+        }
+        decoder.seekTo(CachingDecoder.CHUNK_FRAMES - 1);
+        assertEquals(2, decoder.read(buffer, 0, 8));
+        assertEquals((short) (CachingDecoder.CHUNK_FRAMES - 1), buffer[0]);
+    }
+
+    private static short[] readAll(AudioDecoder decoder, int samples) throws IOException {
+        short[] all = new short[samples];
+        short[] buffer = new short[1000];
+        int total = 0;
+        int read;
+        while ((read = decoder.read(buffer, 0, buffer.length)) >= 0) {
+            System.arraycopy(buffer, 0, all, total, read);
+            total += read;
+        }
+        assertEquals(samples, total);
+        return all;
+    }
+
+    private static short[] chunk(int seed) {
+        short[] pcm = new short[100];
+        for (int i = 0; i < pcm.length; i++) {
+            pcm[i] = (short) (seed * 1000 + i);
+        }
+        return pcm;
+    }
+
+    private static short[] constant(int value) {
+        short[] pcm = new short[100];
+        for (int i = 0; i < pcm.length; i++) {
+            pcm[i] = (short) value;
+        }
+        return pcm;
+    }
+
+    /**
+     * 双声道，左声道是帧序号，统计解码和seek的次数
+     */
+    private static class CountingDecoder implements AudioDecoder {
+
+        private final int mFrames;
+        private long mPosition;
+        int reads;
+        int seeks;
+        /**
+         * 大于等于0时，再成功读这么多次后抛出一次IOException
+         */
+        int failAfter = -1;
+        /**
+         * 第一次解码前报告的声道数，模拟压缩格式解码后才知道实际格式
+         */
+        int channelsBeforeRead = 2;
+        private boolean mDecoded;
+
+        CountingDecoder(int frames) {
+            mFrames = frames;
+        }
+
+        @Override
+        public int getSampleRate() {
+            return 44100;
+        }
+
+        @Override
+        public int getChannelCount() {
+            return mDecoded ? 2 : channelsBeforeRead;
+        }
+
+        @Override
+        public long getDurationUs() {
+            return mFrames * 1000000L / 44100;
+        }
+
+        @Override
+        public int read(short[] buffer, int offset, int length) throws IOException {
+            if (mPosition >= mFrames) {
+                return -1;
+            }
+            if (failAfter == 0) {
+                failAfter = -1;
+                throw new IOException("decode failed");
+            }
+            if (failAfter > 0) {
+                failAfter--;
+            }
+            mDecoded = true;
+            reads++;
+            int frames = (int) Math.min(Math.min(length / 2, 1500), mFrames - mPosition);
+            for (int i = 0; i < frames; i++) {
+                buffer[offset + i * 2] = (short) (mPosition + i);
+                buffer[offset + i * 2 + 1] = (short) -(mPosition + i);
+            }
+            mPosition += frames;
+            return frames * 2;
+        }
+
+        @Override
+        public void seekTo(long frame) {
+            seeks++;
+            mPosition = frame;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
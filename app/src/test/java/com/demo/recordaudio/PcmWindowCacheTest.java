@@ -0,0 +1,60 @@
+package com.demo.recordaudio;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PcmWindowCacheTest {
+
+    @Test
+    public void append_dropsOldestFramesWhenFull() {
+        PcmWindowCache cache = new PcmWindowCache(100, 2);
+        cache.reset(1000);
+        for (int i = 0; i < 7; i++) {
+            cache.append(frames(1000 + i * 30, 30), 0, 30);
+        }
+        // 追加了210帧，只留最后100帧
+        assertEquals(1110, cache.getStartFrame());
+        assertEquals(1210, cache.getEndFrame());
+        assertFalse(cache.contains(1109));
+        assertTrue(cache.contains(1110));
+        assertTrue(cache.contains(1209));
+        assertFalse(cache.contains(1210));
+
+        // 跨过环形数组结尾读取
+        short[] out = new short[80 * 2];
+        assertEquals(80, cache.read(1120, out, 0, 80));
+        for (int i = 0; i < 80; i++) {
+            assertEquals((short) (1120 + i), out[i * 2]);
+            assertEquals((short) -(1120 + i), out[i * 2 + 1]);
+        }
+        assertEquals(10, cache.read(1200, out, 0, 80));
+        assertEquals(0, cache.read(1000, out, 0, 80));
+    }
+
+    @Test
+    public void append_longerThanWindowKeepsTail() {
+        PcmWindowCache cache = new PcmWindowCache(10, 2);
+        cache.reset(0);
+        cache.append(frames(0, 25), 0, 25);
+        assertEquals(15, cache.getStartFrame());
+        assertEquals(25, cache.getEndFrame());
+        short[] out = new short[2];
+        assertEquals(1, cache.read(15, out, 0, 1));
+        assertEquals(15, out[0]);
+    }
+
+    /**
+     * 双声道，左声道是帧序号，右声道是相反数
+     */
+    private static short[] frames(int first, int count) {
+        short[] pcm = new short[count * 2];
+        for (int i = 0; i < count; i++) {
+            pcm[i * 2] = (short) (first + i);
+            pcm[i * 2 + 1] = (short) -(first + i);
+        }
+        return pcm;
+    }
+}
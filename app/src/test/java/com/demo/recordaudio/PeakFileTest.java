@@ -0,0 +1,162 @@
+package com.demo.recordaudio;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PeakFileTest {
+
+    private File mFile;
+
+    @Before
+    public void setUp() throws IOException {
+        mFile = File.createTempFile("record", PeakFile.SUFFIX);
+    }
+
+    @After
+    public void tearDown() {
+        mFile.delete();
+    }
+
+    @Test
+    public void forAudio_replacesExtension() {
+        File peak = PeakFile.forAudio(new File("/sdcard/record_1.wav"));
+        assertEquals(new File("/sdcard/record_1.peak"), peak);
+    }
+
+    @Test
+    public void mappedSource_readsWhatWasWritten() throws IOException {
+        PeakPyramid pyramid = randomPyramid(5000);
+        PeakFile.write(mFile, pyramid, 44100, 2);
+
+        try (MappedPeakSource source = new MappedPeakSource(mFile)) {
+            assertEquals(44100, source.getSampleRate());
+            assertEquals(2, source.getChannelCount());
+            assertEquals(256, source.getSamplesPerBin());
+            assertEquals(5000, source.getBinCount());
+            assertEquals(5000L * 256 * 1000 / 44100, source.getDurationMs());
+
+            // 一列一个bin时和内存里的数据完全一致
+            short[] min = new short[100];
+            short[] max = new short[100];
+            short[] expectedMin = new short[100];
+            short[] expectedMax = new short[100];
+            source.query(1234, 1334, 100, min, max);
+            pyramid.query(1234, 1334, 100, expectedMin, expectedMax);
+            for (int i = 0; i < 100; i++) {
+                assertEquals(expectedMin[i], min[i]);
+                assertEquals(expectedMax[i], max[i]);
+            }
+
+            // 缩小到一列时覆盖全部数据
+            source.query(0, 4096, 1, min, max);
+            pyramid.query(0, 4096, 1, expectedMin, expectedMax);
+            assertEquals(expectedMin[0], min[0]);
+            assertEquals(expectedMax[0], max[0]);
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void mappedSource_rejectsOtherFiles() throws IOException {
+        try (FileOutputStream out = new FileOutputStream(mFile)) {
+            out.write(new byte[64]);
+        }
+        new MappedPeakSource(mFile).close();
+    }
+
+    @Test
+    public void write_concurrentWritersDoNotInterleave() throws Exception {
+        // 录音收尾和裁剪界面可能同时写同一个峰值文件，结果必须是其中一份完整的数据
+        final PeakPyramid[] pyramids = {randomPyramid(20000), randomPyramid(30000)};
+        final CountDownLatch ready = new CountDownLatch(pyramids.length);
+        final CountDownLatch go = new CountDownLatch(1);
+        final IOException[] errors = new IOException[pyramids.length];
+        Thread[] threads = new Thread[pyramids.length];
+        for (int i = 0; i < pyramids.length; i++) {
+            final int index = i;
+            threads[i] = new Thread(() -> {
+                ready.countDown();
+                try {
+                    go.await();
+                    for (int round = 0; round < 20; round++) {
+                        PeakFile.write(mFile, pyramids[index], 44100, 1);
+                    }
+                } catch (IOException e) {
+                    errors[index] = e;
+                } catch (InterruptedException ignored) {
+                }
+            });
+            threads[i].start();
+        }
+        ready.await();
+        go.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        for (IOException error : errors) {
+            if (error != null) {
+                throw error;
+            }
+        }
+
+        try (MappedPeakSource source = new MappedPeakSource(mFile)) {
+            PeakPyramid expected = source.getBinCount() == 20000 ? pyramids[0] : pyramids[1];
+            assertEquals(expected.getBinCount(), source.getBinCount());
+            short[] min = new short[500];
+            short[] max = new short[500];
+            short[] expectedMin = new short[500];
+            short[] expectedMax = new short[500];
+            // 一列一个bin，开头、中间、结尾都和其中一份数据完全一致
+            for (long start : new long[]{0, expected.getBinCount() / 2, expected.getBinCount() - min.length}) {
+                source.query(start, start + min.length, min.length, min, max);
+                expected.query(start, start + min.length, min.length, expectedMin, expectedMax);
+                assertArrayEquals(expectedMin, min);
+                assertArrayEquals(expectedMax, max);
+            }
+        }
+        File[] leftovers = mFile.getAbsoluteFile().getParentFile().listFiles((dir, name) ->
+                name.startsWith(mFile.getName()) && name.endsWith(".tmp"));
+        assertEquals(0, leftovers == null ? 0 : leftovers.length);
+    }
+
+    /**
+     * 2小时44.1kHz的录音，打开和查询一屏都应该是毫秒级，只在./gradlew test -Pbenchmark时跑
+     */
+    @Test
+    public void benchmark_twoHourRecordingOpen() throws IOException {
+        Benchmarks.assumeEnabled();
+        int bins = 2 * 60 * 60 * 44100 / 256;
+        PeakFile.write(mFile, randomPyramid(bins), 44100, 1);
+
+        long start = System.nanoTime();
+        try (MappedPeakSource source = new MappedPeakSource(mFile)) {
+            short[] min = new short[1080];
+            short[] max = new short[1080];
+            source.query(0, source.getBinCount(), min.length, min, max);
+            long elapsedMs = (System.nanoTime() - start) / 1000000;
+            System.out.println("MappedPeakSource: open + full query of 2h recording " + elapsedMs + " ms");
+            assertTrue(elapsedMs < 200);
+        }
+    }
+
+    private static PeakPyramid randomPyramid(int bins) {
+        Random random = new Random(bins);
+        PeakPyramid pyramid = new PeakPyramid(256);
+        for (int i = 0; i < bins; i++) {
+            int a = random.nextInt(65536) - 32768;
+            int b = random.nextInt(65536) - 32768;
+            pyramid.append(Math.min(a, b), Math.max(a, b));
+        }
+        return pyramid;
+    }
+}
@@ -0,0 +1,213 @@
+package com.demo.recordaudio;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class PeakLoaderTest {
+
+    private static final int SAMPLE_RATE = 44100;
+
+    private File mFile;
+    private short[] mPcm;
+
+    @Before
+    public void setUp() throws IOException {
+        mFile = File.createTempFile("decode", ".wav");
+    }
+
+    @After
+    public void tearDown() {
+        mFile.delete();
+    }
+
+    @Test
+    public void wavDecoder_returnsWholeFramesInOrder() throws IOException {
+        mPcm = WavFixtures.writeRandom(mFile, SAMPLE_RATE, 1001, 2);
+        try (WavDecoder decoder = new WavDecoder(mFile)) {
+            assertEquals(SAMPLE_RATE, decoder.getSampleRate());
+            assertEquals(2, decoder.getChannelCount());
+            assertEquals(1001 * 1000000L / SAMPLE_RATE, decoder.getDurationUs());
+            short[] buffer = new short[7];
+            int position = 0;
+            int count;
+            while ((count = decoder.read(buffer, 0, buffer.length)) >= 0) {
+                // 7个采样装不下4帧，每次只返回3帧
+                assertEquals(0, count % 2);
+                for (int i = 0; i < count; i++) {
+                    assertEquals(mPcm[position + i], buffer[i]);
+                }
+                position += count;
+            }
+            assertEquals(mPcm.length, position);
+        }
+    }
+
+    @Test
+    public void load_mergesChannelsIntoBins() throws IOException {
+        int frames = PeakLoader.SAMPLES_PER_BIN * 300 + 17;
+        mPcm = WavFixtures.writeRandom(mFile, SAMPLE_RATE, frames, 2);
+        PeakPyramid peaks;
+        try (WavDecoder decoder = new WavDecoder(mFile)) {
+            peaks = new PeakLoader().load(decoder, null);
+        }
+        assertEquals(301, peaks.getBinCount());
+        for (int bin = 0; bin < 301; bin++) {
+            int min = Short.MAX_VALUE;
+            int max = Short.MIN_VALUE;
+            int end = Math.min((bin + 1) * PeakLoader.SAMPLES_PER_BIN, frames) * 2;
+            for (int i = bin * PeakLoader.SAMPLES_PER_BIN * 2; i < end; i++) {
+                min = Math.min(min, mPcm[i]);
+                max = Math.max(max, mPcm[i]);
+            }
+            assertEquals(min, peaks.getMin(0, bin));
+            assertEquals(max, peaks.getMax(0, bin));
+        }
+    }
+
+    @Test
+    public void load_reportsProgressWhileDecoding() throws IOException {
+        final int chunks = 5;
+        AudioDecoder slow = new AudioDecoder() {
+            private int mRead;
+
+            @Override
+            public int getSampleRate() {
+                return 8000;
+            }
+
+            @Override
+            public int getChannelCount() {
+                return 1;
+            }
+
+            @Override
+            public long getDurationUs() {
+                return 1000000L * chunks;
+            }
+
+            @Override
+            public int read(short[] buffer, int offset, int length) throws IOException {
+                if (mRead == chunks) {
+                    return -1;
+                }
+                mRead++;
+                try {
+                    Thread.sleep(120);
+                } catch (InterruptedException e) {
+                    throw new InterruptedIOException();
+                }
+                // 每块1秒
+                for (int i = 0; i < 8000; i++) {
+                    buffer[offset + i] = (short) (i % 100);
+                }
+                return 8000;
+            }
+
+            @Override
+            public void seekTo(long frame) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        final long[] last = new long[2];
+        final int[] calls = new int[1];
+        PeakPyramid peaks = new PeakLoader().load(slow, (partial, expectedBins) -> {
+            assertTrue(partial.getBinCount() >= last[0]);
+            last[0] = partial.getBinCount();
+            last[1] = expectedBins;
+            calls[0]++;
+        });
+        assertTrue("calls=" + calls[0], calls[0] >= chunks - 1);
+        // 5秒 * 8000 / 256 = 156.25
+        assertEquals(157, last[1]);
+        assertEquals(157, peaks.getBinCount());
+    }
+
+    @Test
+    public void load_stopsWhenCancelled() throws IOException {
+        mPcm = WavFixtures.writeRandom(mFile, SAMPLE_RATE, PeakLoader.SAMPLES_PER_BIN * 1000, 1);
+        final CancelSignal signal = new CancelSignal();
+        try (WavDecoder decoder = new WavDecoder(mFile)) {
+            new PeakLoader().load(new ForwardingDecoder(decoder) {
+                @Override
+                public int read(short[] buffer, int offset, int length) throws IOException {
+                    signal.cancel();
+                    return super.read(buffer, offset, length);
+                }
+            }, null, signal);
+            fail("expected cancellation");
+        } catch (InterruptedIOException expected) {
+        }
+    }
+
+    @Test
+    public void load_cancelledBeforeStartDoesNotDecode() throws IOException {
+        mPcm = WavFixtures.writeRandom(mFile, SAMPLE_RATE, PeakLoader.SAMPLES_PER_BIN * 10, 1);
+        // 任务还在队列里时界面就关闭了，开始后不能把取消清掉
+        CancelSignal signal = new CancelSignal();
+        signal.cancel();
+        final int[] reads = new int[1];
+        try (WavDecoder decoder = new WavDecoder(mFile)) {
+            new PeakLoader().load(new ForwardingDecoder(decoder) {
+                @Override
+                public int read(short[] buffer, int offset, int length) throws IOException {
+                    reads[0]++;
+                    return super.read(buffer, offset, length);
+                }
+            }, null, signal);
+            fail("expected cancellation");
+        } catch (InterruptedIOException expected) {
+            assertEquals(0, reads[0]);
+        }
+    }
+
+    private static class ForwardingDecoder implements AudioDecoder {
+        private final AudioDecoder mDecoder;
+
+        ForwardingDecoder(AudioDecoder decoder) {
+            mDecoder = decoder;
+        }
+
+        @Override
+        public int getSampleRate() {
+            return mDecoder.getSampleRate();
+        }
+
+        @Override
+        public int getChannelCount() {
+            return mDecoder.getChannelCount();
+        }
+
+        @Override
+        public long getDurationUs() {
+            return mDecoder.getDurationUs();
+        }
+
+        @Override
+        public int read(short[] buffer, int offset, int length) throws IOException {
+            return mDecoder.read(buffer, offset, length);
+        }
+
+        @Override
+        public void seekTo(long frame) throws IOException {
+            mDecoder.seekTo(frame);
+        }
+
+        @Override
+        public void close() throws IOException {
+            mDecoder.close();
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package com.demo.recordaudio;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class PeakPyramidTest {
+
+    @Test
+    public void append_buildsUpperLevels() {
+        PeakPyramid pyramid = new PeakPyramid();
+        pyramid.append(-1, 1);
+        pyramid.append(-5, 2);
+        pyramid.append(-2, 7);
+        pyramid.append(0, 3);
+        assertEquals(4, pyramid.getBinCount());
+        assertEquals(3, pyramid.getLevelCount());
+        assertEquals(-5, pyramid.getMin(1, 0));
+        assertEquals(2, pyramid.getMax(1, 0));
+        assertEquals(-2, pyramid.getMin(1, 1));
+        assertEquals(7, pyramid.getMax(1, 1));
+        assertEquals(-5, pyramid.getMin(2, 0));
+        assertEquals(7, pyramid.getMax(2, 0));
+    }
+
+    @Test
+    public void addSamples_groupsSamplesIntoBins() {
+        PeakPyramid pyramid = new PeakPyramid(3);
+        short[] samples = {1, -4, 2, 9, 0, -1, 5};
+        pyramid.addSamples(samples, 0, samples.length, 1);
+        assertEquals(2, pyramid.getBinCount());
+        pyramid.flush();
+        assertEquals(3, pyramid.getBinCount());
+        assertEquals(-4, pyramid.getMin(0, 0));
+        assertEquals(2, pyramid.getMax(0, 0));
+        assertEquals(-1, pyramid.getMin(0, 1));
+        assertEquals(9, pyramid.getMax(0, 1));
+        assertEquals(5, pyramid.getMin(0, 2));
+    }
+
+    @Test
+    public void addSamples_chunksSplitAcrossBins() {
+        Random random = new Random(7);
+        short[] samples = new short[1000];
+        for (int i = 0; i < samples.length; i++) {
+            samples[i] = (short) random.nextInt(65536);
+        }
+        PeakPyramid expected = new PeakPyramid(7);
+        expected.addSamples(samples, 0, samples.length, 1);
+        PeakPyramid chunked = new PeakPyramid(7);
+        int offset = 0;
+        while (offset < samples.length) {
+            int length = Math.min(1 + random.nextInt(20), samples.length - offset);
+            chunked.addSamples(samples, offset, length, 1);
+            offset += length;
+        }
+        expected.flush();
+        chunked.flush();
+        assertEquals(143, chunked.getBinCount());
+        for (int i = 0; i < 143; i++) {
+            int min = Short.MAX_VALUE;
+            int max = Short.MIN_VALUE;
+            for (int j = i * 7; j < Math.min(i * 7 + 7, samples.length); j++) {
+                min = Math.min(min, samples[j]);
+                max = Math.max(max, samples[j]);
+            }
+            assertEquals(min, chunked.getMin(0, i));
+            assertEquals(max, chunked.getMax(0, i));
+            assertEquals(min, expected.getMin(0, i));
+            assertEquals(max, expected.getMax(0, i));
+        }
+    }
+
+    @Test
+    public void addSamples_withStrideSkipsInterleavedChannels() {
+        PeakPyramid pyramid = new PeakPyramid(2);
+        short[] samples = {1, 100, 3, 100, -2, 100, 4, 100};
+        pyramid.addSamples(samples, 0, samples.length, 2);
+        assertEquals(2, pyramid.getBinCount());
+        assertEquals(3, pyramid.getMax(0, 0));
+        assertEquals(-2, pyramid.getMin(0, 1));
+    }
+
+    @Test
+    public void query_matchesBruteForce() {
+        Random random = new Random(42);
+        int n = 10007;
+        short[] mins = new short[n];
+        short[] maxs = new short[n];
+        PeakPyramid pyramid = new PeakPyramid();
+        for (int i = 0; i < n; i++) {
+            int a = random.nextInt(65536) - 32768;
+            int b = random.nextInt(65536) - 32768;
+            mins[i] = (short) Math.min(a, b);
+            maxs[i] = (short) Math.max(a, b);
+            pyramid.append(mins[i], maxs[i]);
+        }
+        short[] outMin = new short[640];
+        short[] outMax = new short[640];
+        for (int round = 0; round < 200; round++) {
+            int start = random.nextInt(n);
+            int end = start + 1 + random.nextInt(n - start);
+            int columns = 1 + random.nextInt(640);
+            assertEquals(columns, pyramid.query(start, end, columns, outMin, outMax));
+            long span = end - start;
+            for (int c = 0; c < columns; c++) {
+                long from = start + span * c / columns;
+                long to = Math.min(Math.max(start + span * (c + 1) / columns, from + 1), end);
+                int min = Short.MAX_VALUE;
+                int max = Short.MIN_VALUE;
+                for (long i = from; i < to; i++) {
+                    min = Math.min(min, mins[(int) i]);
+                    max = Math.max(max, maxs[(int) i]);
+                }
+                assertEquals(min, outMin[c]);
+                assertEquals(max, outMax[c]);
+            }
+        }
+    }
+
+    @Test
+    public void query_clampsToAvailableBins() {
+        PeakPyramid pyramid = new PeakPyramid();
+        assertEquals(0, pyramid.query(0, 10, 4, new short[4], new short[4]));
+        pyramid.append(-3, 3);
+        short[] outMin = new short[2];
+        short[] outMax = new short[2];
+        assertEquals(2, pyramid.query(-5, 10, 2, outMin, outMax));
+        assertEquals(-3, outMin[1]);
+        assertEquals(3, outMax[1]);
+    }
+
+    /**
+     * 构建和查询的基准：1M和16M个bin，查询1080列覆盖全部数据，只在./gradlew test -Pbenchmark时跑
+     */
+    @Test
+    public void benchmark_buildAndQuery() {
+        Benchmarks.assumeEnabled();
+        for (int n : new int[]{1 << 20, 1 << 24}) {
+            short[] samples = new short[4096];
+            Random random = new Random(7);
+            for (int i = 0; i < samples.length; i++) {
+                samples[i] = (short) random.nextInt();
+            }
+            PeakPyramid pyramid = null;
+            long buildNanos = Long.MAX_VALUE;
+            for (int round = 0; round < 3; round++) {
+                long start = System.nanoTime();
+                pyramid = new PeakPyramid(1);
+                for (int i = 0; i < n; i += samples.length) {
+                    pyramid.addSamples(samples, 0, samples.length, 1);
+                }
+                buildNanos = Math.min(buildNanos, System.nanoTime() - start);
+            }
+            assertEquals(n, pyramid.getBinCount());
+
+            short[] outMin = new short[1080];
+            short[] outMax = new short[1080];
+            int queries = 2000;
+            for (int i = 0; i < queries; i++) {
+                pyramid.query(0, n, outMin.length, outMin, outMax);
+            }
+            long start = System.nanoTime();
+            for (int i = 0; i < queries; i++) {
+                pyramid.query(i, n, outMin.length, outMin, outMax);
+            }
+            long queryNanos = (System.nanoTime() - start) / queries;
+            System.out.printf("PeakPyramid n=%d: build %.2f ns/sample, full-range query of %d columns %d us%n",
+                    n, (double) buildNanos / n, outMin.length, queryNanos / 1000);
+        }
+    }
+}
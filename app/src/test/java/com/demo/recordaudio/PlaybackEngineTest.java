@@ -0,0 +1,155 @@
+package com.demo.recordaudio;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PlaybackEngineTest {
+
+    private static final int SAMPLE_RATE = 44100;
+
+    private File mFile;
+    private short[] mPcm;
+    private PlaybackEngine mEngine;
+
+    @Before
+    public void setUp() throws IOException {
+        mFile = File.createTempFile("playback", ".wav");
+    }
+
+    @After
+    public void tearDown() {
+        if (mEngine != null) {
+            mEngine.release();
+        }
+        mFile.delete();
+    }
+
+    @Test
+    public void play_writesSelectedRangeAndCompletes() throws Exception {
+        mPcm = WavFixtures.writeRandom(mFile, SAMPLE_RATE, SAMPLE_RATE * 3, 1);
+        NullAudioSink sink = new NullAudioSink(true);
+        mEngine = new PlaybackEngine(sink);
+        CompletionListener listener = new CompletionListener();
+        mEngine.setListener(listener);
+        mEngine.setRange(1000, 1500);
+        mEngine.open(new WavDecoder(mFile));
+        mEngine.play();
+
+        assertTrue(listener.completed.await(5, TimeUnit.SECONDS));
+        assertArrayEquals(Arrays.copyOfRange(mPcm, SAMPLE_RATE, SAMPLE_RATE * 3 / 2), sink.getData());
+        // 播完停在区间开始
+        assertFalse(mEngine.isPlaying());
+        assertFalse(sink.isPlaying());
+        assertEquals(1000, mEngine.getPositionMs());
+    }
+
+    @Test
+    public void seekWhilePlaying_usesWindowAroundCursor() throws Exception {
+        mPcm = WavFixtures.writeRandom(mFile, SAMPLE_RATE, SAMPLE_RATE * 20, 1);
+        PacedSink sink = new PacedSink();
+        mEngine = new PlaybackEngine(sink);
+        mEngine.open(new WavDecoder(mFile));
+        mEngine.play();
+        waitForPosition(2000);
+
+        // 往回拖到已经解码过的位置，不用重新解码
+        mEngine.seekTo(1500);
+        long hits = waitForSeek();
+        assertEquals(1, hits);
+        assertEquals(0, mEngine.getCacheMissCount());
+        assertTrue(mEngine.getLastSeekLatencyNanos() < TimeUnit.MILLISECONDS.toNanos(50));
+        assertEquals(mPcm[SAMPLE_RATE * 3 / 2], sink.awaitFirstSampleAfterFlush());
+
+        // 窗口外的位置让解码器seek
+        mEngine.seekTo(15000);
+        waitForSeek();
+        assertEquals(1, mEngine.getCacheMissCount());
+        assertEquals(mPcm[SAMPLE_RATE * 15], sink.awaitFirstSampleAfterFlush());
+        assertTrue(mEngine.getPositionMs() >= 15000);
+    }
+
+    private void waitForPosition(long ms) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (mEngine.getPositionMs() < ms && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertTrue(mEngine.getPositionMs() >= ms);
+    }
+
+    private long waitForSeek() throws InterruptedException {
+        long before = mEngine.getCacheHitCount() + mEngine.getCacheMissCount();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (mEngine.getCacheHitCount() + mEngine.getCacheMissCount() == before
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        return mEngine.getCacheHitCount();
+    }
+
+    private static class CompletionListener implements PlaybackEngine.Listener {
+
+        final CountDownLatch completed = new CountDownLatch(1);
+
+        @Override
+        public void onCompletion() {
+            completed.countDown();
+        }
+
+        @Override
+        public void onError(IOException e) {
+        }
+    }
+
+    /**
+     * 每次写入都阻塞一会，模拟AudioTrack按时钟消耗数据，记录每次flush后写入的第一个采样
+     */
+    private static class PacedSink extends NullAudioSink {
+
+        private boolean mFlushed;
+        private Short mFirstAfterFlush;
+
+        @Override
+        public int write(short[] pcm, int offset, int length) {
+            try {
+                Thread.sleep(2);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            synchronized (this) {
+                if (mFlushed) {
+                    mFlushed = false;
+                    mFirstAfterFlush = pcm[offset];
+                    notifyAll();
+                }
+            }
+            return super.write(pcm, offset, length);
+        }
+
+        @Override
+        public synchronized void flush() {
+            super.flush();
+            mFlushed = true;
+            mFirstAfterFlush = null;
+        }
+
+        synchronized short awaitFirstSampleAfterFlush() throws InterruptedException {
+            long deadline = System.currentTimeMillis() + 5000;
+            while (mFirstAfterFlush == null && System.currentTimeMillis() < deadline) {
+                wait(100);
+            }
+            return mFirstAfterFlush;
+        }
+    }
+}
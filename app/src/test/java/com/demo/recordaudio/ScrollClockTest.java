@@ -0,0 +1,61 @@
+package com.demo.recordaudio;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ScrollClockTest {
+
+    private static final long MS = 1000000L;
+
+    @Test
+    public void position_followsClockAndPauses() {
+        ScrollClock clock = new ScrollClock();
+        assertEquals(0, clock.getPosition(1000 * MS));
+        clock.start(1000 * MS);
+        assertEquals(250 * MS, clock.getPosition(1250 * MS));
+        clock.pause(1500 * MS);
+        assertEquals(500 * MS, clock.getPosition(9000 * MS));
+        clock.start(10000 * MS);
+        assertEquals(600 * MS, clock.getPosition(10100 * MS));
+    }
+
+    @Test
+    public void sync_convergesToMediaTimeAtAnyFrameRate() {
+        ScrollClock clock = new ScrollClock();
+        clock.start(0);
+        // 音频时钟比系统时钟慢0.1%，每20ms来一块数据，画面按120Hz取位置
+        long lastPosition = 0;
+        for (long now = 0; now < 60000 * MS; now += 8333333) {
+            if (now / (20 * MS) != (now - 8333333) / (20 * MS)) {
+                clock.sync(now - now / 1000, now);
+            }
+            long position = clock.getPosition(now);
+            assertTrue(position >= lastPosition);
+            lastPosition = position;
+        }
+        long now = 60000 * MS;
+        long error = clock.getPosition(now) - (now - now / 1000);
+        assertTrue("error " + error / MS + "ms", Math.abs(error) < 30 * MS);
+    }
+
+    @Test
+    public void sync_snapsLargeJumpsWithoutGoingBackwards() {
+        ScrollClock clock = new ScrollClock();
+        clock.start(0);
+        clock.sync(5000 * MS, 100 * MS);
+        assertEquals(5000 * MS, clock.getPosition(100 * MS));
+        clock.sync(0, 200 * MS);
+        assertEquals(5000 * MS, clock.getPosition(200 * MS));
+    }
+
+    @Test
+    public void reset_returnsToZero() {
+        ScrollClock clock = new ScrollClock();
+        clock.start(0);
+        clock.getPosition(3000 * MS);
+        clock.reset();
+        assertEquals(0, clock.getPosition(4000 * MS));
+    }
+}
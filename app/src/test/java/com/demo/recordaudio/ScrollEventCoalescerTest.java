@@ -0,0 +1,152 @@
+package com.demo.recordaudio;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ScrollEventCoalescerTest {
+
+    @Test
+    public void flush_deliversOnlyLatestValues() {
+        ScrollEventCoalescer coalescer = new ScrollEventCoalescer();
+        RecordingListener listener = new RecordingListener();
+        coalescer.setListener(listener);
+        for (int i = 0; i < 100; i++) {
+            coalescer.offerThumb(true, i, i * 2f);
+            coalescer.offerCursor(i + 1000, i * 3f);
+        }
+        coalescer.flush();
+
+        assertEquals(1, coalescer.getDispatchCount());
+        assertEquals(200, coalescer.getOfferCount());
+        // 先滑块再指示器
+        assertEquals(2, listener.events.size());
+        assertEquals("L 99 198.0", listener.events.get(0));
+        assertEquals("C 1099 297.0", listener.events.get(1));
+
+        // 没有新的移动时不分发
+        coalescer.flush();
+        assertEquals(1, coalescer.getDispatchCount());
+    }
+
+    @Test
+    public void flush_submitsOneTaskUntilItRuns() {
+        ScrollEventCoalescer coalescer = new ScrollEventCoalescer();
+        RecordingListener listener = new RecordingListener();
+        coalescer.setListener(listener);
+        QueueExecutor executor = new QueueExecutor();
+        coalescer.setExecutor(executor);
+
+        coalescer.offerThumb(false, 1, 1);
+        coalescer.flush();
+        coalescer.offerThumb(false, 2, 2);
+        coalescer.flush();
+        coalescer.offerCursor(3, 3);
+        coalescer.flush();
+        assertEquals(1, executor.tasks.size());
+        assertTrue(listener.events.isEmpty());
+
+        executor.runAll();
+        assertEquals(2, listener.events.size());
+        assertEquals("R 2 2.0", listener.events.get(0));
+        assertEquals("C 3 3.0", listener.events.get(1));
+
+        coalescer.offerCursor(4, 4);
+        coalescer.flush();
+        assertEquals(1, executor.tasks.size());
+    }
+
+    @Test
+    public void offerCursor_keepsPendingUserMove() {
+        ScrollEventCoalescer coalescer = new ScrollEventCoalescer();
+        final List<String> cursorEvents = new ArrayList<>();
+        coalescer.setListener(new RecordingListener() {
+            @Override
+            public void onScrollCursor(AudioClipView.ScrollInfo info) {
+                cursorEvents.add(info.getTime() + " " + info.isFromUser());
+            }
+        });
+        // 同一帧里播放进度的更新不能覆盖手指拖动的位置
+        coalescer.offerCursor(500, 5, true);
+        coalescer.offerCursor(120, 1, false);
+        coalescer.flush();
+        coalescer.offerCursor(130, 1, false);
+        coalescer.flush();
+
+        assertEquals(2, cursorEvents.size());
+        assertEquals("500 true", cursorEvents.get(0));
+        assertEquals("130 false", cursorEvents.get(1));
+    }
+
+    @Test
+    public void offerAndFlush_allocateNothing() {
+        ScrollEventCoalescer coalescer = new ScrollEventCoalescer();
+        final int[] calls = new int[1];
+        coalescer.setListener(new AudioClipView.OnScrollListener() {
+            @Override
+            public void onScrollThumb(boolean isLeftThumb, AudioClipView.ScrollInfo info) {
+                calls[0] += info.getTime();
+            }
+
+            @Override
+            public void onScrollCursor(AudioClipView.ScrollInfo info) {
+                calls[0] += info.getTime();
+            }
+        });
+        // 预热，排除类加载和JIT的分配
+        for (int i = 0; i < 20000; i++) {
+            coalescer.offerThumb((i & 1) == 0, i, i);
+            coalescer.offerCursor(i, i);
+            coalescer.flush();
+        }
+        long before = AllocationCounter.allocatedBytes();
+        for (int i = 0; i < 10000; i++) {
+            coalescer.offerThumb((i & 1) == 0, i, i);
+            coalescer.offerCursor(i, i);
+            if (i % 4 == 0) {
+                coalescer.flush();
+            }
+        }
+        long allocated = AllocationCounter.allocatedBytes() - before;
+        assertEquals(0, allocated);
+        assertTrue(calls[0] > 0);
+    }
+
+    private static class RecordingListener implements AudioClipView.OnScrollListener {
+
+        final List<String> events = new ArrayList<>();
+
+        @Override
+        public void onScrollThumb(boolean isLeftThumb, AudioClipView.ScrollInfo info) {
+            events.add((isLeftThumb ? "L " : "R ") + info.getTime() + " " + info.getPosition());
+        }
+
+        @Override
+        public void onScrollCursor(AudioClipView.ScrollInfo info) {
+            events.add("C " + info.getTime() + " " + info.getPosition());
+        }
+    }
+
+    private static class QueueExecutor implements Executor {
+
+        final List<Runnable> tasks = new ArrayList<>();
+
+        @Override
+        public void execute(Runnable command) {
+            tasks.add(command);
+        }
+
+        void runAll() {
+            List<Runnable> pending = new ArrayList<>(tasks);
+            tasks.clear();
+            for (Runnable task : pending) {
+                task.run();
+            }
+        }
+    }
+}
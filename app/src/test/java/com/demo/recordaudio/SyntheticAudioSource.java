@@ -0,0 +1,94 @@
+package com.demo.recordaudio;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * @author : Zach
+ * @desc : 测试用的合成音频源，输出固定幅度的正弦波，读完指定帧数后返回-1
+ * @date : 2026/10/18 11:50
+ */
+public class SyntheticAudioSource implements AudioSource {
+
+    private final int mSampleRate;
+    private final int mChannelCount;
+    private final int mBufferSize;
+    private final double mFrequency;
+    private final double mAmplitude;
+    private final long mTotalFrames;
+    private long mFrame;
+    private volatile int mStartCount;
+    private volatile boolean mReleased;
+
+    /**
+     * @param amplitude   幅度，0~1
+     * @param totalFrames 总帧数，-1表示无限
+     */
+    public SyntheticAudioSource(int sampleRate, int channelCount, double frequency, double amplitude, long totalFrames) {
+        mSampleRate = sampleRate;
+        mChannelCount = channelCount;
+        mFrequency = frequency;
+        mAmplitude = amplitude;
+        mTotalFrames = totalFrames;
+        mBufferSize = sampleRate / 100 * 2 * channelCount;
+    }
+
+    @Override
+    public int getSampleRate() {
+        return mSampleRate;
+    }
+
+    @Override
+    public int getChannelCount() {
+        return mChannelCount;
+    }
+
+    @Override
+    public int getBufferSize() {
+        return mBufferSize;
+    }
+
+    @Override
+    public void start() {
+        mStartCount++;
+    }
+
+    @Override
+    public int read(ByteBuffer buffer, int size) {
+        if (mTotalFrames >= 0 && mFrame >= mTotalFrames) {
+            return -1;
+        }
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        int frameSize = 2 * mChannelCount;
+        int frames = size / frameSize;
+        if (mTotalFrames >= 0) {
+            frames = (int) Math.min(frames, mTotalFrames - mFrame);
+        }
+        for (int i = 0; i < frames; i++) {
+            double phase = 2 * Math.PI * mFrequency * (mFrame + i) / mSampleRate;
+            short sample = (short) Math.round(Math.sin(phase) * mAmplitude * 32767);
+            for (int c = 0; c < mChannelCount; c++) {
+                buffer.putShort((i * mChannelCount + c) * 2, sample);
+            }
+        }
+        mFrame += frames;
+        return frames * frameSize;
+    }
+
+    @Override
+    public void stop() {
+    }
+
+    @Override
+    public void release() {
+        mReleased = true;
+    }
+
+    public int getStartCount() {
+        return mStartCount;
+    }
+
+    public boolean isReleased() {
+        return mReleased;
+    }
+}
@@ -0,0 +1,67 @@
+package com.demo.recordaudio;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TimecodeFormatterTest {
+
+    private final char[] mChars = new char[TimecodeFormatter.MAX_LENGTH];
+
+    @Test
+    public void formatShort_switchesToHoursAfterOneHour() {
+        assertEquals("00:00", formatShort(-3));
+        assertEquals("00:00", formatShort(0));
+        assertEquals("00:59", formatShort(59));
+        assertEquals("01:00", formatShort(60));
+        assertEquals("59:59", formatShort(3599));
+        assertEquals("01:00:00", formatShort(3600));
+        assertEquals("10:01:01", formatShort(36061));
+    }
+
+    @Test
+    public void formatLong_alwaysHasHours() {
+        assertEquals("00:00:00", formatLong(0));
+        assertEquals("00:00:09", formatLong(9));
+        assertEquals("00:10:00", formatLong(600));
+        assertEquals("123:00:01", formatLong(123 * 3600 + 1));
+        assertEquals("596523:14:07", formatLong(Integer.MAX_VALUE));
+    }
+
+    @Test
+    public void formatMinutes_doesNotRollIntoHours() {
+        assertEquals("00:00", formatMinutes(0));
+        assertEquals("05:07", formatMinutes(307));
+        assertEquals("120:00", formatMinutes(7200));
+    }
+
+    @Test
+    public void format_doesNotAllocate() {
+        for (int i = 0; i < 100000; i++) {
+            TimecodeFormatter.formatShort(i, mChars);
+            TimecodeFormatter.formatLong(i, mChars);
+        }
+        long before = AllocationCounter.allocatedBytes();
+        int total = 0;
+        for (int i = 0; i < 100000; i++) {
+            total += TimecodeFormatter.formatShort(i, mChars);
+            total += TimecodeFormatter.formatLong(i, mChars);
+        }
+        long allocated = AllocationCounter.allocatedBytes() - before;
+        assertTrue(total > 0);
+        assertTrue("allocated " + allocated + " bytes", allocated < 1024);
+    }
+
+    private String formatShort(int seconds) {
+        return new String(mChars, 0, TimecodeFormatter.formatShort(seconds, mChars));
+    }
+
+    private String formatLong(int seconds) {
+        return new String(mChars, 0, TimecodeFormatter.formatLong(seconds, mChars));
+    }
+
+    private String formatMinutes(int seconds) {
+        return new String(mChars, 0, TimecodeFormatter.formatMinutes(seconds, mChars));
+    }
+}
@@ -0,0 +1,93 @@
+package com.demo.recordaudio;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.Random;
+
+/**
+ * @author : Zach
+ * @desc : 测试用的16bit PCM WAV文件，解码、提取峰值、导出、播放的测试共用
+ * @date : 2026/10/19 19:40
+ */
+public final class WavFixtures {
+
+    private WavFixtures() {
+    }
+
+    /**
+     * 写入随机数据，同样的帧数每次生成的数据相同
+     *
+     * @return 写入的交错PCM
+     */
+    public static short[] writeRandom(File file, int sampleRate, int frames, int channels) throws IOException {
+        Random random = new Random(frames);
+        short[] pcm = new short[frames * channels];
+        for (int i = 0; i < pcm.length; i++) {
+            pcm[i] = (short) random.nextInt(65536);
+        }
+        write(file, sampleRate, channels, pcm);
+        return pcm;
+    }
+
+    /**
+     * 写入斜坡，第i帧左声道是i，右声道是-i，方便按值检查位置
+     */
+    public static void writeRamp(File file, int sampleRate, int frames, int channels) throws IOException {
+        short[] pcm = new short[frames * channels];
+        for (int i = 0; i < frames; i++) {
+            pcm[i * channels] = (short) i;
+            if (channels == 2) {
+                pcm[i * channels + 1] = (short) -i;
+            }
+        }
+        write(file, sampleRate, channels, pcm);
+    }
+
+    /**
+     * 写入文件头和交错PCM，覆盖原有内容
+     */
+    public static void write(File file, int sampleRate, int channels, short[] pcm) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw"); FileChannel channel = raf.getChannel()) {
+            ByteBuffer buffer = ByteBuffer.allocate(WavFileWriter.HEADER_SIZE + pcm.length * 2)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            WavFileWriter.writeHeader(buffer, sampleRate, channels, pcm.length * 2L);
+            buffer.limit(buffer.capacity());
+            buffer.position(WavFileWriter.HEADER_SIZE);
+            buffer.asShortBuffer().put(pcm);
+            buffer.position(0);
+            channel.truncate(0);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    /**
+     * 单声道的大文件，按1MB一块重复写，避免整块数据放在内存里
+     */
+    public static void writeSynthetic(File file, int sampleRate, long dataSize) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw"); FileChannel channel = raf.getChannel()) {
+            ByteBuffer header = ByteBuffer.allocate(WavFileWriter.HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            WavFileWriter.writeHeader(header, sampleRate, 1, dataSize);
+            channel.write(header, 0);
+            ByteBuffer block = ByteBuffer.allocateDirect(1024 * 1024).order(ByteOrder.LITTLE_ENDIAN);
+            Random random = new Random(1);
+            while (block.hasRemaining()) {
+                block.putShort((short) (random.nextGaussian() * 6000));
+            }
+            long position = WavFileWriter.HEADER_SIZE;
+            long end = WavFileWriter.HEADER_SIZE + dataSize;
+            while (position < end) {
+                block.clear();
+                block.limit((int) Math.min(block.capacity(), end - position));
+                while (block.hasRemaining()) {
+                    position += channel.write(block, position);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package com.demo.recordaudio;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class WavRecorderTest {
+
+    private static final int SAMPLE_RATE = 48000;
+    private static final int CHANNELS = 2;
+    /**
+     * 10ms一块，48kHz立体声16bit
+     */
+    private static final int BLOCK_SIZE = SAMPLE_RATE / 100 * CHANNELS * 2;
+
+    private File mFile;
+
+    @Before
+    public void setUp() throws IOException {
+        mFile = File.createTempFile("record", ".wav");
+    }
+
+    @After
+    public void tearDown() {
+        mFile.delete();
+        PeakFile.forAudio(mFile).delete();
+    }
+
+    @Test
+    public void stop_writesHeaderWithDataLength() throws Exception {
+        WavRecorder recorder = new WavRecorder(BLOCK_SIZE, 8);
+        recorder.start(mFile, SAMPLE_RATE, CHANNELS);
+        ByteBuffer block = newBlock();
+        for (int i = 0; i < 5; i++) {
+            while (!recorder.write(block, BLOCK_SIZE)) {
+                Thread.yield();
+            }
+        }
+        recorder.stop();
+
+        ByteBuffer header = readHeader(mFile);
+        assertEquals(0x46464952, header.getInt(0));
+        assertEquals(36 + 5 * BLOCK_SIZE, header.getInt(4));
+        assertEquals(CHANNELS, header.getShort(22));
+        assertEquals(SAMPLE_RATE, header.getInt(24));
+        assertEquals(SAMPLE_RATE * CHANNELS * 2, header.getInt(28));
+        assertEquals(5 * BLOCK_SIZE, header.getInt(40));
+        assertEquals(WavFileWriter.HEADER_SIZE + 5 * BLOCK_SIZE, mFile.length());
+
+        recorder.awaitPeakFile();
+        File peakFile = PeakFile.forAudio(mFile);
+        try (MappedPeakSource peaks = new MappedPeakSource(peakFile)) {
+            // 每块480帧，共2400帧，256帧一个bin
+            assertEquals(10, peaks.getBinCount());
+            assertEquals(SAMPLE_RATE, peaks.getSampleRate());
+            short[] min = new short[10];
+            short[] max = new short[10];
+            assertEquals(10, peaks.query(0, 10, 10, min, max));
+            // 每个bin是两个声道的min/max，按小端读出来的值和写入的一样
+            short[] samples = blockSamples();
+            int samplesPerBlock = BLOCK_SIZE / 2;
+            int total = 5 * samplesPerBlock;
+            for (int bin = 0; bin < 10; bin++) {
+                short expectedMin = Short.MAX_VALUE;
+                short expectedMax = Short.MIN_VALUE;
+                for (int i = bin * 256 * CHANNELS; i < Math.min(total, (bin + 1) * 256 * CHANNELS); i++) {
+                    short sample = samples[i % samplesPerBlock];
+                    expectedMin = (short) Math.min(expectedMin, sample);
+                    expectedMax = (short) Math.max(expectedMax, sample);
+                }
+                assertEquals("min of bin " + bin, expectedMin, min[bin]);
+                assertEquals("max of bin " + bin, expectedMax, max[bin]);
+            }
+        } finally {
+            peakFile.delete();
+        }
+    }
+
+    @Test
+    public void pause_patchesHeaderWithoutStopping() throws Exception {
+        WavRecorder recorder = new WavRecorder(BLOCK_SIZE, 8);
+        recorder.start(mFile, SAMPLE_RATE, CHANNELS);
+        recorder.write(newBlock(), BLOCK_SIZE);
+        recorder.pause();
+        long deadline = System.currentTimeMillis() + 2000;
+        while (readHeader(mFile).getInt(40) != BLOCK_SIZE && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(BLOCK_SIZE, readHeader(mFile).getInt(40));
+        assertTrue(recorder.isRecording());
+        recorder.stop();
+    }
+
+    @Test
+    public void write_dropsInsteadOfBlockingWhenPoolIsEmpty() throws IOException {
+        WavRecorder recorder = new WavRecorder(BLOCK_SIZE, 2);
+        recorder.start(mFile, SAMPLE_RATE, CHANNELS);
+        ByteBuffer block = newBlock();
+        int written = 0;
+        for (int i = 0; i < 1000; i++) {
+            if (recorder.write(block, BLOCK_SIZE)) {
+                written++;
+            }
+        }
+        recorder.stop();
+        assertEquals(1000 - written, recorder.getDroppedBlocks());
+        assertEquals(WavFileWriter.HEADER_SIZE + (long) written * BLOCK_SIZE, mFile.length());
+    }
+
+    /**
+     * 吞吐量基准：写入10分钟48kHz立体声16bit音频，要求远快于实时，且内存只有固定的缓冲池。
+     * 只在./gradlew test -Pbenchmark时跑
+     */
+    @Test
+    public void benchmark_keepsUpWith48kStereo() throws IOException {
+        Benchmarks.assumeEnabled();
+        int bufferCount = 32;
+        int blocks = 10 * 60 * 100;
+        WavRecorder recorder = new WavRecorder(BLOCK_SIZE, bufferCount);
+        recorder.start(mFile, SAMPLE_RATE, CHANNELS);
+        ByteBuffer block = newBlock();
+        long start = System.nanoTime();
+        for (int i = 0; i < blocks; i++) {
+            while (!recorder.write(block, BLOCK_SIZE)) {
+                Thread.yield();
+            }
+        }
+        recorder.stop();
+        long elapsed = System.nanoTime() - start;
+
+        long bytes = (long) blocks * BLOCK_SIZE;
+        double bytesPerSecond = bytes * 1e9 / elapsed;
+        double realtime = SAMPLE_RATE * CHANNELS * 2;
+        System.out.printf("WavRecorder: %.1f MB/s, %.0fx realtime, pool %d KB%n",
+                bytesPerSecond / (1024 * 1024), bytesPerSecond / realtime, recorder.getPoolMemory() / 1024);
+        assertEquals(WavFileWriter.HEADER_SIZE + bytes, mFile.length());
+        assertEquals((long) BLOCK_SIZE * bufferCount, recorder.getPoolMemory());
+        assertTrue(bytesPerSecond > realtime * 10);
+    }
+
+    private static ByteBuffer newBlock() {
+        ByteBuffer block = ByteBuffer.allocateDirect(BLOCK_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        short[] samples = blockSamples();
+        for (int i = 0; i < samples.length; i++) {
+            block.putShort(i * 2, samples[i]);
+        }
+        return block;
+    }
+
+    /**
+     * 每块的采样，有正有负，高低字节不同，字节序错了峰值就对不上
+     */
+    private static short[] blockSamples() {
+        short[] samples = new short[BLOCK_SIZE / 2];
+        for (int i = 0; i < samples.length; i++) {
+            samples[i] = (short) ((i * 31) % 20000 - 10000);
+        }
+        return samples;
+    }
+
+    private static ByteBuffer readHeader(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r"); FileChannel channel = raf.getChannel()) {
+            ByteBuffer header = ByteBuffer.allocate(WavFileWriter.HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            channel.read(header, 0);
+            return header;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.demo.recordaudio;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class WaveRingBufferTest {
+
+    /**
+     * 100ms一个数据，10小时
+     */
+    private static final int TEN_HOURS_TICKS = 10 * 60 * 60 * 10;
+
+    @Test
+    public void get_returnsNewestFirst() {
+        WaveRingBuffer buffer = new WaveRingBuffer(4);
+        buffer.add(1);
+        buffer.add(2);
+        buffer.add(3);
+        assertEquals(3, buffer.size());
+        assertEquals(3, buffer.get(0));
+        assertEquals(2, buffer.get(1));
+        assertEquals(1, buffer.get(2));
+    }
+
+    @Test
+    public void add_overwritesOldestWhenFull() {
+        WaveRingBuffer buffer = new WaveRingBuffer(3);
+        for (int i = 1; i <= 5; i++) {
+            buffer.add(i);
+        }
+        assertEquals(3, buffer.size());
+        assertEquals(5, buffer.get(0));
+        assertEquals(4, buffer.get(1));
+        assertEquals(3, buffer.get(2));
+    }
+
+    @Test
+    public void add_clampsToShortRange() {
+        WaveRingBuffer buffer = new WaveRingBuffer(2);
+        buffer.add(100000);
+        buffer.add(-100000);
+        assertEquals(Short.MIN_VALUE, buffer.get(0));
+        assertEquals(Short.MAX_VALUE, buffer.get(1));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void get_outOfRangeThrows() {
+        WaveRingBuffer buffer = new WaveRingBuffer(2);
+        buffer.add(1);
+        buffer.get(1);
+    }
+
+    @Test
+    public void resize_keepsNewestData() {
+        WaveRingBuffer buffer = new WaveRingBuffer(5);
+        for (int i = 1; i <= 7; i++) {
+            buffer.add(i);
+        }
+        buffer.resize(3);
+        assertEquals(3, buffer.size());
+        assertEquals(7, buffer.get(0));
+        assertEquals(5, buffer.get(2));
+
+        buffer.resize(6);
+        buffer.add(8);
+        assertEquals(4, buffer.size());
+        assertEquals(8, buffer.get(0));
+        assertEquals(5, buffer.get(3));
+    }
+
+    @Test
+    public void clear_resetsSize() {
+        WaveRingBuffer buffer = new WaveRingBuffer(2);
+        buffer.add(1);
+        buffer.clear();
+        assertEquals(0, buffer.size());
+        buffer.add(2);
+        assertEquals(2, buffer.get(0));
+    }
+
+    @Test
+    public void tenHoursOfTicks_memoryStaysFlat() {
+        WaveRingBuffer buffer = new WaveRingBuffer(1200);
+        // 预热，让JIT编译完成
+        for (int i = 0; i < TEN_HOURS_TICKS; i++) {
+            buffer.add(i & 0xFF);
+        }
+        buffer.clear();
+
+        long before = AllocationCounter.allocatedBytes();
+        long sum = 0;
+        for (int i = 0; i < TEN_HOURS_TICKS; i++) {
+            buffer.add(i & 0xFF);
+            sum += buffer.get(0);
+        }
+        long allocated = AllocationCounter.allocatedBytes() - before;
+
+        assertEquals(1200, buffer.size());
+        assertEquals(1200, buffer.capacity());
+        assertTrue(sum > 0);
+        // 允许少量与被测代码无关的分配（如ThreadMXBean自身）
+        assertTrue("allocated " + allocated + " bytes", allocated < 1024);
+    }
+}
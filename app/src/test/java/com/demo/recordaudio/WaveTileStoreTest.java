@@ -0,0 +1,127 @@
+package com.demo.recordaudio;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class WaveTileStoreTest {
+
+    private File mFile;
+
+    @Before
+    public void setUp() throws IOException {
+        mFile = File.createTempFile("wave", ".tiles");
+    }
+
+    @After
+    public void tearDown() {
+        mFile.delete();
+    }
+
+    @Test
+    public void query_inMemoryReturnsEveryColumn() {
+        WaveTileStore store = new WaveTileStore(null);
+        int count = WaveTileStore.TILE_COLUMNS * 3 + 17;
+        appendValues(store, count);
+        assertEquals(count, store.getBinCount());
+        short[] min = new short[count];
+        short[] max = new short[count];
+        assertEquals(count, store.query(0, count, count, min, max));
+        for (int i = 0; i < count; i++) {
+            assertEquals(valueAt(i), max[i]);
+            assertEquals(valueAt(i), min[i]);
+        }
+    }
+
+    @Test
+    public void query_loadsSpilledTilesLazily() throws InterruptedException {
+        WaveTileStore store = new WaveTileStore(mFile, 2);
+        final Semaphore loaded = new Semaphore(0);
+        store.setListener(new WaveTileStore.Listener() {
+            @Override
+            public void onTileLoaded() {
+                loaded.release();
+            }
+        });
+        int tiles = 10;
+        appendValues(store, WaveTileStore.TILE_COLUMNS * tiles + 5);
+
+        // 写盘完成后内存里只剩缓存容量那么多瓦片
+        long deadline = System.currentTimeMillis() + 5000;
+        while (store.getResidentTileCount() > 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(2, store.getResidentTileCount());
+
+        short[] min = new short[8];
+        short[] max = new short[8];
+        store.query(0, 8, 8, min, max);
+        if (max[3] == WaveTileStore.MISSING && valueAt(3) != WaveTileStore.MISSING) {
+            assertTrue("tile 0 not loaded", loaded.tryAcquire(5, TimeUnit.SECONDS));
+            store.query(0, 8, 8, min, max);
+        }
+        for (int i = 0; i < 8; i++) {
+            assertEquals(valueAt(i), max[i]);
+        }
+        // 最新的瓦片一直在内存里
+        long last = store.getBinCount() - 1;
+        store.query(last, last + 1, 1, min, max);
+        assertEquals(valueAt((int) last), max[0]);
+        assertTrue(store.getResidentTileCount() <= 3);
+    }
+
+    @Test
+    public void query_zoomedOutUsesMaxOfEachColumn() {
+        WaveTileStore store = new WaveTileStore(mFile, 1);
+        int count = WaveTileStore.TILE_COLUMNS * 6;
+        appendValues(store, count);
+        int columns = 7;
+        short[] min = new short[columns];
+        short[] max = new short[columns];
+        // 每列覆盖几百个数据，从常驻内存的摘要取，不需要等磁盘
+        assertEquals(columns, store.query(0, count, columns, min, max));
+        for (int c = 0; c < columns; c++) {
+            long from = (long) count * c / columns;
+            long to = (long) count * (c + 1) / columns;
+            // 摘要按16列对齐，边界会多覆盖几列
+            int expected = Short.MIN_VALUE;
+            for (long i = from / WaveTileStore.SUMMARY_COLUMNS * WaveTileStore.SUMMARY_COLUMNS;
+                 i < Math.min(count, (to + WaveTileStore.SUMMARY_COLUMNS - 1)
+                         / WaveTileStore.SUMMARY_COLUMNS * WaveTileStore.SUMMARY_COLUMNS); i++) {
+                expected = Math.max(expected, valueAt((int) i));
+            }
+            assertEquals(expected, max[c]);
+        }
+    }
+
+    @Test
+    public void clear_dropsHistory() {
+        WaveTileStore store = new WaveTileStore(mFile, 2);
+        appendValues(store, WaveTileStore.TILE_COLUMNS * 3);
+        store.clear();
+        assertEquals(0, store.getBinCount());
+        assertEquals(0, store.query(0, 100, 10, new short[10], new short[10]));
+        store.append((short) 42);
+        short[] max = new short[1];
+        assertEquals(1, store.query(0, 1, 1, new short[1], max));
+        assertEquals(42, max[0]);
+    }
+
+    private static void appendValues(WaveTileStore store, int count) {
+        for (int i = 0; i < count; i++) {
+            store.append(valueAt(i));
+        }
+    }
+
+    private static short valueAt(int index) {
+        return (short) ((index * 37) % 1000 - 100);
+    }
+}
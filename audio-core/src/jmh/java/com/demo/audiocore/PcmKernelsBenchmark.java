@@ -0,0 +1,145 @@
+package com.demo.audiocore;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ShortBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author : Zach
+ * @desc : PcmKernels的吞吐量基准，每次调用处理SAMPLES个采样，结果的单位就是采样数/秒。
+ * 带naive前缀的是改造前的写法，作为对比基线。运行：./gradlew :audio-core:jmh
+ * @date : 2026/10/19 09:40
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PcmKernelsBenchmark {
+
+    /**
+     * 48kHz单声道约1.4秒
+     */
+    private static final int SAMPLES = 1 << 16;
+    private static final int SAMPLES_PER_BIN = 256;
+
+    private short[] mShorts;
+    private float[] mFloats;
+    private ByteBuffer mBytes;
+    private ShortBuffer mBytesAsShorts;
+    private short[] mOutMin;
+    private short[] mOutMax;
+    private float[] mAmplitudes;
+    private float[] mDecibels;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(1);
+        mShorts = new short[SAMPLES];
+        mFloats = new float[SAMPLES];
+        mBytes = ByteBuffer.allocateDirect(SAMPLES * 2).order(ByteOrder.LITTLE_ENDIAN);
+        mAmplitudes = new float[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) {
+            short s = (short) (random.nextGaussian() * 6000);
+            mShorts[i] = s;
+            mFloats[i] = s / PcmKernels.SHORT_FULL_SCALE;
+            mBytes.putShort(i * 2, s);
+            mAmplitudes[i] = Math.abs(mFloats[i]);
+        }
+        mBytesAsShorts = mBytes.asShortBuffer();
+        mOutMin = new short[SAMPLES / SAMPLES_PER_BIN];
+        mOutMax = new short[SAMPLES / SAMPLES_PER_BIN];
+        mDecibels = new float[SAMPLES];
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SAMPLES)
+    public float rmsShort() {
+        return PcmKernels.rms(mShorts, 0, SAMPLES);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SAMPLES)
+    public float rmsFloat() {
+        return PcmKernels.rms(mFloats, 0, SAMPLES);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SAMPLES)
+    public int peakShort() {
+        return PcmKernels.peak(mShorts, 0, SAMPLES);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SAMPLES)
+    public float peakFloat() {
+        return PcmKernels.peak(mFloats, 0, SAMPLES);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SAMPLES)
+    public int minMaxPairs() {
+        return PcmKernels.minMaxPairs(mShorts, 0, SAMPLES, SAMPLES_PER_BIN, mOutMin, mOutMax, 0);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SAMPLES)
+    public float[] amplitudeToDecibel() {
+        PcmKernels.amplitudeToDecibel(mAmplitudes, 0, SAMPLES, mDecibels, 0, -90);
+        return mDecibels;
+    }
+
+    /**
+     * 采集线程原来的写法：逐个getShort，一个循环里同时算平方和和峰值
+     */
+    @Benchmark
+    @OperationsPerInvocation(SAMPLES)
+    public long naiveRmsPeakByteBuffer() {
+        double sum = 0;
+        int peak = 0;
+        for (int i = 0; i < SAMPLES; i++) {
+            int sample = mBytes.getShort(i * 2);
+            sum += sample * sample;
+            int abs = sample < 0 ? -sample : sample;
+            if (abs > peak) {
+                peak = abs;
+            }
+        }
+        return (long) sum + peak;
+    }
+
+    /**
+     * 批量拷到short[]后再跑两个kernel，和上面的基线对比
+     */
+    @Benchmark
+    @OperationsPerInvocation(SAMPLES)
+    public long bulkRmsPeakByteBuffer() {
+        mBytesAsShorts.clear();
+        mBytesAsShorts.get(mShorts, 0, SAMPLES);
+        return PcmKernels.sumSquares(mShorts, 0, SAMPLES) + PcmKernels.peak(mShorts, 0, SAMPLES);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SAMPLES)
+    public float[] naiveLog10Decibel() {
+        for (int i = 0; i < SAMPLES; i++) {
+            mDecibels[i] = (float) Math.max(20 * Math.log10(mAmplitudes[i]), -90);
+        }
+        return mDecibels;
+    }
+}
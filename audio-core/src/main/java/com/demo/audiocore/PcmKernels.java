@@ -0,0 +1,244 @@
+package com.demo.audiocore;
+
+/**
+ * @author : Zach
+ * @desc : PCM分析的基础循环：RMS、峰值、min/max和分贝映射，16bit和float各一份。
+ * 循环都写成JIT容易优化的形式：int计数、数组直接下标、循环体内不调用非intrinsic的方法，浮点累加拆成4路消除依赖链。
+ * 16bit的峰值和min/max用分支比较，在HotSpot上比Math.max快，改动前先跑PcmKernelsBenchmark对比。
+ * 不分配内存，调用方自己复用输入输出数组
+ * @date : 2026/10/19 09:10
+ */
+public final class PcmKernels {
+
+    /**
+     * 16bit满幅
+     */
+    public static final float SHORT_FULL_SCALE = 32768f;
+
+    /**
+     * 6.0206 = 20 * log10(2)，log2转分贝
+     */
+    private static final float DB_PER_LOG2 = 6.0205999f;
+
+    private PcmKernels() {
+    }
+
+    /**
+     * 平方和，16bit的平方和最多2^30，用long累加
+     */
+    public static long sumSquares(short[] pcm, int offset, int length) {
+        long sum = 0;
+        int end = offset + length;
+        for (int i = offset; i < end; i++) {
+            int s = pcm[i];
+            sum += s * s;
+        }
+        return sum;
+    }
+
+    public static double sumSquares(float[] pcm, int offset, int length) {
+        // 浮点加法不满足结合律，JIT不会自己重排，拆成4路累加
+        float s0 = 0;
+        float s1 = 0;
+        float s2 = 0;
+        float s3 = 0;
+        int end = offset + length;
+        int i = offset;
+        for (; i + 3 < end; i += 4) {
+            float a = pcm[i];
+            float b = pcm[i + 1];
+            float c = pcm[i + 2];
+            float d = pcm[i + 3];
+            s0 += a * a;
+            s1 += b * b;
+            s2 += c * c;
+            s3 += d * d;
+        }
+        for (; i < end; i++) {
+            float a = pcm[i];
+            s0 += a * a;
+        }
+        return (double) s0 + s1 + s2 + s3;
+    }
+
+    /**
+     * RMS，归一化到0~1
+     */
+    public static float rms(short[] pcm, int offset, int length) {
+        if (length <= 0) {
+            return 0;
+        }
+        return (float) (Math.sqrt((double) sumSquares(pcm, offset, length) / length) / SHORT_FULL_SCALE);
+    }
+
+    public static float rms(float[] pcm, int offset, int length) {
+        if (length <= 0) {
+            return 0;
+        }
+        return (float) Math.sqrt(sumSquares(pcm, offset, length) / length);
+    }
+
+    /**
+     * 峰值绝对值，-32768返回32768
+     */
+    public static int peak(short[] pcm, int offset, int length) {
+        int peak = 0;
+        int end = offset + length;
+        for (int i = offset; i < end; i++) {
+            int sample = pcm[i];
+            int abs = sample < 0 ? -sample : sample;
+            // 峰值很少更新，分支几乎都能预测对，比Math.max生成的cmov依赖链快一倍
+            if (abs > peak) {
+                peak = abs;
+            }
+        }
+        return peak;
+    }
+
+    public static float peak(float[] pcm, int offset, int length) {
+        float peak = 0;
+        int end = offset + length;
+        for (int i = offset; i < end; i++) {
+            peak = Math.max(peak, Math.abs(pcm[i]));
+        }
+        return peak;
+    }
+
+    /**
+     * 一段数据的最小值和最大值，打包成一个int返回，避免分配对象。
+     * 用{@link #unpackMin(int)}和{@link #unpackMax(int)}取出，length为0时min大于max
+     */
+    public static int minMax(short[] pcm, int offset, int length) {
+        int min = Short.MAX_VALUE;
+        int max = Short.MIN_VALUE;
+        int end = offset + length;
+        for (int i = offset; i < end; i++) {
+            int sample = pcm[i];
+            // 和peak一样用分支而不是Math.min/max
+            if (sample < min) {
+                min = sample;
+            }
+            if (sample > max) {
+                max = sample;
+            }
+        }
+        return (max << 16) | (min & 0xffff);
+    }
+
+    public static short unpackMin(int packed) {
+        return (short) packed;
+    }
+
+    public static short unpackMax(int packed) {
+        return (short) (packed >> 16);
+    }
+
+    /**
+     * 每samplesPerBin个采样生成一对min/max，最后不满的也算一个bin。
+     * 多声道交错数据把samplesPerBin乘上声道数，所有声道合并到同一个bin
+     *
+     * @param outOffset 输出的起始位置
+     * @return 写入的bin个数
+     */
+    public static int minMaxPairs(short[] pcm, int offset, int length, int samplesPerBin,
+                                  short[] outMin, short[] outMax, int outOffset) {
+        if (samplesPerBin <= 0) {
+            throw new IllegalArgumentException("samplesPerBin must be > 0, was " + samplesPerBin);
+        }
+        int bins = 0;
+        int end = offset + length;
+        for (int start = offset; start < end; start += samplesPerBin) {
+            int packed = minMax(pcm, start, Math.min(samplesPerBin, end - start));
+            outMin[outOffset + bins] = unpackMin(packed);
+            outMax[outOffset + bins] = unpackMax(packed);
+            bins++;
+        }
+        return bins;
+    }
+
+    public static int minMaxPairs(float[] pcm, int offset, int length, int samplesPerBin,
+                                  float[] outMin, float[] outMax, int outOffset) {
+        if (samplesPerBin <= 0) {
+            throw new IllegalArgumentException("samplesPerBin must be > 0, was " + samplesPerBin);
+        }
+        int bins = 0;
+        int end = offset + length;
+        for (int start = offset; start < end; start += samplesPerBin) {
+            int binEnd = Math.min(start + samplesPerBin, end);
+            float min = Float.POSITIVE_INFINITY;
+            float max = Float.NEGATIVE_INFINITY;
+            for (int i = start; i < binEnd; i++) {
+                float s = pcm[i];
+                min = Math.min(min, s);
+                max = Math.max(max, s);
+            }
+            outMin[outOffset + bins] = min;
+            outMax[outOffset + bins] = max;
+            bins++;
+        }
+        return bins;
+    }
+
+    /**
+     * 线性振幅转分贝，误差小于0.001dB。不调用Math.log10，用浮点数的指数位加级数算log2
+     *
+     * @param amplitude 0~1，小于等于0时返回floorDb
+     * @param floorDb   最小分贝
+     */
+    public static float amplitudeToDecibel(float amplitude, float floorDb) {
+        return Math.max(DB_PER_LOG2 * log2(Math.max(amplitude, Float.MIN_NORMAL)), floorDb);
+    }
+
+    /**
+     * 批量振幅转分贝
+     *
+     * @see #amplitudeToDecibel(float, float)
+     */
+    public static void amplitudeToDecibel(float[] amplitude, int offset, int length,
+                                          float[] outDb, int outOffset, float floorDb) {
+        for (int i = 0; i < length; i++) {
+            float a = Math.max(amplitude[offset + i], Float.MIN_NORMAL);
+            outDb[outOffset + i] = Math.max(DB_PER_LOG2 * log2(a), floorDb);
+        }
+    }
+
+    /**
+     * 波纹算法，分贝转波形高度：-15dB以下贴底，之后按分贝的平方增长，限制在1~maxHeight
+     *
+     * @param decibel   分贝
+     * @param maxHeight 最大高度，像素
+     */
+    public static float rippleHeight(float decibel, float maxHeight) {
+        float d = decibel * 0.1f;
+        float y = decibel <= -15 ? 1 : 3.5f * d * d - 32;
+        return Math.min(Math.max(y, 1), maxHeight);
+    }
+
+    /**
+     * 批量分贝转波形高度
+     *
+     * @see #rippleHeight(float, float)
+     */
+    public static void rippleHeights(float[] decibel, int offset, int length,
+                                     float[] outHeight, int outOffset, float maxHeight) {
+        for (int i = 0; i < length; i++) {
+            outHeight[outOffset + i] = rippleHeight(decibel[offset + i], maxHeight);
+        }
+    }
+
+    /**
+     * 正规化浮点数的log2：指数位直接取出，尾数调整到[√2/2, √2)后用t=(m-1)/(m+1)的奇次级数展开，
+     * t不超过0.172，展开到t^7已经足够。调用方保证x是正规化的正数
+     */
+    static float log2(float x) {
+        // 尾数大于√2的进位到指数，和musl的logf一样
+        int bits = Float.floatToRawIntBits(x) + (0x3f800000 - 0x3f3504f3);
+        int exponent = (bits >> 23) - 127;
+        float m = Float.intBitsToFloat((bits & 0x7fffff) + 0x3f3504f3);
+        float t = (m - 1) / (m + 1);
+        float t2 = t * t;
+        // 2/ln2
+        float series = 2.8853901f * t * (1 + t2 * (1f / 3 + t2 * (1f / 5 + t2 * (1f / 7))));
+        return exponent + series;
+    }
+}
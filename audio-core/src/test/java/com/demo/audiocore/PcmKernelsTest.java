@@ -0,0 +1,141 @@
+package com.demo.audiocore;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PcmKernelsTest {
+
+    private final Random mRandom = new Random(17);
+
+    @Test
+    public void rmsAndPeak_matchNaiveLoop() {
+        short[] pcm = randomShorts(1001);
+        pcm[500] = Short.MIN_VALUE;
+        double sum = 0;
+        int peak = 0;
+        for (int i = 3; i < 1000; i++) {
+            sum += pcm[i] * pcm[i];
+            peak = Math.max(peak, Math.abs(pcm[i]));
+        }
+        assertEquals((long) sum, PcmKernels.sumSquares(pcm, 3, 997));
+        assertEquals(Math.sqrt(sum / 997) / 32768, PcmKernels.rms(pcm, 3, 997), 1e-6);
+        assertEquals(32768, peak);
+        assertEquals(peak, PcmKernels.peak(pcm, 3, 997));
+        assertEquals(0, PcmKernels.rms(pcm, 0, 0), 0);
+    }
+
+    @Test
+    public void floatRmsAndPeak_matchNaiveLoop() {
+        // 长度不是4的倍数，覆盖收尾的循环
+        float[] pcm = new float[1003];
+        double sum = 0;
+        float peak = 0;
+        for (int i = 0; i < pcm.length; i++) {
+            pcm[i] = mRandom.nextFloat() * 2 - 1;
+            sum += pcm[i] * pcm[i];
+            peak = Math.max(peak, Math.abs(pcm[i]));
+        }
+        assertEquals(sum, PcmKernels.sumSquares(pcm, 0, pcm.length), 1e-3);
+        assertEquals(Math.sqrt(sum / pcm.length), PcmKernels.rms(pcm, 0, pcm.length), 1e-6);
+        assertEquals(peak, PcmKernels.peak(pcm, 0, pcm.length), 0);
+    }
+
+    @Test
+    public void minMax_packsBothExtremes() {
+        short[] pcm = {5, -32768, 32767, 0};
+        int packed = PcmKernels.minMax(pcm, 0, pcm.length);
+        assertEquals(Short.MIN_VALUE, PcmKernels.unpackMin(packed));
+        assertEquals(Short.MAX_VALUE, PcmKernels.unpackMax(packed));
+
+        packed = PcmKernels.minMax(pcm, 0, 0);
+        assertTrue(PcmKernels.unpackMin(packed) > PcmKernels.unpackMax(packed));
+    }
+
+    @Test
+    public void minMaxPairs_lastBinMayBePartial() {
+        short[] pcm = randomShorts(1000);
+        short[] outMin = new short[12];
+        short[] outMax = new short[12];
+        int bins = PcmKernels.minMaxPairs(pcm, 0, pcm.length, 96, outMin, outMax, 1);
+        assertEquals(11, bins);
+        for (int b = 0; b < bins; b++) {
+            int min = Short.MAX_VALUE;
+            int max = Short.MIN_VALUE;
+            for (int i = b * 96; i < Math.min((b + 1) * 96, pcm.length); i++) {
+                min = Math.min(min, pcm[i]);
+                max = Math.max(max, pcm[i]);
+            }
+            assertEquals(min, outMin[b + 1]);
+            assertEquals(max, outMax[b + 1]);
+        }
+    }
+
+    @Test
+    public void floatMinMaxPairs_matchNaiveLoop() {
+        float[] pcm = new float[100];
+        for (int i = 0; i < pcm.length; i++) {
+            pcm[i] = mRandom.nextFloat() * 2 - 1;
+        }
+        float[] outMin = new float[4];
+        float[] outMax = new float[4];
+        assertEquals(4, PcmKernels.minMaxPairs(pcm, 0, pcm.length, 30, outMin, outMax, 0));
+        for (int b = 0; b < 4; b++) {
+            float min = Float.POSITIVE_INFINITY;
+            float max = Float.NEGATIVE_INFINITY;
+            for (int i = b * 30; i < Math.min((b + 1) * 30, pcm.length); i++) {
+                min = Math.min(min, pcm[i]);
+                max = Math.max(max, pcm[i]);
+            }
+            assertEquals(min, outMin[b], 0);
+            assertEquals(max, outMax[b], 0);
+        }
+    }
+
+    @Test
+    public void amplitudeToDecibel_matchesLog10() {
+        for (int i = 0; i < 100000; i++) {
+            float amplitude = (float) Math.pow(10, -mRandom.nextDouble() * 6);
+            double expected = 20 * Math.log10(amplitude);
+            assertEquals(expected, PcmKernels.amplitudeToDecibel(amplitude, -200), 1e-3);
+        }
+        assertEquals(0, PcmKernels.amplitudeToDecibel(1, -90), 1e-5);
+        assertEquals(-90, PcmKernels.amplitudeToDecibel(0, -90), 0);
+        assertEquals(-90, PcmKernels.amplitudeToDecibel(-0.5f, -90), 0);
+        assertEquals(-90, PcmKernels.amplitudeToDecibel(1e-6f, -90), 0);
+
+        float[] amplitude = {1, 0.5f, 0.1f, 0};
+        float[] db = new float[5];
+        PcmKernels.amplitudeToDecibel(amplitude, 0, amplitude.length, db, 1, -90);
+        assertEquals(0, db[1], 1e-3);
+        assertEquals(-6.0206, db[2], 1e-3);
+        assertEquals(-20, db[3], 1e-3);
+        assertEquals(-90, db[4], 0);
+    }
+
+    @Test
+    public void rippleHeight_clampsToRange() {
+        assertEquals(1, PcmKernels.rippleHeight(-100, 300), 0);
+        assertEquals(1, PcmKernels.rippleHeight(0, 300), 0);
+        assertEquals(3.5f * 36 - 32, PcmKernels.rippleHeight(60, 300), 1e-4);
+        assertEquals(300, PcmKernels.rippleHeight(100, 300), 0);
+
+        float[] db = {-20, 40, 60};
+        float[] height = new float[3];
+        PcmKernels.rippleHeights(db, 0, 3, height, 0, 300);
+        assertEquals(1, height[0], 0);
+        assertEquals(3.5f * 16 - 32, height[1], 1e-4);
+        assertEquals(94, height[2], 1e-4);
+    }
+
+    private short[] randomShorts(int length) {
+        short[] pcm = new short[length];
+        for (int i = 0; i < length; i++) {
+            pcm[i] = (short) mRandom.nextInt(65536);
+        }
+        return pcm;
+    }
+}